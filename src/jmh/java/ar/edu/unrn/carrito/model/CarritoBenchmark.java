@@ -0,0 +1,85 @@
+package ar.edu.unrn.carrito.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de los métodos calientes del carrito para distintos tamaños.
+ *
+ * Ejecutar con: mvn -Pjmh test-compile exec:exec
+ * El perfil agrega "-prof gc" para reportar bytes/op (gc.alloc.rate.norm).
+ * Para filtrar: mvn -Pjmh test-compile exec:exec -Djmh.args="-prof gc CarritoBenchmark.calcularTotal"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CarritoBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    private int tamanio;
+
+    private Carrito carrito;
+    private Pelicula ultimaPelicula;
+    private ItemCarrito item;
+
+    // Se reconstruye por iteración para que las cantidades no crezcan sin límite
+    @Setup(Level.Iteration)
+    public void prepararCarrito() {
+        carrito = new Carrito("usuario-benchmark");
+        for (long id = 1; id <= tamanio; id++) {
+            Pelicula pelicula = new Pelicula(id, "Pelicula " + id, new BigDecimal("15.99"));
+            carrito.agregarPelicula(pelicula, 1);
+            ultimaPelicula = pelicula;
+        }
+        item = new ItemCarrito(ultimaPelicula, 3);
+    }
+
+    // Peor caso de la búsqueda: la película ya está y es la última de la lista
+    @Benchmark
+    public Carrito agregarPelicula() {
+        carrito.agregarPelicula(ultimaPelicula, 1);
+        return carrito;
+    }
+
+    @Benchmark
+    public Monto calcularTotal() {
+        return carrito.calcularTotal();
+    }
+
+    // Recorre todos los items: es el cálculo completo del total, con -prof gc muestra lo que aloca
+    @Benchmark
+    public boolean repararTotales() {
+        return carrito.repararTotales();
+    }
+
+    @Benchmark
+    public Integer cantidadTotalItems() {
+        return carrito.cantidadTotalItems();
+    }
+
+    @Benchmark
+    public Object toCarritoDetalle() {
+        return carrito.toCarritoDetalle();
+    }
+
+    @Benchmark
+    public Monto calcularSubtotal() {
+        return item.calcularSubtotal();
+    }
+}
@@ -0,0 +1,119 @@
+package ar.edu.unrn.carrito.utils;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el throughput de requests bloqueantes en el modo de platform threads
+ * (pool fijo como el de Tomcat, 200 hilos por defecto) contra virtual threads con
+ * la compuerta JDBC dimensionada al pool de conexiones.
+ *
+ * Cada operación atiende 'requests' requests concurrentes. Cada request espera una
+ * llamada externa (p. ej. el catálogo) y luego usa una conexión durante 'latencia-bd'.
+ * requests/s = requests / tiempo por operación.
+ *
+ * Ejecutar con: mvn -Pjmh test-compile exec:exec -Djmh.args="HilosVirtualesBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HilosVirtualesBenchmark {
+
+    private static final int HILOS_TOMCAT = 200;
+    private static final int CONEXIONES = 20;
+
+    @Param({"plataforma", "virtual"})
+    private String modo;
+
+    @Param({"2000"})
+    private int requests;
+
+    @Param({"10"})
+    private long latenciaExternaMs;
+
+    @Param({"1"})
+    private long latenciaBdMs;
+
+    private HikariDataSource dataSource;
+    private EntityManagerFactory emf;
+    private ExecutorService executor;
+
+    @Setup
+    public void preparar() {
+        dataSource = new PoolConexionesBuilder().memory().tamanio(CONEXIONES, CONEXIONES).timeoutConexion(30_000).build();
+        boolean virtual = modo.equals("virtual");
+        emf = new EmfBuilder()
+                .memory()
+                .withDataSource(virtual ? new CompuertaJdbc(CONEXIONES, 30_000).envolver(dataSource) : dataSource)
+                .addClass(Carrito.class)
+                .addClass(ItemCarrito.class)
+                .addClass(Pelicula.class)
+                .build();
+        executor = virtual ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(HILOS_TOMCAT);
+    }
+
+    @TearDown
+    public void liberar() {
+        executor.shutdownNow();
+        emf.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public long atenderRequests() throws Exception {
+        List<Future<Long>> pendientes = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            pendientes.add(executor.submit(this::request));
+        }
+        long total = 0;
+        for (Future<Long> pendiente : pendientes) {
+            total += pendiente.get();
+        }
+        return total;
+    }
+
+    private Long request() throws InterruptedException {
+        Thread.sleep(latenciaExternaMs);
+        try (var em = emf.createEntityManager()) {
+            // Fuera de una transacción Hibernate devuelve la conexión después de cada sentencia:
+            // la transacción la retiene (y con ella el permiso de la compuerta) hasta el commit
+            var transaction = em.getTransaction();
+            transaction.begin();
+            try {
+                Long cantidad = em.createQuery("SELECT COUNT(c) FROM Carrito c", Long.class).getSingleResult();
+                // Simula el round-trip de red a MariaDB con la conexión tomada
+                Thread.sleep(latenciaBdMs);
+                transaction.commit();
+                return cantidad;
+            } catch (Exception e) {
+                transaction.rollback();
+                throw e;
+            }
+        }
+    }
+}
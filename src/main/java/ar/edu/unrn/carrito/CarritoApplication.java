@@ -1,38 +1,159 @@
 package ar.edu.unrn.carrito;
 
+import ar.edu.unrn.carrito.config.RabbitMQConfig;
+import ar.edu.unrn.carrito.messaging.RelayBandejaSalida;
 import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.EventoCarrito;
 import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.MensajeSalida;
 import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.model.SnapshotCarrito;
+import ar.edu.unrn.carrito.service.BandejaSalida;
+import ar.edu.unrn.carrito.service.BarredorCarritosAbandonados;
+import ar.edu.unrn.carrito.service.CachePeliculas;
+import ar.edu.unrn.carrito.service.CandadosPorUsuario;
 import ar.edu.unrn.carrito.service.CarritoService;
+import ar.edu.unrn.carrito.service.AlmacenCarritos;
+import ar.edu.unrn.carrito.service.CarritosEnMemoria;
+import ar.edu.unrn.carrito.service.CarritosPorEventos;
+import ar.edu.unrn.carrito.service.EnrutadorLecturas;
+import ar.edu.unrn.carrito.service.ExportadorCarritos;
+import ar.edu.unrn.carrito.service.MetricasCarrito;
+import ar.edu.unrn.carrito.utils.CompuertaJdbc;
 import ar.edu.unrn.carrito.utils.EmfBuilder;
+import ar.edu.unrn.carrito.utils.MetricasPool;
+import ar.edu.unrn.carrito.utils.PoolConexionesBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityManagerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Profile;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 @SpringBootApplication(
     exclude = {
         org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration.class,
-        org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration.class
+        org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration.class,
+        // Las migraciones las aplica EmfBuilder antes de crear el EntityManagerFactory
+        org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration.class
     }
 )
 @ComponentScan(basePackages = {"ar.edu.unrn.carrito.*"})
 public class CarritoApplication {
+    static final String ERROR_ALMACENES_EXCLUSIVOS = "carrito.eventos.habilitado y carrito.write-behind.habilitado " +
+            "no pueden estar habilitados a la vez: elegí un único almacén de carritos";
+
     public static void main(String[] args) {
         SpringApplication.run(CarritoApplication.class, args);
     }
 
     @Bean
+    public MetricasPool metricasPool() {
+        return new MetricasPool();
+    }
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    @Profile("!test")
+    public HikariDataSource dataSource(MetricasPool metricasPool,
+                                       @Value("${carrito.pool.minimo:5}") int minimo,
+                                       @Value("${carrito.pool.maximo:20}") int maximo,
+                                       @Value("${carrito.pool.timeout-conexion-ms:3000}") long timeoutConexionMs,
+                                       @Value("${carrito.pool.cache-sentencias:250}") int cacheSentencias) {
+        return new PoolConexionesBuilder()
+                .tamanio(minimo, maximo)
+                .timeoutConexion(timeoutConexionMs)
+                .cacheSentencias(cacheSentencias)
+                .metricas(metricasPool)
+                .build();
+    }
+
+    // Pool de la réplica de lectura, solo si se configura carrito.replica.url
+    @Bean(destroyMethod = "close")
     @Profile("!test")
-    public EntityManagerFactory entityManagerFactory() {
-        return new EmfBuilder()
+    @ConditionalOnProperty(name = "carrito.replica.url")
+    public HikariDataSource dataSourceReplica(@Value("${carrito.replica.url}") String url,
+                                              @Value("${carrito.pool.minimo:5}") int minimo,
+                                              @Value("${carrito.pool.maximo:20}") int maximo,
+                                              @Value("${carrito.pool.timeout-conexion-ms:3000}") long timeoutConexionMs,
+                                              @Value("${carrito.pool.cache-sentencias:250}") int cacheSentencias) {
+        return new PoolConexionesBuilder()
+                .url(url)
+                .tamanio(minimo, maximo)
+                .timeoutConexion(timeoutConexionMs)
+                .cacheSentencias(cacheSentencias)
+                .build();
+    }
+
+    // Con virtual threads las requests no están acotadas por el pool de Tomcat: la compuerta
+    // limita el acceso a la base de datos a tantas conexiones pedidas como tiene el pool
+    @Bean
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    public CompuertaJdbc compuertaJdbc(@Value("${carrito.pool.maximo:20}") int maximo,
+                                       @Value("${carrito.jdbc.compuerta.timeout-ms:5000}") long timeoutMs) {
+        return new CompuertaJdbc(maximo, timeoutMs);
+    }
+
+    @Bean
+    @Profile("!test")
+    public EntityManagerFactory entityManagerFactory(HikariDataSource dataSource,
+                                                     ObjectProvider<CompuertaJdbc> compuertaJdbc,
+                                                     @Value("${carrito.metricas.hibernate:true}") boolean estadisticas) {
+        CompuertaJdbc compuerta = compuertaJdbc.getIfAvailable();
+        EmfBuilder builder = new EmfBuilder()
+                .withDataSource(compuerta == null ? dataSource : compuerta.envolver(dataSource))
+                .withMigrations()
+                .addClass(Carrito.class)
+                .addClass(ItemCarrito.class)
+                .addClass(Pelicula.class)
+                .addClass(EventoCarrito.class)
+                .addClass(SnapshotCarrito.class)
+                .addClass(MensajeSalida.class);
+        if (estadisticas) {
+            // Las publica MetricasConfig en /actuator/prometheus
+            builder.withStatistics();
+        }
+        return builder.build();
+    }
+
+    // Sin réplica todas las lecturas van a la primaria. La réplica no migra ni valida el
+    // esquema: lo recibe de la primaria por replicación
+    @Bean(destroyMethod = "close")
+    public EnrutadorLecturas enrutadorLecturas(EntityManagerFactory emf,
+                                               @Qualifier("dataSourceReplica") ObjectProvider<HikariDataSource> dataSourceReplica,
+                                               ObjectProvider<CompuertaJdbc> compuertaJdbc,
+                                               @Value("${carrito.pool.maximo:20}") int maximo,
+                                               @Value("${carrito.jdbc.compuerta.timeout-ms:5000}") long timeoutCompuertaMs,
+                                               @Value("${carrito.replica.ventana-lectura-propia-ms:5000}") long ventanaMs,
+                                               @Value("${carrito.replica.retraso-maximo-ms:2000}") long retrasoMaximoMs) {
+        HikariDataSource replica = dataSourceReplica.getIfAvailable();
+        if (replica == null) {
+            return EnrutadorLecturas.soloPrimaria(emf);
+        }
+        // Con virtual threads la réplica tiene su propia compuerta, del tamaño de su pool
+        EntityManagerFactory emfReplica = new EmfBuilder()
+                .withDataSource(compuertaJdbc.getIfAvailable() == null
+                        ? replica : new CompuertaJdbc(maximo, timeoutCompuertaMs).envolver(replica))
+                .withOutChangeSchema()
                 .addClass(Carrito.class)
                 .addClass(ItemCarrito.class)
                 .addClass(Pelicula.class)
                 .build();
+        return new EnrutadorLecturas(emf, emfReplica,
+                Duration.ofMillis(ventanaMs), Duration.ofMillis(retrasoMaximoMs), EnrutadorLecturas.retrasoMariaDb(replica));
     }
 
     @Bean
@@ -40,8 +161,94 @@ public class CarritoApplication {
         return new RestTemplate();
     }
 
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "carrito.write-behind.habilitado", havingValue = "true")
+    public CarritosEnMemoria carritosEnMemoria(EntityManagerFactory emf, BandejaSalida bandejaSalida,
+                                               @Value("${carrito.write-behind.capacidad:10000}") int capacidad,
+                                               @Value("${carrito.write-behind.ventana-ms:1000}") long ventanaMs) {
+        return new CarritosEnMemoria(emf, capacidad, ventanaMs, bandejaSalida);
+    }
+
+    // Alternativa al write-behind: no se pueden habilitar los dos almacenes a la vez
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "carrito.eventos.habilitado", havingValue = "true")
+    public CarritosPorEventos carritosPorEventos(EntityManagerFactory emf, CachePeliculas cachePeliculas,
+                                                 CandadosPorUsuario candadosPorUsuario, BandejaSalida bandejaSalida,
+                                                 @Value("${carrito.eventos.snapshot-cada:50}") int snapshotCada,
+                                                 @Value("${carrito.write-behind.habilitado:false}") boolean writeBehind) {
+        if (writeBehind) {
+            throw new RuntimeException(ERROR_ALMACENES_EXCLUSIVOS);
+        }
+        return new CarritosPorEventos(emf, cachePeliculas, candadosPorUsuario, snapshotCada, bandejaSalida);
+    }
+
+    @Bean
+    public BandejaSalida bandejaSalida(@Value("${carrito.salida.habilitado:false}") boolean habilitada) {
+        return new BandejaSalida(habilitada);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "carrito.salida.habilitado", havingValue = "true")
+    public RelayBandejaSalida relayBandejaSalida(EntityManagerFactory emf, RabbitTemplate rabbitTemplate,
+                                                 MeterRegistry meterRegistry,
+                                                 @Value("${carrito.salida.tamanio-lote:100}") int tamanioLote,
+                                                 @Value("${carrito.salida.intervalo-ms:500}") long intervaloMs,
+                                                 @Value("${carrito.salida.timeout-confirmacion-ms:5000}") long timeoutMs,
+                                                 @Value("${carrito.salida.reclamo-ms:60000}") long reclamoMs) {
+        var publicador = RelayBandejaSalida.rabbit(rabbitTemplate, RabbitMQConfig.CARRITO_EVENTOS_EXCHANGE,
+                RabbitMQConfig.CARRITO_MODIFICADO_ROUTING_KEY, Duration.ofMillis(timeoutMs));
+        return new RelayBandejaSalida(emf, publicador, tamanioLote, Duration.ofMillis(intervaloMs),
+                Duration.ofMillis(reclamoMs), meterRegistry);
+    }
+
+    @Bean
+    public CachePeliculas cachePeliculas(@Value("${carrito.cache-peliculas.capacidad:10000}") int capacidad,
+                                         @Value("${carrito.cache-peliculas.ttl-negativo-ms:30000}") long ttlNegativoMs) {
+        return new CachePeliculas(capacidad, ttlNegativoMs);
+    }
+
+    @Bean
+    public CandadosPorUsuario candadosPorUsuario(@Value("${carrito.candados.franjas:256}") int franjas) {
+        return new CandadosPorUsuario(franjas);
+    }
+
+    @Bean
+    public ExportadorCarritos exportadorCarritos(EntityManagerFactory emf, ObjectMapper objectMapper,
+                                                 @Value("${carrito.exportacion.tamanio-lote:500}") int tamanioLote) {
+        return new ExportadorCarritos(emf, objectMapper, tamanioLote);
+    }
+
+    // Se frena mientras haya requests esperando una conexión: en el pool, o antes, en la compuerta
+    // JDBC (con virtual threads las requests esperan en su semáforo y no llegan a la cola del pool)
+    @Bean
+    @ConditionalOnProperty(name = "carrito.barrido.habilitado", havingValue = "true")
+    public BarredorCarritosAbandonados barredorCarritosAbandonados(
+            EntityManagerFactory emf, ObjectProvider<AlmacenCarritos> almacenCarritos, ObjectMapper objectMapper,
+            MetricasPool metricasPool, ObjectProvider<CompuertaJdbc> compuertaJdbc, MeterRegistry meterRegistry,
+            @Value("${carrito.barrido.directorio:archivo-carritos}") String directorio,
+            @Value("${carrito.barrido.ttl-dias:30}") long ttlDias,
+            @Value("${carrito.barrido.tamanio-lote:500}") int tamanioLote,
+            @Value("${carrito.barrido.pausa-entre-lotes-ms:200}") long pausaEntreLotesMs) {
+        CompuertaJdbc compuerta = compuertaJdbc.getIfAvailable();
+        return new BarredorCarritosAbandonados(emf, almacenCarritos.getIfAvailable(), objectMapper, Path.of(directorio),
+                Duration.ofDays(ttlDias), tamanioLote, Duration.ofMillis(pausaEntreLotesMs),
+                () -> metricasPool.estadisticas().pendientes() > 0 || (compuerta != null && compuerta.esperando() > 0),
+                meterRegistry);
+    }
+
+    @Bean
+    public MetricasCarrito metricasCarrito(MeterRegistry meterRegistry) {
+        return new MetricasCarrito(meterRegistry);
+    }
+
     @Bean
-    public CarritoService carritoService(EntityManagerFactory emf) {
-        return new CarritoService(emf);
+    public CarritoService carritoService(EntityManagerFactory emf, CachePeliculas cachePeliculas,
+                                         ObjectProvider<AlmacenCarritos> almacenCarritos,
+                                         CandadosPorUsuario candadosPorUsuario,
+                                         MetricasCarrito metricasCarrito,
+                                         EnrutadorLecturas enrutadorLecturas,
+                                         BandejaSalida bandejaSalida) {
+        return new CarritoService(emf, cachePeliculas, almacenCarritos.getIfAvailable(), candadosPorUsuario,
+                metricasCarrito, enrutadorLecturas, bandejaSalida);
     }
 }
@@ -0,0 +1,81 @@
+package ar.edu.unrn.carrito;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.service.ExportadorCarritos;
+import ar.edu.unrn.carrito.service.FiltroExportacion;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import ar.edu.unrn.carrito.utils.PoolConexionesBuilder;
+import ar.edu.unrn.carrito.web.SerializadoresCarrito;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exporta los carritos como NDJSON desde la línea de comandos, sin levantar la aplicación.
+ *
+ *   java -cp carrito.jar -Dloader.main=ar.edu.unrn.carrito.ExportarCarritos \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        [--salida=carritos.ndjson] [--modificado-desde=2024-01-01T00:00:00] \
+ *        [--usuario-desde=a] [--usuario-hasta=m] [--url=jdbc:mariadb://...] [--lote=500]
+ *
+ * Sin --salida escribe en la salida estándar; los logs van a la salida de error.
+ */
+public class ExportarCarritos {
+
+    public static void main(String[] args) throws IOException {
+        // Cualquier log a consola termina en stderr para no mezclarse con el NDJSON
+        PrintStream salidaEstandar = System.out;
+        System.setOut(System.err);
+
+        Map<String, String> opciones = opciones(args);
+        var filtro = new FiltroExportacion(
+                opciones.containsKey("modificado-desde") ? LocalDateTime.parse(opciones.get("modificado-desde")) : null,
+                opciones.get("usuario-desde"),
+                opciones.get("usuario-hasta"));
+
+        try (var dataSource = new PoolConexionesBuilder()
+                .url(opciones.getOrDefault("url", EmfBuilder.CLIENT_DB_URL))
+                .credenciales(opciones.getOrDefault("usuario", EmfBuilder.DB_USER),
+                        opciones.getOrDefault("password", EmfBuilder.DB_PWD))
+                .tamanio(1, 1)
+                .build();
+             var emf = new EmfBuilder()
+                     .withDataSource(dataSource)
+                     .withOutChangeSchema()
+                     .withOutShowSql()
+                     .addClass(Carrito.class)
+                     .addClass(ItemCarrito.class)
+                     .addClass(Pelicula.class)
+                     .build();
+             OutputStream salida = opciones.containsKey("salida")
+                     ? new BufferedOutputStream(new FileOutputStream(opciones.get("salida")))
+                     : salidaEstandar) {
+            var exportador = new ExportadorCarritos(emf,
+                    JsonMapper.builder().findAndAddModules().addModule(new SerializadoresCarrito()).build(),
+                    Integer.parseInt(opciones.getOrDefault("lote", "500")));
+            long exportados = exportador.exportar(filtro, salida);
+            System.err.println("Carritos exportados: " + exportados);
+        }
+    }
+
+    private static Map<String, String> opciones(String[] args) {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (!arg.startsWith("--") || igual < 0) {
+                throw new RuntimeException("Argumento inválido: " + arg + " (se espera --opcion=valor)");
+            }
+            opciones.put(arg.substring(2, igual), arg.substring(igual + 1));
+        }
+        return opciones;
+    }
+}
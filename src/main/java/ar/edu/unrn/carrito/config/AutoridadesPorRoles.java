@@ -0,0 +1,79 @@
+package ar.edu.unrn.carrito.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Convierte realm_access.roles de Keycloak en autoridades ROLE_*.
+ *
+ * Los usuarios comparten unas pocas combinaciones de roles, así que la lista de
+ * autoridades de cada combinación se arma una sola vez y se reutiliza (inmutable).
+ * Las autoridades de la aplicación (ADMIN, CLIENT) están preasignadas. La cantidad de
+ * combinaciones recordadas está acotada para que tokens con roles arbitrarios no
+ * hagan crecer la memoria.
+ */
+public class AutoridadesPorRoles implements Converter<Jwt, Collection<GrantedAuthority>> {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutoridadesPorRoles.class);
+
+    static final String PREFIJO = "ROLE_";
+    static final int MAXIMO_COMBINACIONES = 256;
+
+    private final Map<String, GrantedAuthority> autoridades = new ConcurrentHashMap<>();
+    private final Map<List<String>, List<GrantedAuthority>> combinaciones = new ConcurrentHashMap<>();
+
+    public AutoridadesPorRoles() {
+        autoridades.put(PREFIJO + "ADMIN", new SimpleGrantedAuthority(PREFIJO + "ADMIN"));
+        autoridades.put(PREFIJO + "CLIENT", new SimpleGrantedAuthority(PREFIJO + "CLIENT"));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<GrantedAuthority> convert(Jwt jwt) {
+        // Extraer roles desde realm_access.roles
+        var realmAccess = jwt.getClaimAsMap("realm_access");
+        if (realmAccess == null || !(realmAccess.get("roles") instanceof List<?> roles)) {
+            logger.warn("No se encontraron roles en realm_access");
+            return List.of();
+        }
+
+        List<GrantedAuthority> existentes = combinaciones.get(roles);
+        if (existentes != null) {
+            return existentes;
+        }
+
+        List<GrantedAuthority> nuevas = new ArrayList<>(roles.size());
+        for (Object rol : roles) {
+            nuevas.add(autoridad(String.valueOf(rol)));
+        }
+        List<GrantedAuthority> inmutables = List.copyOf(nuevas);
+        if (combinaciones.size() < MAXIMO_COMBINACIONES) {
+            List<GrantedAuthority> previas = combinaciones.putIfAbsent(List.copyOf((List<String>) roles), inmutables);
+            return previas != null ? previas : inmutables;
+        }
+        return inmutables;
+    }
+
+    private GrantedAuthority autoridad(String rol) {
+        // Si el rol ya tiene el prefijo ROLE_, no lo duplicamos
+        String nombre = rol.startsWith(PREFIJO) ? rol : PREFIJO + rol;
+        GrantedAuthority existente = autoridades.get(nombre);
+        if (existente != null) {
+            return existente;
+        }
+        if (autoridades.size() >= MAXIMO_COMBINACIONES) {
+            return new SimpleGrantedAuthority(nombre);
+        }
+        return autoridades.computeIfAbsent(nombre, SimpleGrantedAuthority::new);
+    }
+}
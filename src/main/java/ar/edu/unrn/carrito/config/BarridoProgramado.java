@@ -0,0 +1,35 @@
+package ar.edu.unrn.carrito.config;
+
+import ar.edu.unrn.carrito.service.BarredorCarritosAbandonados;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Ejecuta el barrido de carritos abandonados según carrito.barrido.cron (por defecto de
+ * madrugada, fuera del horario pico). Solo con carrito.barrido.habilitado=true.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "carrito.barrido.habilitado", havingValue = "true")
+public class BarridoProgramado {
+
+    private static final Logger logger = LoggerFactory.getLogger(BarridoProgramado.class);
+    private final BarredorCarritosAbandonados barredor;
+
+    public BarridoProgramado(BarredorCarritosAbandonados barredor) {
+        this.barredor = barredor;
+    }
+
+    @Scheduled(cron = "${carrito.barrido.cron:0 0 4 * * *}")
+    public void barrerCarritosAbandonados() {
+        try {
+            barredor.barrer();
+        } catch (RuntimeException e) {
+            logger.error("❌ Error en el barrido de carritos abandonados: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ar.edu.unrn.carrito.config;
+
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache de autenticaciones JWT delante del AuthenticationManager del resource server.
+ *
+ * Un token ya verificado (firma, issuer, vigencia) y convertido a Authentication se
+ * recuerda por el hash SHA-256 de su valor hasta su claim exp, así las requests
+ * siguientes con el mismo token no vuelven a decodificarlo, verificar la firma ni
+ * recorrer sus roles. Es un LRU acotado por {@code capacidad}. Los tokens sin exp no
+ * se cachean.
+ */
+public class CacheAutenticacionJwt implements AuthenticationManager {
+
+    static final String ERROR_CAPACIDAD_INVALIDA = "La capacidad de la cache de autenticaciones debe ser mayor a cero";
+
+    private final AuthenticationManager delegado;
+    private final Clock reloj;
+    private final Map<String, Entrada> autenticaciones;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    public CacheAutenticacionJwt(AuthenticationManager delegado, int capacidad) {
+        this(delegado, capacidad, Clock.systemUTC());
+    }
+
+    CacheAutenticacionJwt(AuthenticationManager delegado, int capacidad, Clock reloj) {
+        assertCapacidadValida(capacidad);
+        this.delegado = delegado;
+        this.reloj = reloj;
+        this.autenticaciones = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> masAntigua) {
+                return size() > capacidad;
+            }
+        };
+    }
+
+    private void assertCapacidadValida(int capacidad) {
+        if (capacidad <= 0) {
+            throw new RuntimeException(ERROR_CAPACIDAD_INVALIDA);
+        }
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (!(authentication instanceof BearerTokenAuthenticationToken bearer)) {
+            return delegado.authenticate(authentication);
+        }
+
+        String clave = hash(bearer.getToken());
+        Instant ahora = reloj.instant();
+        Entrada entrada;
+        lock.lock();
+        try {
+            entrada = autenticaciones.get(clave);
+            if (entrada != null && !ahora.isBefore(entrada.vencimiento)) {
+                autenticaciones.remove(clave);
+                entrada = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (entrada != null) {
+            aciertos.increment();
+            // Token nuevo por request: los details (IP, sesión) son de la request actual
+            var autenticacion = new JwtAuthenticationToken(entrada.autenticacion.getToken(),
+                    entrada.autenticacion.getAuthorities(), entrada.autenticacion.getName());
+            autenticacion.setDetails(bearer.getDetails());
+            return autenticacion;
+        }
+
+        fallos.increment();
+        Authentication resultado = delegado.authenticate(authentication);
+        if (resultado instanceof JwtAuthenticationToken jwtAutenticado && jwtAutenticado.getToken().getExpiresAt() != null) {
+            lock.lock();
+            try {
+                autenticaciones.put(clave, new Entrada(jwtAutenticado, jwtAutenticado.getToken().getExpiresAt()));
+            } finally {
+                lock.unlock();
+            }
+        }
+        return resultado;
+    }
+
+    public long aciertos() {
+        return aciertos.sum();
+    }
+
+    public long fallos() {
+        return fallos.sum();
+    }
+
+    public int tamanio() {
+        lock.lock();
+        try {
+            return autenticaciones.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private record Entrada(JwtAuthenticationToken autenticacion, Instant vencimiento) {
+    }
+}
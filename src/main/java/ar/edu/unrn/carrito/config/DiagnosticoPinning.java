@@ -0,0 +1,63 @@
+package ar.edu.unrn.carrito.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Reporta en el log los virtual threads que quedan fijados (pinned) a su carrier thread,
+ * por ejemplo al bloquear dentro de un bloque synchronized o de código nativo.
+ *
+ * Escucha el evento JFR jdk.VirtualThreadPinned en el propio proceso, así no hace falta
+ * arrancar la JVM con -Djdk.tracePinnedThreads ni analizar un archivo .jfr aparte.
+ */
+@Component
+@ConditionalOnProperty(name = "carrito.virtual-threads.diagnostico-pinning", havingValue = "true")
+public class DiagnosticoPinning {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiagnosticoPinning.class);
+    private static final String EVENTO_PINNED = "jdk.VirtualThreadPinned";
+    private static final int FRAMES_REPORTADOS = 8;
+
+    private final Duration umbral;
+    private RecordingStream stream;
+
+    public DiagnosticoPinning(@Value("${carrito.virtual-threads.umbral-pinning-ms:20}") long umbralMs) {
+        this.umbral = Duration.ofMillis(umbralMs);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        stream = new RecordingStream();
+        stream.enable(EVENTO_PINNED).withThreshold(umbral).withStackTrace();
+        stream.onEvent(EVENTO_PINNED, this::reportar);
+        stream.startAsync();
+        logger.info("📌 Diagnóstico de pinning de virtual threads activo (umbral {} ms)", umbral.toMillis());
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void reportar(RecordedEvent evento) {
+        String pila = evento.getStackTrace() == null ? "sin stack trace" : evento.getStackTrace().getFrames().stream()
+                .limit(FRAMES_REPORTADOS)
+                .map(RecordedFrame::getMethod)
+                .map(metodo -> metodo.getType().getName() + "." + metodo.getName())
+                .collect(Collectors.joining("\n\tat ", "\n\tat ", ""));
+        logger.warn("⚠️ Virtual thread fijado a su carrier durante {} ms{}", evento.getDuration().toMillis(), pila);
+    }
+}
@@ -0,0 +1,31 @@
+package ar.edu.unrn.carrito.config;
+
+import ar.edu.unrn.carrito.web.SerializadoresCarrito;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Formatos de respuesta de los DTOs del carrito. Con {@code Accept: application/cbor} la
+ * respuesta sale en CBOR (más compacta y barata de escribir que JSON); con cualquier otro
+ * Accept sigue siendo JSON. Ambos formatos usan los serializadores
+ * de {@link SerializadoresCarrito}, que Spring Boot registra en el ObjectMapper por ser un Module.
+ */
+@Configuration
+public class FormatosRespuestaConfig {
+
+    @Bean
+    public Module serializadoresCarrito() {
+        return new SerializadoresCarrito();
+    }
+
+    // Reemplaza al convertidor CBOR por defecto de Spring MVC, que arma su propio mapper sin
+    // los módulos ni la configuración de Jackson de la aplicación
+    @Bean
+    public MappingJackson2CborHttpMessageConverter convertidorCbor(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,101 @@
+package ar.edu.unrn.carrito.config;
+
+import ar.edu.unrn.carrito.service.CachePeliculas;
+import ar.edu.unrn.carrito.utils.MetricasPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publica en el registro de Micrometer (y así en /actuator/prometheus) las estadísticas
+ * que ya llevan la aplicación y Hibernate: consultas, cargas de entidades y cache de
+ * segundo nivel, el pool de conexiones y la cache del catálogo.
+ * Las estadísticas de Hibernate requieren carrito.metricas.hibernate=true (ver EmfBuilder.withStatistics).
+ */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    @Profile("!test")
+    public MeterBinder metricasHibernate(EntityManagerFactory emf) {
+        return registro -> {
+            Statistics estadisticas = emf.unwrap(SessionFactory.class).getStatistics();
+            if (!estadisticas.isStatisticsEnabled()) {
+                return;
+            }
+            contador(registro, "hibernate.consultas", "Consultas HQL/JPQL ejecutadas",
+                    estadisticas, Statistics::getQueryExecutionCount);
+            contador(registro, "hibernate.sentencias", "Sentencias JDBC preparadas",
+                    estadisticas, Statistics::getPrepareStatementCount);
+            contador(registro, "hibernate.entidades.cargas", "Entidades cargadas desde la base",
+                    estadisticas, Statistics::getEntityLoadCount);
+            contador(registro, "hibernate.entidades.fetches", "Entidades traídas por fetch perezoso",
+                    estadisticas, Statistics::getEntityFetchCount);
+            contador(registro, "hibernate.colecciones.cargas", "Colecciones cargadas desde la base",
+                    estadisticas, Statistics::getCollectionLoadCount);
+            contador(registro, "hibernate.transacciones", "Transacciones completadas",
+                    estadisticas, Statistics::getTransactionCount);
+            FunctionCounter.builder("hibernate.cache.segundo.nivel", estadisticas, Statistics::getSecondLevelCacheHitCount)
+                    .description("Accesos a la cache de segundo nivel")
+                    .tag("resultado", "acierto")
+                    .register(registro);
+            FunctionCounter.builder("hibernate.cache.segundo.nivel", estadisticas, Statistics::getSecondLevelCacheMissCount)
+                    .description("Accesos a la cache de segundo nivel")
+                    .tag("resultado", "fallo")
+                    .register(registro);
+            Gauge.builder("hibernate.consultas.maximo", estadisticas, Statistics::getQueryExecutionMaxTime)
+                    .description("Duración de la consulta más lenta")
+                    .baseUnit("milliseconds")
+                    .register(registro);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasPoolConexiones(MetricasPool metricasPool) {
+        return registro -> {
+            gauge(registro, "carrito.pool.conexiones", "activas", metricasPool, e -> e.activas());
+            gauge(registro, "carrito.pool.conexiones", "ociosas", metricasPool, e -> e.ociosas());
+            gauge(registro, "carrito.pool.conexiones", "pendientes", metricasPool, e -> e.pendientes());
+            FunctionCounter.builder("carrito.pool.timeouts", metricasPool, m -> m.estadisticas().timeouts())
+                    .description("Requests que no obtuvieron una conexión a tiempo")
+                    .register(registro);
+            Gauge.builder("carrito.pool.espera.maxima", metricasPool, m -> m.estadisticas().esperaMaximaNanos() / 1e6)
+                    .description("Mayor espera para obtener una conexión")
+                    .baseUnit("milliseconds")
+                    .register(registro);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasCachePeliculas(CachePeliculas cachePeliculas) {
+        return registro -> {
+            FunctionCounter.builder("carrito.cache.peliculas", cachePeliculas, c -> c.estadisticas().aciertos())
+                    .tag("resultado", "acierto").register(registro);
+            FunctionCounter.builder("carrito.cache.peliculas", cachePeliculas, c -> c.estadisticas().fallos())
+                    .tag("resultado", "fallo").register(registro);
+            FunctionCounter.builder("carrito.cache.peliculas", cachePeliculas, c -> c.estadisticas().aciertosNegativos())
+                    .tag("resultado", "acierto_negativo").register(registro);
+        };
+    }
+
+    private static void contador(MeterRegistry registro, String nombre, String descripcion,
+                                 Statistics estadisticas, ToDoubleFunction<Statistics> valor) {
+        FunctionCounter.builder(nombre, estadisticas, valor).description(descripcion).register(registro);
+    }
+
+    private static void gauge(MeterRegistry registro, String nombre, String estado, MetricasPool metricasPool,
+                              ToDoubleFunction<MetricasPool.Estadisticas> valor) {
+        Gauge.builder(nombre, metricasPool, m -> valor.applyAsDouble(m.estadisticas()))
+                .tag("estado", estado)
+                .register(registro);
+    }
+}
@@ -1,8 +1,14 @@
 package ar.edu.unrn.carrito.config;
 
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -10,15 +16,68 @@ import org.springframework.context.annotation.Configuration;
 public class RabbitMQConfig {
 
     public static final String PELICULA_AGREGADA_QUEUE = "pelicula.agregada.queue";
+    public static final String PELICULA_PRECIO_ACTUALIZADO_QUEUE = "pelicula.precio.actualizado.queue";
+    public static final String PELICULA_AGREGADA_DLQ = PELICULA_AGREGADA_QUEUE + ".dlq";
+    public static final String PELICULA_PRECIO_ACTUALIZADO_DLQ = PELICULA_PRECIO_ACTUALIZADO_QUEUE + ".dlq";
+    public static final String BATCH_CONTAINER_FACTORY = "batchListenerContainerFactory";
+    public static final String CARRITO_EVENTOS_EXCHANGE = "carrito.eventos";
+    public static final String CARRITO_MODIFICADO_ROUTING_KEY = "carrito.modificado";
 
     @Bean
     public Queue peliculaAgregadaQueue() {
         return new Queue(PELICULA_AGREGADA_QUEUE, true);
     }
 
+    @Bean
+    public Queue peliculaPrecioActualizadoQueue() {
+        return new Queue(PELICULA_PRECIO_ACTUALIZADO_QUEUE, true);
+    }
+
+    // Colas de mensajes muertos del consumidor por lotes: reciben los mensajes que no se pudieron
+    // procesar ni solos, para que no se pierdan ni vuelvan a envenenar el lote
+    @Bean
+    @ConditionalOnProperty(name = "carrito.catalogo.batch.habilitado", havingValue = "true")
+    public Queue peliculaAgregadaDlq() {
+        return new Queue(PELICULA_AGREGADA_DLQ, true);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "carrito.catalogo.batch.habilitado", havingValue = "true")
+    public Queue peliculaPrecioActualizadoDlq() {
+        return new Queue(PELICULA_PRECIO_ACTUALIZADO_DLQ, true);
+    }
+
+    // Los servicios interesados (recomendaciones, checkout) enlazan sus propias colas
+    @Bean
+    @ConditionalOnProperty(name = "carrito.salida.habilitado", havingValue = "true")
+    public TopicExchange carritoEventosExchange() {
+        return new TopicExchange(CARRITO_EVENTOS_EXCHANGE, true, false);
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
-}
 
+    // Entrega al listener lotes de hasta 'tamanio' mensajes, o los que hayan llegado en 'espera-ms'.
+    // El ack (modo AUTO) se envía una sola vez por lote cuando el listener termina; si el listener
+    // lanza una excepción el lote completo se rechaza y se reencola.
+    // El configurer de Spring Boot aplica spring.rabbitmq.listener.* y, con
+    // spring.threads.virtual.enabled=true, el executor de virtual threads.
+    @Bean(name = BATCH_CONTAINER_FACTORY)
+    @ConditionalOnProperty(name = "carrito.catalogo.batch.habilitado", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${carrito.catalogo.batch.tamanio:200}") int tamanio,
+            @Value("${carrito.catalogo.batch.espera-ms:500}") long esperaMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tamanio);
+        factory.setPrefetchCount(tamanio);
+        factory.setReceiveTimeout(esperaMs);
+        return factory;
+    }
+}
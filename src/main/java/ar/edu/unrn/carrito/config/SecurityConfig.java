@@ -1,12 +1,23 @@
 package ar.edu.unrn.carrito.config;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
@@ -14,6 +25,8 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.net.MalformedURLException;
+import java.net.URI;
 import java.util.Arrays;
 
 @Configuration
@@ -23,7 +36,7 @@ public class SecurityConfig {
     private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, CacheAutenticacionJwt cacheAutenticacionJwt) throws Exception {
         logger.info("🔒 Configurando SecurityFilterChain con Keycloak OAuth2");
 
         http
@@ -34,13 +47,16 @@ public class SecurityConfig {
                         // Endpoints públicos (para health checks, actuator, etc.)
                         .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers("/error").permitAll()
+                        // Exportaciones y tareas de administración - solo ROLE_ADMIN
+                        .requestMatchers("/admin/**").hasRole("ADMIN")
                         // Endpoints del carrito - requieren estar autenticado con ROLE_ADMIN o ROLE_CLIENT
                         .requestMatchers("/**").hasAnyRole("ADMIN", "CLIENT")
                         // Todos los demás endpoints requieren autenticación
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter()))
+                        // La cache decodifica y convierte cada token una sola vez hasta su vencimiento
+                        .jwt(jwt -> jwt.authenticationManager(cacheAutenticacionJwt))
                 );
 
         return http.build();
@@ -97,27 +113,42 @@ public class SecurityConfig {
     @Bean
     public JwtAuthenticationConverter jwtAuthenticationConverter() {
         JwtAuthenticationConverter authenticationConverter = new JwtAuthenticationConverter();
+        // Extraer roles desde realm_access.roles, reutilizando las listas de autoridades
+        authenticationConverter.setJwtGrantedAuthoritiesConverter(new AutoridadesPorRoles());
+        return authenticationConverter;
+    }
 
-        authenticationConverter.setJwtGrantedAuthoritiesConverter(jwt -> {
-            // Extraer roles desde realm_access.roles
-            var realmAccess = jwt.getClaimAsMap("realm_access");
-            if (realmAccess != null && realmAccess.containsKey("roles")) {
-                var roles = (java.util.List<String>) realmAccess.get("roles");
-                logger.debug("Roles encontrados: {}", roles);
-                return roles.stream()
-                        .map(role -> {
-                            // Si el rol ya tiene el prefijo ROLE_, no lo duplicamos
-                            String finalRole = role.startsWith("ROLE_") ? role : "ROLE_" + role;
-                            return new org.springframework.security.core.authority.SimpleGrantedAuthority(finalRole);
-                        })
-                        .collect(java.util.stream.Collectors.toList());
-            }
+    // El JWK set de Keycloak se cachea localmente y se refresca en segundo plano antes de
+    // vencer, así ninguna request espera la descarga de las claves salvo la primera
+    @Bean
+    public JwtDecoder jwtDecoder(
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+            @Value("${carrito.seguridad.jwks.ttl-ms:300000}") long ttlMs,
+            @Value("${carrito.seguridad.jwks.refresco-anticipado-ms:30000}") long refrescoAnticipadoMs)
+            throws MalformedURLException {
+        JWKSource<SecurityContext> jwkSource = JWKSourceBuilder.<SecurityContext>create(URI.create(jwkSetUri).toURL())
+                .cache(ttlMs, JWKSourceBuilder.DEFAULT_CACHE_REFRESH_TIMEOUT)
+                .refreshAheadCache(refrescoAnticipadoMs, true)
+                .build();
 
-            logger.warn("No se encontraron roles en realm_access");
-            return java.util.Collections.emptyList();
-        });
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // Los claims (exp, nbf, iss) los valida Spring con los validadores del decoder
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> { });
 
-        return authenticationConverter;
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return decoder;
+    }
+
+    @Bean
+    public CacheAutenticacionJwt cacheAutenticacionJwt(JwtDecoder jwtDecoder,
+                                                       JwtAuthenticationConverter jwtAuthenticationConverter,
+                                                       @Value("${carrito.seguridad.cache-jwt.capacidad:10000}") int capacidad) {
+        JwtAuthenticationProvider provider = new JwtAuthenticationProvider(jwtDecoder);
+        provider.setJwtAuthenticationConverter(jwtAuthenticationConverter);
+        return new CacheAutenticacionJwt(provider::authenticate, capacidad);
     }
 
     @Bean
@@ -0,0 +1,18 @@
+package ar.edu.unrn.carrito.messaging;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// mensajeId crece por usuario en el orden de las mutaciones: permite descartar duplicados
+// (la entrega es al menos una vez) y mensajes fuera de orden. totalCentavos es el mismo total
+// en centavos, para consumidores que leen los números JSON como double
+public record CarritoModificadoEvent(
+    Long mensajeId,
+    String usuarioId,
+    Long carritoId,
+    Integer cantidadItems,
+    BigDecimal total,
+    Long totalCentavos,
+    LocalDateTime fecha
+) {
+}
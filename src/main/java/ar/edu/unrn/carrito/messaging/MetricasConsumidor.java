@@ -0,0 +1,60 @@
+package ar.edu.unrn.carrito.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Métricas de los consumidores de películas de RabbitMQ: mensajes procesados, inválidos
+ * y fallidos (el throughput es la tasa de carrito.catalogo.mensajes), latencia de
+ * procesamiento de cada entrega y tamaño de los lotes.
+ */
+class MetricasConsumidor {
+
+    static final String CONTADOR_MENSAJES = "carrito.catalogo.mensajes";
+    static final String TIMER_PROCESAMIENTO = "carrito.catalogo.procesamiento";
+    static final String RESUMEN_LOTE = "carrito.catalogo.lote";
+
+    private final MeterRegistry registro;
+    private final Counter procesados;
+    private final Counter invalidos;
+    private final Counter fallidos;
+    private final Timer procesamiento;
+    private final DistributionSummary lote;
+
+    MetricasConsumidor(MeterRegistry registro, String modo) {
+        this.registro = registro;
+        this.procesados = contador(registro, modo, "procesado");
+        this.invalidos = contador(registro, modo, "invalido");
+        this.fallidos = contador(registro, modo, "error");
+        this.procesamiento = Timer.builder(TIMER_PROCESAMIENTO)
+                .description("Tiempo de procesamiento de cada entrega de RabbitMQ")
+                .tag("modo", modo)
+                .publishPercentileHistogram()
+                .register(registro);
+        this.lote = DistributionSummary.builder(RESUMEN_LOTE)
+                .description("Mensajes por entrega de RabbitMQ")
+                .tag("modo", modo)
+                .register(registro);
+    }
+
+    private static Counter contador(MeterRegistry registro, String modo, String resultado) {
+        return Counter.builder(CONTADOR_MENSAJES)
+                .description("Mensajes de películas consumidos por resultado")
+                .tags("modo", modo, "resultado", resultado)
+                .register(registro);
+    }
+
+    Timer.Sample iniciar(int mensajes) {
+        lote.record(mensajes);
+        return Timer.start(registro);
+    }
+
+    void finalizar(Timer.Sample muestra, int procesados, int invalidos, int fallidos) {
+        muestra.stop(procesamiento);
+        this.procesados.increment(procesados);
+        this.invalidos.increment(invalidos);
+        this.fallidos.increment(fallidos);
+    }
+}
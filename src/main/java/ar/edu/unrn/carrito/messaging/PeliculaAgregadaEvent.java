@@ -1,9 +1,21 @@
 package ar.edu.unrn.carrito.messaging;
 
+import ar.edu.unrn.carrito.model.Monto;
+
+// precioCentavos es el precio exacto; precio (double) queda por compatibilidad con los
+// productores que todavía no envían centavos
 public record PeliculaAgregadaEvent(
     Long id,
     String nombre,
-    double precio
+    double precio,
+    Long precioCentavos
 ) {
-}
 
+    public PeliculaAgregadaEvent(Long id, String nombre, double precio) {
+        this(id, nombre, precio, null);
+    }
+
+    public Monto precioExacto() {
+        return precioCentavos != null ? Monto.deCentavos(precioCentavos) : Monto.redondeado(precio);
+    }
+}
@@ -0,0 +1,149 @@
+package ar.edu.unrn.carrito.messaging;
+
+import ar.edu.unrn.carrito.config.RabbitMQConfig;
+import ar.edu.unrn.carrito.model.Monto;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.service.CarritoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Consumidor por lotes de películas agregadas al catálogo y de cambios de precio.
+ * Reemplaza a {@link PeliculaMessageConsumer} cuando carrito.catalogo.batch.habilitado=true.
+ * Cada mensaje se deserializa por separado para que uno inválido no descarte el lote. Si el
+ * lote falla al guardarse, sus mensajes se procesan uno por uno; los inválidos y los que
+ * fallan solos van a la cola de mensajes muertos (.dlq) de su cola. Solo si ese envío falla
+ * la excepción sale del listener y el lote completo se reencola (el procesamiento es idempotente).
+ */
+@Component
+@ConditionalOnProperty(name = "carrito.catalogo.batch.habilitado", havingValue = "true")
+public class PeliculaBatchMessageConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeliculaBatchMessageConsumer.class);
+
+    // Envía el mensaje original a una cola de mensajes muertos y lanza excepción si no puede
+    @FunctionalInterface
+    interface ColaMuertos {
+        void enviar(String cola, Message mensaje);
+    }
+
+    // Un mensaje válido del lote junto con su contenido ya deserializado
+    private record Entrega<T>(Message mensaje, T contenido) {
+    }
+
+    private final CarritoService carritoService;
+    private final ObjectMapper objectMapper;
+    private final ColaMuertos colaMuertos;
+    private final MetricasConsumidor metricas;
+
+    @Autowired
+    public PeliculaBatchMessageConsumer(CarritoService carritoService, ObjectMapper objectMapper,
+                                        MeterRegistry meterRegistry, RabbitTemplate rabbitTemplate) {
+        this(carritoService, objectMapper, meterRegistry, rabbitTemplate::send);
+    }
+
+    PeliculaBatchMessageConsumer(CarritoService carritoService, ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry, ColaMuertos colaMuertos) {
+        this.carritoService = carritoService;
+        this.objectMapper = objectMapper;
+        this.colaMuertos = colaMuertos;
+        this.metricas = new MetricasConsumidor(meterRegistry, "lote");
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.PELICULA_AGREGADA_QUEUE,
+            containerFactory = RabbitMQConfig.BATCH_CONTAINER_FACTORY)
+    public void recibirPeliculasAgregadas(List<Message> mensajes) {
+        logger.info("📥 Lote recibido de RabbitMQ - {} mensajes", mensajes.size());
+        var muestra = metricas.iniciar(mensajes.size());
+
+        List<Entrega<Pelicula>> entregas = new ArrayList<>(mensajes.size());
+        for (Message mensaje : mensajes) {
+            try {
+                PeliculaAgregadaEvent event = objectMapper.readValue(mensaje.getBody(), PeliculaAgregadaEvent.class);
+                entregas.add(new Entrega<>(mensaje, new Pelicula(event.id(), event.nombre(), event.precioExacto())));
+            } catch (Exception e) {
+                logger.error("❌ Mensaje de película inválido: {}", e.getMessage(), e);
+                colaMuertos.enviar(RabbitMQConfig.PELICULA_AGREGADA_DLQ, mensaje);
+            }
+        }
+
+        int invalidos = mensajes.size() - entregas.size();
+        try {
+            int agregadas = carritoService.agregarPeliculasAlCatalogo(
+                    entregas.stream().map(Entrega::contenido).toList());
+            logger.info("✅ Lote procesado: {} películas nuevas de {} válidas", agregadas, entregas.size());
+            metricas.finalizar(muestra, entregas.size(), invalidos, 0);
+        } catch (Exception e) {
+            logger.warn("Falló el lote de {} películas, se procesan una por una: {}", entregas.size(), e.getMessage());
+            int fallidos = procesarUnoPorUno(entregas, RabbitMQConfig.PELICULA_AGREGADA_DLQ, pelicula ->
+                    carritoService.agregarPeliculaAlCatalogo(pelicula.id(), pelicula.nombre(), pelicula.precio()));
+            metricas.finalizar(muestra, entregas.size() - fallidos, invalidos, fallidos);
+        }
+    }
+
+    // Un lote de cambios de precio se aplica con una única actualización del catálogo;
+    // si el mismo lote trae varios precios de una película, vale el último
+    @RabbitListener(queues = RabbitMQConfig.PELICULA_PRECIO_ACTUALIZADO_QUEUE,
+            containerFactory = RabbitMQConfig.BATCH_CONTAINER_FACTORY)
+    public void recibirPreciosActualizados(List<Message> mensajes) {
+        logger.info("📥 Lote de cambios de precio recibido de RabbitMQ - {} mensajes", mensajes.size());
+        var muestra = metricas.iniciar(mensajes.size());
+
+        List<Entrega<Map.Entry<Long, Monto>>> entregas = new ArrayList<>(mensajes.size());
+        for (Message mensaje : mensajes) {
+            try {
+                var event = objectMapper.readValue(mensaje.getBody(), PeliculaPrecioActualizadoEvent.class);
+                entregas.add(new Entrega<>(mensaje, Map.entry(Objects.requireNonNull(event.id(), "id"), event.precioExacto())));
+            } catch (Exception e) {
+                logger.error("❌ Mensaje de cambio de precio inválido: {}", e.getMessage(), e);
+                colaMuertos.enviar(RabbitMQConfig.PELICULA_PRECIO_ACTUALIZADO_DLQ, mensaje);
+            }
+        }
+
+        Map<Long, Monto> precios = new LinkedHashMap<>();
+        entregas.forEach(entrega -> precios.put(entrega.contenido().getKey(), entrega.contenido().getValue()));
+        int invalidos = mensajes.size() - entregas.size();
+        try {
+            int carritos = carritoService.actualizarPreciosCatalogo(precios);
+            logger.info("✅ Lote de precios procesado: {} películas, {} carritos corregidos", precios.size(), carritos);
+            metricas.finalizar(muestra, entregas.size(), invalidos, 0);
+        } catch (Exception e) {
+            logger.warn("Falló el lote de {} cambios de precio, se procesan uno por uno: {}", entregas.size(), e.getMessage());
+            // En el orden del lote, así el último precio de cada película sigue siendo el que queda
+            int fallidos = procesarUnoPorUno(entregas, RabbitMQConfig.PELICULA_PRECIO_ACTUALIZADO_DLQ, precio ->
+                    carritoService.actualizarPreciosCatalogo(Map.of(precio.getKey(), precio.getValue())));
+            metricas.finalizar(muestra, entregas.size() - fallidos, invalidos, fallidos);
+        }
+    }
+
+    // Procesa cada mensaje por separado y manda a la cola de mensajes muertos los que fallan.
+    // Devuelve la cantidad de mensajes fallidos
+    private <T> int procesarUnoPorUno(List<Entrega<T>> entregas, String cola, Consumer<T> procesar) {
+        int fallidos = 0;
+        for (Entrega<T> entrega : entregas) {
+            try {
+                procesar.accept(entrega.contenido());
+            } catch (Exception e) {
+                logger.error("❌ Mensaje enviado a {}: {}", cola, e.getMessage(), e);
+                colaMuertos.enviar(cola, entrega.mensaje());
+                fallidos++;
+            }
+        }
+        return fallidos;
+    }
+}
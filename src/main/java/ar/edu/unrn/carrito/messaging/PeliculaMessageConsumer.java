@@ -1,31 +1,57 @@
 package ar.edu.unrn.carrito.messaging;
 
+import ar.edu.unrn.carrito.config.RabbitMQConfig;
 import ar.edu.unrn.carrito.service.CarritoService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 @Component
+@ConditionalOnProperty(name = "carrito.catalogo.batch.habilitado", havingValue = "false", matchIfMissing = true)
 public class PeliculaMessageConsumer {
 
     private static final Logger logger = LoggerFactory.getLogger(PeliculaMessageConsumer.class);
     private final CarritoService carritoService;
+    private final MetricasConsumidor metricas;
 
-    public PeliculaMessageConsumer(CarritoService carritoService) {
+    public PeliculaMessageConsumer(CarritoService carritoService, MeterRegistry meterRegistry) {
         this.carritoService = carritoService;
+        this.metricas = new MetricasConsumidor(meterRegistry, "individual");
     }
 
     @RabbitListener(queues = "pelicula.agregada.queue")
     public void recibirPeliculaAgregada(PeliculaAgregadaEvent event) {
         logger.info("📥 Mensaje recibido de RabbitMQ - Película: id={}, nombre={}, precio={}",
-                     event.id(), event.nombre(), event.precio());
+                     event.id(), event.nombre(), event.precioExacto());
 
+        var muestra = metricas.iniciar(1);
         try {
-            carritoService.agregarPeliculaAlCatalogo(event.id(), event.nombre(), event.precio());
+            carritoService.agregarPeliculaAlCatalogo(event.id(), event.nombre(), event.precioExacto());
             logger.info("✅ Película agregada al catálogo exitosamente: {}", event.nombre());
+            metricas.finalizar(muestra, 1, 0, 0);
         } catch (Exception e) {
             logger.error("❌ Error al procesar película desde RabbitMQ: {}", e.getMessage(), e);
+            metricas.finalizar(muestra, 0, 0, 1);
+        }
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.PELICULA_PRECIO_ACTUALIZADO_QUEUE)
+    public void recibirPrecioActualizado(PeliculaPrecioActualizadoEvent event) {
+        logger.info("📥 Cambio de precio recibido de RabbitMQ - Película: id={}, precio={}", event.id(), event.precioExacto());
+
+        var muestra = metricas.iniciar(1);
+        try {
+            int carritos = carritoService.actualizarPreciosCatalogo(Map.of(event.id(), event.precioExacto()));
+            logger.info("✅ Precio de la película {} actualizado, {} carritos corregidos", event.id(), carritos);
+            metricas.finalizar(muestra, 1, 0, 0);
+        } catch (Exception e) {
+            logger.error("❌ Error al procesar cambio de precio desde RabbitMQ: {}", e.getMessage(), e);
+            metricas.finalizar(muestra, 0, 0, 1);
         }
     }
 }
@@ -0,0 +1,19 @@
+package ar.edu.unrn.carrito.messaging;
+
+import ar.edu.unrn.carrito.model.Monto;
+
+// Igual que en PeliculaAgregadaEvent: precioCentavos es exacto y tiene prioridad sobre precio
+public record PeliculaPrecioActualizadoEvent(
+    Long id,
+    double precio,
+    Long precioCentavos
+) {
+
+    public PeliculaPrecioActualizadoEvent(Long id, double precio) {
+        this(id, precio, null);
+    }
+
+    public Monto precioExacto() {
+        return precioCentavos != null ? Monto.deCentavos(precioCentavos) : Monto.redondeado(precio);
+    }
+}
@@ -0,0 +1,226 @@
+package ar.edu.unrn.carrito.messaging;
+
+import ar.edu.unrn.carrito.model.MensajeSalida;
+import ar.edu.unrn.carrito.model.Monto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Publica los mensajes de la bandeja de salida (mensajes_salida) en lotes.
+ *
+ * Ningún paso retiene bloqueos mientras se espera al broker: una transacción corta reclama
+ * los primeros mensajes libres en orden de id (UPDATE condicional de reclamado_hasta y
+ * reclamado_por), la publicación y la espera de confirmaciones se hacen fuera de toda
+ * transacción, y otra transacción corta borra el lote confirmado con un único DELETE. Si la
+ * publicación falla el reclamo se libera y el lote se reintenta en la próxima pasada; si el
+ * relay se cae, otro nodo lo reclama cuando vence el plazo. La entrega es al menos una vez.
+ */
+public class RelayBandejaSalida implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelayBandejaSalida.class);
+
+    static final String ERROR_TAMANIO_LOTE_INVALIDO = "El tamaño de lote del relay debe ser mayor a cero";
+    static final String HEADER_USUARIO_ID = "usuarioId";
+
+    // Publica el lote completo en orden y lanza excepción si el broker no lo confirma
+    @FunctionalInterface
+    public interface Publicador {
+        void publicar(List<CarritoModificadoEvent> eventos);
+    }
+
+    private final EntityManagerFactory emf;
+    private final Publicador publicador;
+    private final int tamanioLote;
+    private final Duration duracionReclamo;
+    private final Counter publicados;
+    private final Counter fallos;
+    private final ScheduledExecutorService planificador;
+
+    // duracionReclamo debe superar lo que tarda en publicarse y confirmarse un lote
+    public RelayBandejaSalida(EntityManagerFactory emf, Publicador publicador, int tamanioLote, Duration intervalo,
+                              Duration duracionReclamo, MeterRegistry registro) {
+        assertTamanioLoteValido(tamanioLote);
+        this.emf = emf;
+        this.publicador = publicador;
+        this.tamanioLote = tamanioLote;
+        this.duracionReclamo = duracionReclamo;
+        this.publicados = Counter.builder("carrito.salida.publicados")
+                .description("Mensajes de la bandeja de salida publicados y confirmados")
+                .register(registro);
+        this.fallos = Counter.builder("carrito.salida.fallos")
+                .description("Lotes de la bandeja de salida que no se pudieron publicar")
+                .register(registro);
+        this.planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "bandeja-salida-relay");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.planificador.scheduleWithFixedDelay(this::publicarPendientesSeguro,
+                intervalo.toMillis(), intervalo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void assertTamanioLoteValido(int tamanioLote) {
+        if (tamanioLote <= 0) {
+            throw new RuntimeException(ERROR_TAMANIO_LOTE_INVALIDO);
+        }
+    }
+
+    // Publica en el exchange con un canal dedicado y espera las confirmaciones del lote
+    // (requiere spring.rabbitmq.publisher-confirm-type=simple). El header usuarioId permite
+    // repartir por usuario con un exchange de hash consistente sin perder el orden.
+    public static Publicador rabbit(RabbitTemplate rabbitTemplate, String exchange, String routingKey,
+                                    Duration timeoutConfirmacion) {
+        return eventos -> rabbitTemplate.invoke(operaciones -> {
+            for (CarritoModificadoEvent evento : eventos) {
+                operaciones.convertAndSend(exchange, routingKey, evento, mensaje -> {
+                    mensaje.getMessageProperties().setHeader(HEADER_USUARIO_ID, evento.usuarioId());
+                    return mensaje;
+                });
+            }
+            operaciones.waitForConfirmsOrDie(timeoutConfirmacion.toMillis());
+            return null;
+        });
+    }
+
+    // Publica lotes hasta vaciar la bandeja o hasta el primer fallo; devuelve los mensajes publicados
+    public int publicarPendientes() {
+        int total = 0;
+        while (true) {
+            int publicadosLote = publicarLote();
+            total += publicadosLote;
+            if (publicadosLote < tamanioLote) {
+                return total;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        planificador.shutdown();
+        try {
+            planificador.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int publicarLote() {
+        String reclamo = UUID.randomUUID().toString();
+        List<MensajeSalida> mensajes = reclamarLote(reclamo);
+        if (mensajes.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            publicador.publicar(mensajes.stream().map(RelayBandejaSalida::toEvento).toList());
+        } catch (RuntimeException e) {
+            fallos.increment();
+            liberarReclamoSeguro(reclamo);
+            throw e;
+        }
+        borrarLote(reclamo, mensajes);
+        publicados.increment(mensajes.size());
+        return mensajes.size();
+    }
+
+    // Transacción corta: marca como propios los primeros mensajes libres (o con el reclamo vencido).
+    // El UPDATE repite la condición, así que si otro relay los reclamó antes no se pisan.
+    private List<MensajeSalida> reclamarLote(String reclamo) {
+        LocalDateTime ahora = LocalDateTime.now();
+        return enTransaccion(em -> {
+            List<Long> libres = em.createQuery("""
+                            SELECT m.id FROM MensajeSalida m
+                            WHERE m.reclamadoHasta IS NULL OR m.reclamadoHasta < :ahora
+                            ORDER BY m.id""", Long.class)
+                    .setParameter("ahora", ahora)
+                    .setMaxResults(tamanioLote)
+                    .getResultList();
+            if (libres.isEmpty()) {
+                return List.of();
+            }
+            em.createQuery("""
+                            UPDATE MensajeSalida m SET m.reclamadoHasta = :hasta, m.reclamadoPor = :reclamo
+                            WHERE m.id IN :ids AND (m.reclamadoHasta IS NULL OR m.reclamadoHasta < :ahora)""")
+                    .setParameter("hasta", ahora.plus(duracionReclamo))
+                    .setParameter("reclamo", reclamo)
+                    .setParameter("ids", libres)
+                    .setParameter("ahora", ahora)
+                    .executeUpdate();
+            return em.createQuery("FROM MensajeSalida m WHERE m.reclamadoPor = :reclamo ORDER BY m.id",
+                            MensajeSalida.class)
+                    .setParameter("reclamo", reclamo)
+                    .getResultList();
+        });
+    }
+
+    // Solo borra lo que sigue reclamado por esta pasada: si el reclamo venció y otro relay
+    // lo tomó, ese relay lo vuelve a publicar (al menos una vez) y lo borra él
+    private void borrarLote(String reclamo, List<MensajeSalida> mensajes) {
+        enTransaccion(em -> em.createQuery("DELETE FROM MensajeSalida m WHERE m.id IN :ids AND m.reclamadoPor = :reclamo")
+                .setParameter("ids", mensajes.stream().map(MensajeSalida::id).toList())
+                .setParameter("reclamo", reclamo)
+                .executeUpdate());
+    }
+
+    // Sin liberar, el lote se reintentaría recién al vencer el reclamo
+    private void liberarReclamoSeguro(String reclamo) {
+        try {
+            enTransaccion(em -> em.createQuery("""
+                            UPDATE MensajeSalida m SET m.reclamadoHasta = NULL, m.reclamadoPor = NULL
+                            WHERE m.reclamadoPor = :reclamo""")
+                    .setParameter("reclamo", reclamo)
+                    .executeUpdate());
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo liberar el reclamo {}, el lote se reintenta al vencer: {}", reclamo, e.getMessage());
+        }
+    }
+
+    private <T> T enTransaccion(Function<EntityManager, T> trabajo) {
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            try {
+                T resultado = trabajo.apply(em);
+                transaction.commit();
+                return resultado;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static CarritoModificadoEvent toEvento(MensajeSalida mensaje) {
+        return new CarritoModificadoEvent(mensaje.id(), mensaje.usuarioId(), mensaje.carritoId(),
+                mensaje.cantidadItems(), mensaje.total(),
+                mensaje.total() == null ? null : Monto.de(mensaje.total()).centavos(), mensaje.fecha());
+    }
+
+    private void publicarPendientesSeguro() {
+        try {
+            int publicadosPasada = publicarPendientes();
+            if (publicadosPasada > 0) {
+                logger.debug("Bandeja de salida: {} mensajes publicados", publicadosPasada);
+            }
+        } catch (Exception e) {
+            logger.error("❌ Error al publicar la bandeja de salida, se reintenta en la próxima pasada: {}",
+                    e.getMessage(), e);
+        }
+    }
+}
@@ -7,22 +7,30 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Getter(AccessLevel.PRIVATE)
 @Setter(AccessLevel.PRIVATE)
 @Entity
-@Table(name = "carritos")
+@Table(name = "carritos", indexes = {
+        @Index(name = "idx_carritos_fecha_modificacion", columnList = "fecha_modificacion")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = Carrito.UK_USUARIO, columnNames = {"usuario_id"})
+})
 public class Carrito {
 
     static final String ERROR_CARRITO_VACIO = "No se puede procesar un carrito vacío";
     static final String ERROR_PELICULA_NULA = "La película no puede ser nula";
     static final String ERROR_CANTIDAD_INVALIDA = "La cantidad debe ser mayor a cero";
     static final String ERROR_USUARIO_ID_NULO = "El ID de usuario no puede ser nulo";
+    // Un único carrito por usuario: dos nodos que lo crean en paralelo chocan en este índice
+    public static final String UK_USUARIO = "uk_carritos_usuario";
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,6 +49,35 @@ public class Carrito {
     @Column(name = "fecha_modificacion")
     private LocalDateTime fechaModificacion = LocalDateTime.now();
 
+    // Totales desnormalizados que mantiene cada mutación: permiten armar el resumen
+    // del carrito sin cargar items_carrito ni peliculas
+    @Convert(converter = MontoConverter.class)
+    @Column(name = "total", precision = 12, scale = 2)
+    private Monto total = Monto.CERO;
+
+    @Column(name = "cantidad_items")
+    private Integer cantidadItems = 0;
+
+    // Se incrementa con cada modificación: junto con el id forma la versión fuerte del
+    // carrito (ETag), que se puede consultar sin cargar items ni películas
+    @Column(name = "revision")
+    private Long revision = 0L;
+
+    // Control de concurrencia optimista entre nodos: un UPDATE con versión vieja falla en lugar
+    // de pisar los cambios de otra transacción. Es distinta de la revisión porque Hibernate la
+    // incrementa al sincronizar, no en cada mutación del carrito en memoria.
+    @Version
+    @Column(name = "version")
+    private Long versionOptimista;
+
+    // Índice por id de película; se reconstruye bajo demanda a partir de itemsPrivados
+    @Transient
+    private transient IndiceItemsPorPelicula indice;
+
+    // Solo en carritos reconstruidos desde su log: eventos de las mutaciones todavía no guardados
+    @Transient
+    private transient List<EventoCarrito> eventosPendientes;
+
     // Constructor protegido para JPA
     protected Carrito() {
         // Los campos ya se inicializan con sus valores por defecto
@@ -61,48 +98,115 @@ public class Carrito {
     public void agregarPelicula(Pelicula pelicula, Integer cantidad) {
         assertPeliculaNoNula(pelicula);
         assertCantidadValida(cantidad);
+        asegurarTotales();
 
         ItemCarrito itemExistente = buscarItemPorPelicula(pelicula.id());
 
         if (itemExistente != null) {
             itemExistente.incrementarCantidad(cantidad);
         } else {
-            itemsPrivados.add(new ItemCarrito(pelicula, cantidad));
+            ItemCarrito nuevoItem = new ItemCarrito(pelicula, cantidad);
+            itemsPrivados.add(nuevoItem);
+            indice().agregar(nuevoItem.peliculaId(), nuevoItem);
         }
 
-        actualizarFechaModificacion();
+        acumular(pelicula.precio().por(cantidad), cantidad);
+        registrarModificacion();
+        registrarEvento(EventoCarrito.Tipo.AGREGADA, pelicula.id(), cantidad);
     }
 
     public void actualizarCantidadPelicula(Long peliculaId, Integer nuevaCantidad) {
         assertCantidadValida(nuevaCantidad);
+        asegurarTotales();
 
         ItemCarrito item = buscarItemPorPelicula(peliculaId);
         if (item != null) {
+            Monto subtotalAnterior = item.calcularSubtotal();
+            int cantidadAnterior = item.cantidad();
             item.actualizarCantidad(nuevaCantidad);
-            actualizarFechaModificacion();
+            acumular(item.calcularSubtotal().restar(subtotalAnterior), nuevaCantidad - cantidadAnterior);
+            registrarModificacion();
+            registrarEvento(EventoCarrito.Tipo.CANTIDAD_ACTUALIZADA, peliculaId, nuevaCantidad);
         }
     }
 
     public void eliminarPelicula(Long peliculaId) {
-        itemsPrivados.removeIf(item -> item.esDeLaPelicula(peliculaId));
-        actualizarFechaModificacion();
+        asegurarTotales();
+        ItemCarrito item = buscarItemPorPelicula(peliculaId);
+        if (item != null) {
+            acumular(item.calcularSubtotal().negar(), -item.cantidad());
+            // Por identidad: equals de ItemCarrito compara películas y puede inicializar proxies
+            itemsPrivados.removeIf(existente -> existente == item);
+            indice().eliminar(peliculaId);
+            registrarModificacion();
+            registrarEvento(EventoCarrito.Tipo.ELIMINADA, peliculaId, null);
+        }
     }
 
     public void vaciar() {
         itemsPrivados.clear();
-        actualizarFechaModificacion();
+        indice().limpiar();
+        total = Monto.CERO;
+        cantidadItems = 0;
+        registrarModificacion();
+        registrarEvento(EventoCarrito.Tipo.VACIADO, null, null);
     }
 
-    public BigDecimal calcularTotal() {
-        return itemsPrivados.stream()
-                .map(ItemCarrito::calcularSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Monto calcularTotal() {
+        asegurarTotales();
+        return total;
     }
 
     public Integer cantidadTotalItems() {
-        return itemsPrivados.stream()
-                .mapToInt(ItemCarrito::cantidad)
-                .sum();
+        asegurarTotales();
+        return cantidadItems;
+    }
+
+    // Recalcula los totales desde los items y corrige los valores guardados si no coinciden.
+    // Devuelve true si hubo que corregirlos.
+    public boolean repararTotales() {
+        Monto totalRecalculado = Monto.CERO;
+        int cantidadRecalculada = 0;
+        for (ItemCarrito item : itemsPrivados) {
+            totalRecalculado = totalRecalculado.sumar(item.calcularSubtotal());
+            cantidadRecalculada += item.cantidad();
+        }
+
+        boolean consistente = total != null && total.equals(totalRecalculado)
+                && cantidadItems != null && cantidadItems == cantidadRecalculada;
+        if (!consistente) {
+            total = totalRecalculado;
+            cantidadItems = cantidadRecalculada;
+            registrarModificacion();
+        }
+        return !consistente;
+    }
+
+    // Reemplaza las películas de los items por sus copias con precio actualizado y recalcula
+    // los totales. Devuelve true si los totales cambiaron (la versión cambia con ellos).
+    public boolean actualizarPrecios(Map<Long, Pelicula> peliculas) {
+        boolean contieneAlguna = false;
+        for (ItemCarrito item : itemsPrivados) {
+            Pelicula actualizada = peliculas.get(item.peliculaId());
+            if (actualizada != null) {
+                item.reemplazarPelicula(actualizada);
+                contieneAlguna = true;
+            }
+        }
+        boolean totalesCambiaron = repararTotales();
+        if (contieneAlguna) {
+            registrarEvento(EventoCarrito.Tipo.PRECIOS_ACTUALIZADOS, null, null);
+        }
+        return totalesCambiaron;
+    }
+
+    // Ids de las películas del carrito, sin inicializar los proxies de las películas
+    public Set<Long> peliculaIds() {
+        Set<Long> ids = new HashSet<>();
+        for (ItemCarrito item : itemsPrivados) {
+            ids.add(item.peliculaId());
+        }
+        return ids;
     }
 
     public boolean estaVacio() {
@@ -127,13 +231,143 @@ public class Carrito {
         return usuarioId;
     }
 
+    // Null mientras el carrito no tiene fila propia ni eventos en el log
+    public Long id() {
+        return id;
+    }
+
+    /**
+     * Copia desacoplada del estado que se persiste (ids, versión optimista, totales e items),
+     * para escribirla sin compartir este carrito con quien lo sigue modificando.
+     */
+    public Carrito copiar() {
+        Carrito copia = new Carrito(usuarioId);
+        copia.id = id;
+        copia.versionOptimista = versionOptimista;
+        copia.fechaCreacion = fechaCreacion;
+        copia.fechaModificacion = fechaModificacion;
+        copia.total = total;
+        copia.cantidadItems = cantidadItems;
+        copia.revision = revision;
+        for (ItemCarrito item : itemsPrivados) {
+            copia.itemsPrivados.add(item.copiar());
+        }
+        return copia;
+    }
+
+    /**
+     * Toma de una copia ya persistida los ids generados y la versión optimista, para que el
+     * próximo merge actualice sus filas en lugar de insertarlas otra vez. Los items se
+     * corresponden por película: los agregados después de la copia siguen sin id.
+     */
+    public void adoptarIdentidad(Carrito persistido) {
+        this.id = persistido.id;
+        this.versionOptimista = persistido.versionOptimista;
+        for (ItemCarrito item : persistido.itemsPrivados) {
+            ItemCarrito actual = buscarItemPorPelicula(item.peliculaId());
+            if (actual != null) {
+                actual.adoptarId(item);
+            }
+        }
+    }
+
+    /**
+     * Reconstruye el carrito de un usuario desde su último snapshot (puede ser null) y los
+     * eventos posteriores, en orden de secuencia. El id lo asigna el almacén (el del primer
+     * evento del log) y la revisión queda en la secuencia del último evento aplicado, así la
+     * versión (ETag) es estable y cambia con cada evento del log.
+     * A partir de acá las mutaciones del carrito se registran como eventos pendientes.
+     */
+    public static Carrito reconstruir(String usuarioId, Long carritoId, SnapshotCarrito snapshot,
+                                      List<EventoCarrito> eventos, Map<Long, Pelicula> peliculas) {
+        Carrito carrito = new Carrito(usuarioId);
+        carrito.id = carritoId;
+        long secuencia = 0;
+        if (snapshot != null) {
+            snapshot.cantidades().forEach((peliculaId, cantidad) -> {
+                Pelicula pelicula = peliculas.get(peliculaId);
+                if (pelicula != null) {
+                    carrito.agregarPelicula(pelicula, cantidad);
+                }
+            });
+            carrito.fechaCreacion = snapshot.fechaCreacion();
+            carrito.fechaModificacion = snapshot.fechaModificacion();
+            secuencia = snapshot.secuencia();
+        } else if (!eventos.isEmpty()) {
+            carrito.fechaCreacion = eventos.get(0).fecha();
+        }
+        for (EventoCarrito evento : eventos) {
+            carrito.aplicar(evento, peliculas);
+            carrito.fechaModificacion = evento.fecha();
+            secuencia = evento.secuencia();
+        }
+        carrito.revision = secuencia;
+        carrito.eventosPendientes = new ArrayList<>();
+        return carrito;
+    }
+
+    // Devuelve los eventos de las mutaciones hechas desde la reconstrucción (o la extracción
+    // anterior), en orden. Vacío si el carrito no registra eventos.
+    public List<EventoCarrito> extraerEventos() {
+        if (eventosPendientes == null || eventosPendientes.isEmpty()) {
+            return List.of();
+        }
+        List<EventoCarrito> eventos = eventosPendientes;
+        eventosPendientes = new ArrayList<>();
+        return eventos;
+    }
+
+    // Una película que ya no está en el catálogo no se puede reconstruir: sus eventos se ignoran
+    private void aplicar(EventoCarrito evento, Map<Long, Pelicula> peliculas) {
+        switch (evento.tipo()) {
+            case AGREGADA -> {
+                Pelicula pelicula = peliculas.get(evento.peliculaId());
+                if (pelicula != null) {
+                    agregarPelicula(pelicula, evento.cantidad());
+                }
+            }
+            case CANTIDAD_ACTUALIZADA -> actualizarCantidadPelicula(evento.peliculaId(), evento.cantidad());
+            case ELIMINADA -> eliminarPelicula(evento.peliculaId());
+            case VACIADO -> vaciar();
+            case PRECIOS_ACTUALIZADOS -> {
+                // Los precios ya son los del catálogo
+            }
+            case CREADO -> {
+                // Solo abre el log: el carrito arranca vacío
+            }
+        }
+    }
+
+    private void registrarEvento(EventoCarrito.Tipo tipo, Long peliculaId, Integer cantidad) {
+        if (eventosPendientes != null) {
+            eventosPendientes.add(new EventoCarrito(usuarioId, tipo, peliculaId, cantidad, fechaModificacion));
+        }
+    }
+
+    LocalDateTime fechaCreacion() {
+        return fechaCreacion;
+    }
+
+    LocalDateTime fechaModificacion() {
+        return fechaModificacion;
+    }
+
+    // Versión fuerte del carrito: cambia con cualquier modificación de items o totales
+    public String version() {
+        return version(id, revision());
+    }
+
+    public static String version(Long id, long revision) {
+        return id + "-" + revision;
+    }
+
     // Métodos para mapear a DTOs siguiendo el patrón del catálogo
     public CarritoInfo toCarritoInfo() {
         return new CarritoInfo(
                 id,
                 usuarioId,
                 cantidadTotalItems(),
-                calcularTotal()
+                calcularTotal().aBigDecimal()
         );
     }
 
@@ -147,17 +381,36 @@ public class Carrito {
                 usuarioId,
                 itemsInfo,
                 cantidadTotalItems(),
-                calcularTotal(),
+                calcularTotal().aBigDecimal(),
                 fechaCreacion,
                 fechaModificacion
         );
     }
 
     private ItemCarrito buscarItemPorPelicula(Long peliculaId) {
-        return itemsPrivados.stream()
-                .filter(item -> item.esDeLaPelicula(peliculaId))
-                .findFirst()
-                .orElse(null);
+        if (peliculaId == null) {
+            return null;
+        }
+        return indice().buscar(peliculaId);
+    }
+
+    private IndiceItemsPorPelicula indice() {
+        if (indice == null) {
+            indice = new IndiceItemsPorPelicula(itemsPrivados.size());
+            for (ItemCarrito item : itemsPrivados) {
+                indice.agregar(item.peliculaId(), item);
+            }
+        }
+        return indice;
+    }
+
+    // Al cargar o sincronizar con la BD Hibernate puede reemplazar los elementos de
+    // itemsPrivados (por ejemplo, el merge sustituye items nuevos por sus copias persistidas)
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    private void invalidarIndice() {
+        indice = null;
     }
 
     private void assertPeliculaNoNula(Pelicula pelicula) {
@@ -172,15 +425,33 @@ public class Carrito {
         }
     }
 
-    private void actualizarFechaModificacion() {
+    private void acumular(Monto importe, int cantidad) {
+        total = total.sumar(importe);
+        cantidadItems += cantidad;
+    }
+
+    // Carritos guardados antes de existir las columnas de totales las tienen en null
+    private void asegurarTotales() {
+        if (total == null || cantidadItems == null) {
+            repararTotales();
+        }
+    }
+
+    private void registrarModificacion() {
         this.fechaModificacion = LocalDateTime.now();
+        this.revision = revision() + 1;
+    }
+
+    // Carritos guardados antes de existir la columna la tienen en null
+    private long revision() {
+        return revision == null ? 0 : revision;
     }
 
     @Override
     public String toString() {
         return "Carrito{" +
                 "id=" + id +
-                ", cantidadItems=" + itemsPrivados.size() +
+                ", cantidadItems=" + cantidadItems +
                 ", total=" + calcularTotal() +
                 ", fechaCreacion=" + fechaCreacion +
                 '}';
@@ -0,0 +1,130 @@
+package ar.edu.unrn.carrito.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento del log append-only de un carrito: una fila por mutación, numerada con una
+ * secuencia por usuario. El índice único (usuario_id, secuencia) hace fallar el insert
+ * de dos nodos que escriben el mismo evento siguiente.
+ */
+@NoArgsConstructor(access = AccessLevel.PROTECTED, force = true)
+@Getter(AccessLevel.PRIVATE)
+@Setter(AccessLevel.PRIVATE)
+@Entity
+@Table(name = "eventos_carrito", indexes = {
+        @Index(name = "idx_eventos_carrito_pelicula", columnList = "pelicula_id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = EventoCarrito.UK_USUARIO_SECUENCIA, columnNames = {"usuario_id", "secuencia"})
+})
+public class EventoCarrito {
+
+    static final String ERROR_SECUENCIA_INVALIDA = "La secuencia del evento debe ser mayor a cero";
+    static final String ERROR_EVENTO_YA_NUMERADO = "El evento ya tiene secuencia";
+    public static final String UK_USUARIO_SECUENCIA = "uk_eventos_carrito_usuario_secuencia";
+
+    // PRECIOS_ACTUALIZADOS no modifica los items: marca en el log que cambió el total, así la
+    // versión del carrito cambia aunque los precios se tomen del catálogo al reconstruir.
+    // CREADO abre el log de un carrito nuevo y tampoco modifica items: su id es el del carrito
+    public enum Tipo { AGREGADA, CANTIDAD_ACTUALIZADA, ELIMINADA, VACIADO, PRECIOS_ACTUALIZADOS, CREADO }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "usuario_id", nullable = false)
+    private String usuarioId;
+
+    @Column(nullable = false)
+    private Long secuencia;
+
+    // VARCHAR y no el ENUM nativo de MariaDB: agregar un tipo de evento no requiere migración
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 24)
+    private Tipo tipo;
+
+    @Column(name = "pelicula_id")
+    private Long peliculaId;
+
+    private Integer cantidad;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    EventoCarrito(String usuarioId, Tipo tipo, Long peliculaId, Integer cantidad, LocalDateTime fecha) {
+        this.usuarioId = usuarioId;
+        this.tipo = tipo;
+        this.peliculaId = peliculaId;
+        this.cantidad = cantidad;
+        this.fecha = fecha;
+    }
+
+    // Primer evento del log de un carrito nuevo. El almacén lo inserta antes de aplicar la
+    // mutación, así el carrito ya tiene su id cuando la mutación arma el resultado
+    public static EventoCarrito creado(String usuarioId) {
+        return new EventoCarrito(usuarioId, Tipo.CREADO, null, null, LocalDateTime.now());
+    }
+
+    // La asigna el almacén al agregar el evento al log, a continuación del último evento leído
+    public void numerar(long secuencia) {
+        assertSinNumerar();
+        assertSecuenciaValida(secuencia);
+        this.secuencia = secuencia;
+    }
+
+    private void assertSinNumerar() {
+        if (this.secuencia != null) {
+            throw new RuntimeException(ERROR_EVENTO_YA_NUMERADO);
+        }
+    }
+
+    private void assertSecuenciaValida(long secuencia) {
+        if (secuencia <= 0) {
+            throw new RuntimeException(ERROR_SECUENCIA_INVALIDA);
+        }
+    }
+
+    // Lo asigna la base al insertar; el del primer evento del log es el id del carrito
+    public Long id() {
+        return id;
+    }
+
+    public Tipo tipo() {
+        return tipo;
+    }
+
+    public Long peliculaId() {
+        return peliculaId;
+    }
+
+    public Integer cantidad() {
+        return cantidad;
+    }
+
+    public long secuencia() {
+        return secuencia;
+    }
+
+    public LocalDateTime fecha() {
+        return fecha;
+    }
+
+    @Override
+    public String toString() {
+        return "EventoCarrito{" +
+                "usuarioId='" + usuarioId + '\'' +
+                ", secuencia=" + secuencia +
+                ", tipo=" + tipo +
+                ", peliculaId=" + peliculaId +
+                ", cantidad=" + cantidad +
+                '}';
+    }
+}
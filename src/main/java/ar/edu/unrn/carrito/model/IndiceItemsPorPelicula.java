@@ -0,0 +1,110 @@
+package ar.edu.unrn.carrito.model;
+
+import java.util.Arrays;
+
+/**
+ * Índice de items del carrito por id de película, con claves long primitivas.
+ *
+ * Tabla hash de direccionamiento abierto con sondeo lineal: las búsquedas no
+ * boxean el id ni recorren la lista de items. Al eliminar se desplazan hacia atrás
+ * las entradas siguientes del mismo cluster, así no hacen falta lápidas.
+ * Un slot está vacío cuando su valor es null.
+ */
+final class IndiceItemsPorPelicula {
+
+    private static final int CAPACIDAD_MINIMA = 8;
+
+    private long[] claves;
+    private ItemCarrito[] valores;
+    private int tamanio;
+
+    IndiceItemsPorPelicula(int cantidadEsperada) {
+        int capacidad = CAPACIDAD_MINIMA;
+        // Factor de carga máximo de 0.5
+        while (capacidad < cantidadEsperada * 2) {
+            capacidad <<= 1;
+        }
+        claves = new long[capacidad];
+        valores = new ItemCarrito[capacidad];
+    }
+
+    ItemCarrito buscar(long peliculaId) {
+        int mascara = valores.length - 1;
+        for (int i = posicion(peliculaId, mascara); valores[i] != null; i = (i + 1) & mascara) {
+            if (claves[i] == peliculaId) {
+                return valores[i];
+            }
+        }
+        return null;
+    }
+
+    void agregar(long peliculaId, ItemCarrito item) {
+        if ((tamanio + 1) * 2 > valores.length) {
+            redimensionar(valores.length << 1);
+        }
+        int mascara = valores.length - 1;
+        int i = posicion(peliculaId, mascara);
+        while (valores[i] != null) {
+            if (claves[i] == peliculaId) {
+                valores[i] = item;
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[i] = peliculaId;
+        valores[i] = item;
+        tamanio++;
+    }
+
+    void eliminar(long peliculaId) {
+        int mascara = valores.length - 1;
+        int i = posicion(peliculaId, mascara);
+        while (valores[i] != null && claves[i] != peliculaId) {
+            i = (i + 1) & mascara;
+        }
+        if (valores[i] == null) {
+            return;
+        }
+
+        // Desplazamiento hacia atrás: cada entrada del cluster que no quede antes
+        // de su posición ideal ocupa el hueco dejado por la eliminada
+        int hueco = i;
+        for (int j = (hueco + 1) & mascara; valores[j] != null; j = (j + 1) & mascara) {
+            int ideal = posicion(claves[j], mascara);
+            if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                claves[hueco] = claves[j];
+                valores[hueco] = valores[j];
+                hueco = j;
+            }
+        }
+        valores[hueco] = null;
+        tamanio--;
+    }
+
+    void limpiar() {
+        Arrays.fill(valores, null);
+        tamanio = 0;
+    }
+
+    int tamanio() {
+        return tamanio;
+    }
+
+    private void redimensionar(int nuevaCapacidad) {
+        long[] clavesAnteriores = claves;
+        ItemCarrito[] valoresAnteriores = valores;
+        claves = new long[nuevaCapacidad];
+        valores = new ItemCarrito[nuevaCapacidad];
+        tamanio = 0;
+        for (int i = 0; i < valoresAnteriores.length; i++) {
+            if (valoresAnteriores[i] != null) {
+                agregar(clavesAnteriores[i], valoresAnteriores[i]);
+            }
+        }
+    }
+
+    private static int posicion(long peliculaId, int mascara) {
+        long h = peliculaId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+}
@@ -7,17 +7,18 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.math.BigDecimal;
-
 @NoArgsConstructor(access = AccessLevel.PROTECTED, force = true)
 @Getter(AccessLevel.PRIVATE)
 @Setter(AccessLevel.PRIVATE)
 @Entity
-@Table(name = "items_carrito")
+@Table(name = "items_carrito", indexes = {
+        @Index(name = "idx_items_carrito_carrito_pelicula", columnList = "carrito_id, pelicula_id")
+})
 public class ItemCarrito {
 
     static final String ERROR_PELICULA_NULA = "La película no puede ser nula";
     static final String ERROR_CANTIDAD_INVALIDA = "La cantidad debe ser mayor a cero";
+    static final String ERROR_PELICULA_DISTINTA = "La película de reemplazo debe ser la misma película del item";
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,6 +28,10 @@ public class ItemCarrito {
     @JoinColumn(name = "pelicula_id", nullable = false)
     private Pelicula pelicula;
 
+    // Copia de solo lectura de la FK: permite indexar el item sin inicializar el proxy de la película
+    @Column(name = "pelicula_id", insertable = false, updatable = false)
+    private Long peliculaId;
+
     @Column(nullable = false)
     private Integer cantidad;
 
@@ -35,6 +40,7 @@ public class ItemCarrito {
         assertCantidadValida(cantidad);
 
         this.pelicula = pelicula;
+        this.peliculaId = pelicula.id();
         this.cantidad = cantidad;
     }
 
@@ -68,12 +74,40 @@ public class ItemCarrito {
         this.cantidad = nuevaCantidad;
     }
 
-    public BigDecimal calcularSubtotal() {
-        return pelicula.precio().multiply(BigDecimal.valueOf(cantidad));
+    public Monto calcularSubtotal() {
+        return pelicula.precio().por(cantidad);
     }
 
     public boolean esDeLaPelicula(Long peliculaId) {
-        return pelicula.id().equals(peliculaId);
+        return this.peliculaId.equals(peliculaId);
+    }
+
+    long peliculaId() {
+        return peliculaId;
+    }
+
+    // Misma película con otro precio (p. ej. la copia actualizada del catálogo)
+    void reemplazarPelicula(Pelicula actualizada) {
+        assertPeliculaNoNula(actualizada);
+        if (!esDeLaPelicula(actualizada.id())) {
+            throw new RuntimeException(ERROR_PELICULA_DISTINTA);
+        }
+        this.pelicula = actualizada;
+    }
+
+    // Mismo id, película y cantidad, sin compartir el item con el carrito en memoria
+    ItemCarrito copiar() {
+        ItemCarrito copia = new ItemCarrito();
+        copia.id = id;
+        copia.pelicula = pelicula;
+        copia.peliculaId = peliculaId;
+        copia.cantidad = cantidad;
+        return copia;
+    }
+
+    // Toma el id generado al persistir la copia del item
+    void adoptarId(ItemCarrito persistido) {
+        this.id = persistido.id;
     }
 
     // Método para mapear a DTO siguiendo el patrón del catálogo
@@ -81,9 +115,9 @@ public class ItemCarrito {
         return new ItemCarritoInfo(
                 pelicula.id(),
                 pelicula.nombre(),
-                pelicula.precio(),
+                pelicula.precio().aBigDecimal(),
                 cantidad,
-                calcularSubtotal()
+                calcularSubtotal().aBigDecimal()
         );
     }
 
@@ -0,0 +1,85 @@
+package ar.edu.unrn.carrito.model;
+
+import ar.edu.unrn.carrito.web.CarritoInfo;
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Mensaje de la bandeja de salida (outbox): el estado de un carrito después de una mutación,
+ * guardado en la misma transacción que la mutación. El relay los reclama por un tiempo
+ * (reclamadoHasta/reclamadoPor), los publica en orden de id y los borra una vez confirmados
+ * por el broker.
+ */
+@NoArgsConstructor(access = AccessLevel.PROTECTED, force = true)
+@Getter(AccessLevel.PRIVATE)
+@Setter(AccessLevel.PRIVATE)
+@Entity
+@Table(name = "mensajes_salida")
+public class MensajeSalida {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "usuario_id", nullable = false)
+    private String usuarioId;
+
+    // En el almacén por eventos, el id del primer evento del log del carrito
+    @Column(name = "carrito_id")
+    private Long carritoId;
+
+    @Column(name = "cantidad_items", nullable = false)
+    private Integer cantidadItems;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal total;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    // Null mientras ningún relay lo reclamó; vencido el plazo otro relay puede reclamarlo
+    @Column(name = "reclamado_hasta")
+    private LocalDateTime reclamadoHasta;
+
+    @Column(name = "reclamado_por", length = 36)
+    private String reclamadoPor;
+
+    public MensajeSalida(Carrito carrito) {
+        CarritoInfo info = carrito.toCarritoInfo();
+        this.usuarioId = info.usuarioId();
+        this.carritoId = info.id();
+        this.cantidadItems = info.cantidadItems();
+        this.total = info.total();
+        this.fecha = LocalDateTime.now();
+    }
+
+    public Long id() {
+        return id;
+    }
+
+    public String usuarioId() {
+        return usuarioId;
+    }
+
+    public Long carritoId() {
+        return carritoId;
+    }
+
+    public Integer cantidadItems() {
+        return cantidadItems;
+    }
+
+    public BigDecimal total() {
+        return total;
+    }
+
+    public LocalDateTime fecha() {
+        return fecha;
+    }
+}
@@ -0,0 +1,98 @@
+package ar.edu.unrn.carrito.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Importe en centavos. Toda la aritmética de precios y totales del carrito se hace con
+ * {@code long} y operaciones exactas (un desbordamiento lanza excepción en lugar de dar la
+ * vuelta); a BigDecimal solo se convierte en el borde: DTOs, eventos y columnas DECIMAL.
+ */
+public record Monto(long centavos) implements Comparable<Monto> {
+
+    static final String ERROR_MONTO_NULO = "El monto no puede ser nulo";
+    static final String ERROR_PRECISION = "El monto no puede tener más de dos decimales";
+    static final String ERROR_DESBORDE = "El monto excede el rango admitido";
+
+    static final int DECIMALES = 2;
+
+    public static final Monto CERO = new Monto(0);
+
+    public static Monto deCentavos(long centavos) {
+        return centavos == 0 ? CERO : new Monto(centavos);
+    }
+
+    // Exacto: un valor con más de dos decimales significativos es un error, no se redondea
+    public static Monto de(BigDecimal valor) {
+        assertValorNoNulo(valor);
+        if (valor.stripTrailingZeros().scale() > DECIMALES) {
+            throw new RuntimeException(ERROR_PRECISION);
+        }
+        try {
+            return deCentavos(valor.movePointRight(DECIMALES).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new RuntimeException(ERROR_DESBORDE, e);
+        }
+    }
+
+    // Para precios que llegan como double (contrato anterior de los eventos): se redondea al centavo
+    public static Monto redondeado(double valor) {
+        return de(BigDecimal.valueOf(valor).setScale(DECIMALES, RoundingMode.HALF_EVEN));
+    }
+
+    private static void assertValorNoNulo(BigDecimal valor) {
+        if (valor == null) {
+            throw new RuntimeException(ERROR_MONTO_NULO);
+        }
+    }
+
+    public Monto sumar(Monto otro) {
+        try {
+            return deCentavos(Math.addExact(centavos, otro.centavos));
+        } catch (ArithmeticException e) {
+            throw new RuntimeException(ERROR_DESBORDE, e);
+        }
+    }
+
+    public Monto restar(Monto otro) {
+        try {
+            return deCentavos(Math.subtractExact(centavos, otro.centavos));
+        } catch (ArithmeticException e) {
+            throw new RuntimeException(ERROR_DESBORDE, e);
+        }
+    }
+
+    public Monto por(int cantidad) {
+        try {
+            return deCentavos(Math.multiplyExact(centavos, cantidad));
+        } catch (ArithmeticException e) {
+            throw new RuntimeException(ERROR_DESBORDE, e);
+        }
+    }
+
+    public Monto negar() {
+        try {
+            return deCentavos(Math.negateExact(centavos));
+        } catch (ArithmeticException e) {
+            throw new RuntimeException(ERROR_DESBORDE, e);
+        }
+    }
+
+    public boolean esNegativo() {
+        return centavos < 0;
+    }
+
+    public BigDecimal aBigDecimal() {
+        return BigDecimal.valueOf(centavos, DECIMALES);
+    }
+
+    @Override
+    public int compareTo(Monto otro) {
+        return Long.compare(centavos, otro.centavos);
+    }
+
+    @Override
+    public String toString() {
+        return aBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,21 @@
+package ar.edu.unrn.carrito.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+// Las columnas de importes siguen siendo DECIMAL con escala 2; en las entidades son Monto
+@Converter
+public class MontoConverter implements AttributeConverter<Monto, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Monto monto) {
+        return monto == null ? null : monto.aBigDecimal();
+    }
+
+    @Override
+    public Monto convertToEntityAttribute(BigDecimal valor) {
+        return valor == null ? null : Monto.de(valor);
+    }
+}
@@ -1,6 +1,7 @@
 package ar.edu.unrn.carrito.model;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
@@ -29,10 +30,15 @@ public class Pelicula {
     @Column(nullable = false)
     private String nombre;
 
+    @Convert(converter = MontoConverter.class)
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal precio;
+    private Monto precio;
 
     public Pelicula(Long id, String nombre, BigDecimal precio) {
+        this(id, nombre, precio == null ? null : Monto.de(precio));
+    }
+
+    public Pelicula(Long id, String nombre, Monto precio) {
         assertIdNoNulo(id);
         assertNombreValido(nombre);
         assertPrecioValido(precio);
@@ -50,10 +56,20 @@ public class Pelicula {
         return nombre;
     }
 
-    public BigDecimal precio() {
+    public Monto precio() {
         return precio;
     }
 
+    // Devuelve true si el precio cambió
+    public boolean actualizarPrecio(Monto nuevoPrecio) {
+        assertPrecioValido(nuevoPrecio);
+        if (precio.equals(nuevoPrecio)) {
+            return false;
+        }
+        this.precio = nuevoPrecio;
+        return true;
+    }
+
     private void assertIdNoNulo(Long id) {
         if (id == null) {
             throw new RuntimeException(ERROR_ID_NULO);
@@ -66,11 +82,11 @@ public class Pelicula {
         }
     }
 
-    private void assertPrecioValido(BigDecimal precio) {
+    private void assertPrecioValido(Monto precio) {
         if (precio == null) {
             throw new RuntimeException(ERROR_PRECIO_NULO);
         }
-        if (precio.compareTo(BigDecimal.ZERO) < 0) {
+        if (precio.esNegativo()) {
             throw new RuntimeException(ERROR_PRECIO_NEGATIVO);
         }
     }
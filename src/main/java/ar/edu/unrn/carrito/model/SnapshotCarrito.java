@@ -0,0 +1,125 @@
+package ar.edu.unrn.carrito.model;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OrderColumn;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estado compacto del carrito de un usuario hasta el evento {@code secuencia} de su log:
+ * las cantidades por película, una fila de snapshot_items por película en el orden del
+ * carrito (los precios se toman del catálogo al reconstruir, igual que al aplicar los
+ * eventos), y el id del carrito, que sobrevive a la compactación de los eventos anteriores.
+ * El índice de pelicula_id en snapshot_items encuentra los snapshots que tienen una película.
+ */
+@NoArgsConstructor(access = AccessLevel.PROTECTED, force = true)
+@Getter(AccessLevel.PRIVATE)
+@Setter(AccessLevel.PRIVATE)
+@Entity
+@Table(name = "snapshots_carrito")
+public class SnapshotCarrito {
+
+    @Id
+    @Column(name = "usuario_id")
+    private String usuarioId;
+
+    // Null en los snapshots guardados antes de que se registrara el id
+    @Column(name = "carrito_id")
+    private Long carritoId;
+
+    @Column(nullable = false)
+    private Long secuencia;
+
+    @ElementCollection
+    @CollectionTable(name = "snapshot_items", joinColumns = @JoinColumn(name = "usuario_id"),
+            indexes = @Index(name = "idx_snapshot_items_pelicula", columnList = "pelicula_id"))
+    @OrderColumn(name = "posicion")
+    private List<Item> items = new ArrayList<>();
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_modificacion", nullable = false)
+    private LocalDateTime fechaModificacion;
+
+    private SnapshotCarrito(String usuarioId, Long carritoId, long secuencia, List<Item> items,
+                            LocalDateTime fechaCreacion, LocalDateTime fechaModificacion) {
+        this.usuarioId = usuarioId;
+        this.carritoId = carritoId;
+        this.secuencia = secuencia;
+        this.items = items;
+        this.fechaCreacion = fechaCreacion;
+        this.fechaModificacion = fechaModificacion;
+    }
+
+    public static SnapshotCarrito de(Carrito carrito, long secuencia) {
+        List<Item> items = new ArrayList<>();
+        for (ItemCarrito item : carrito.items()) {
+            items.add(new Item(item.peliculaId(), item.cantidad()));
+        }
+        return new SnapshotCarrito(carrito.usuarioId(), carrito.id(), secuencia, items,
+                carrito.fechaCreacion(), carrito.fechaModificacion());
+    }
+
+    // Reemplaza el estado si el otro snapshot es posterior; devuelve true si lo reemplazó
+    public boolean actualizar(SnapshotCarrito posterior) {
+        if (posterior.secuencia <= secuencia) {
+            return false;
+        }
+        this.carritoId = posterior.carritoId;
+        this.secuencia = posterior.secuencia;
+        this.items.clear();
+        this.items.addAll(posterior.items);
+        this.fechaModificacion = posterior.fechaModificacion;
+        return true;
+    }
+
+    public Map<Long, Integer> cantidades() {
+        Map<Long, Integer> cantidades = new LinkedHashMap<>();
+        for (Item item : items) {
+            cantidades.put(item.peliculaId(), item.cantidad());
+        }
+        return cantidades;
+    }
+
+    public String usuarioId() {
+        return usuarioId;
+    }
+
+    public Long carritoId() {
+        return carritoId;
+    }
+
+    public long secuencia() {
+        return secuencia;
+    }
+
+    LocalDateTime fechaCreacion() {
+        return fechaCreacion;
+    }
+
+    LocalDateTime fechaModificacion() {
+        return fechaModificacion;
+    }
+
+    @Embeddable
+    record Item(@Column(name = "pelicula_id", nullable = false) Long peliculaId,
+                @Column(nullable = false) Integer cantidad) {
+    }
+}
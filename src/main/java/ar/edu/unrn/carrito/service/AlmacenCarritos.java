@@ -0,0 +1,45 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Persistencia alternativa de los carritos activos: en lugar de leer y fusionar las filas de
+ * carritos e items en cada request, el servicio le delega las lecturas y mutaciones.
+ */
+public interface AlmacenCarritos {
+
+    // Aplica una mutación sobre el carrito del usuario, creándolo si no existe
+    <T> T mutar(String usuarioId, Function<Carrito, T> mutacion);
+
+    // Lee el carrito del usuario sin crearlo; vacío si el usuario no tiene carrito
+    <T> Optional<T> leer(String usuarioId, Function<Carrito, T> lectura);
+
+    // Aplica precios nuevos del catálogo a los carritos que el almacén mantiene con totales
+    // propios; los guardados como filas los corrige el servicio. Devuelve los carritos actualizados.
+    int actualizarPrecios(Map<Long, Pelicula> peliculas);
+
+    // Ids de las filas de carritos que el almacén tiene en memoria: el barrido de abandonados no
+    // las borra, porque el almacén las volvería a escribir con su estado en memoria
+    default Set<Long> carritosResidentes() {
+        return Set.of();
+    }
+
+    // Para los almacenes que guardan los carritos fuera de la tabla carritos: usuarios cuyo carrito
+    // no cambia desde antes de limite, en orden de usuario y posteriores a desdeUsuario
+    default List<String> usuariosAbandonados(LocalDateTime limite, String desdeUsuario, int maximo) {
+        return List.of();
+    }
+
+    // Borra los carritos de esos usuarios que siguen sin cambios desde antes de limite; devuelve los borrados
+    default int eliminarAbandonados(List<String> usuarios, LocalDateTime limite) {
+        return 0;
+    }
+}
@@ -0,0 +1,30 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.MensajeSalida;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Escribe en la bandeja de salida (mensajes_salida) el estado de cada carrito modificado,
+ * con el EntityManager de la mutación para que el mensaje se confirme o se descarte junto
+ * con ella. Deshabilitada no escribe nada: sin relay la tabla solo crecería.
+ */
+public class BandejaSalida {
+
+    private final boolean habilitada;
+
+    public BandejaSalida(boolean habilitada) {
+        this.habilitada = habilitada;
+    }
+
+    public static BandejaSalida deshabilitada() {
+        return new BandejaSalida(false);
+    }
+
+    // Debe invocarse dentro de la transacción que modifica el carrito, después de aplicar la mutación
+    public void registrar(EntityManager em, Carrito carrito) {
+        if (habilitada) {
+            em.persist(new MensajeSalida(carrito));
+        }
+    }
+}
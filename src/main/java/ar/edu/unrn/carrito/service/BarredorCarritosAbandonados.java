@@ -0,0 +1,339 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.web.CarritoDetalle;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archiva y elimina los carritos sin modificaciones desde hace más de {@code ttl}.
+ *
+ * Recorre los carritos abandonados por id en lotes de {@code tamanioLote}. Cada lote se
+ * agrega como un miembro gzip de NDJSON (un CarritoDetalle por línea) al segmento del
+ * barrido, se fuerza a disco y recién entonces se borra con dos DELETE masivos (items y
+ * carritos) en una transacción. Un carrito modificado entre la lectura y el borrado no
+ * cumple la condición de fecha del DELETE y sobrevive; el segmento puede entonces tener
+ * una copia vieja de él, igual que si el proceso se corta entre el archivo y el borrado.
+ *
+ * Los carritos que el almacén alternativo tiene en memoria (write-behind) no se borran, y
+ * los que guarda fuera de la tabla carritos (log de eventos y snapshots) se barren en una
+ * segunda pasada por usuario, con la fecha de su último evento.
+ *
+ * Entre lotes espera {@code pausaEntreLotes}, y mientras {@code cargaAlta} indique presión
+ * sobre la base (p. ej. requests esperando conexión) no empieza el lote siguiente.
+ */
+public class BarredorCarritosAbandonados {
+
+    private static final Logger logger = LoggerFactory.getLogger(BarredorCarritosAbandonados.class);
+
+    static final String ERROR_TAMANIO_LOTE_INVALIDO = "El tamaño de lote del barrido debe ser mayor a cero";
+    static final String ERROR_TTL_INVALIDO = "El TTL de los carritos abandonados debe ser positivo";
+
+    static final String PREFIJO_SEGMENTO = "carritos-abandonados-";
+    static final String EXTENSION_SEGMENTO = ".ndjson.gz";
+    private static final DateTimeFormatter FORMATO_SEGMENTO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final EntityManagerFactory emf;
+    private final AlmacenCarritos almacen;
+    private final ObjectWriter writer;
+    private final Path directorio;
+    private final Duration ttl;
+    private final int tamanioLote;
+    private final Duration pausaEntreLotes;
+    private final BooleanSupplier cargaAlta;
+    private final Clock reloj;
+
+    private final Counter archivados;
+    private final Counter eliminados;
+    private final Timer lotes;
+    private final AtomicLong procesadosBarridoActual = new AtomicLong();
+    // Un barrido a la vez. ReentrantLock y no synchronized: el barrido duerme y usa JDBC con el
+    // candado tomado, y un monitor fijaría el carrier del virtual thread todo ese tiempo
+    private final ReentrantLock barrido = new ReentrantLock();
+
+    // almacen puede ser null: sin almacén alternativo todos los carritos son filas de carritos
+    public BarredorCarritosAbandonados(EntityManagerFactory emf, AlmacenCarritos almacen, ObjectMapper objectMapper,
+                                       Path directorio, Duration ttl, int tamanioLote, Duration pausaEntreLotes,
+                                       BooleanSupplier cargaAlta, MeterRegistry registro) {
+        this(emf, almacen, objectMapper, directorio, ttl, tamanioLote, pausaEntreLotes, cargaAlta, registro,
+                Clock.systemDefaultZone());
+    }
+
+    BarredorCarritosAbandonados(EntityManagerFactory emf, AlmacenCarritos almacen, ObjectMapper objectMapper,
+                                Path directorio, Duration ttl, int tamanioLote, Duration pausaEntreLotes,
+                                BooleanSupplier cargaAlta, MeterRegistry registro, Clock reloj) {
+        assertTtlValido(ttl);
+        assertTamanioLoteValido(tamanioLote);
+        this.emf = emf;
+        this.almacen = almacen;
+        this.writer = objectMapper.writer()
+                .withRootValueSeparator((String) null)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.directorio = directorio;
+        this.ttl = ttl;
+        this.tamanioLote = tamanioLote;
+        this.pausaEntreLotes = pausaEntreLotes;
+        this.cargaAlta = cargaAlta;
+        this.reloj = reloj;
+        this.archivados = Counter.builder("carrito.barrido.archivados")
+                .description("Carritos abandonados escritos en segmentos de archivo")
+                .register(registro);
+        this.eliminados = Counter.builder("carrito.barrido.eliminados")
+                .description("Carritos abandonados eliminados de la base")
+                .register(registro);
+        this.lotes = Timer.builder("carrito.barrido.lote")
+                .description("Duración de archivar y eliminar un lote de carritos abandonados")
+                .register(registro);
+        registro.gauge("carrito.barrido.progreso", procesadosBarridoActual);
+    }
+
+    private void assertTtlValido(Duration ttl) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new RuntimeException(ERROR_TTL_INVALIDO);
+        }
+    }
+
+    private void assertTamanioLoteValido(int tamanioLote) {
+        if (tamanioLote <= 0) {
+            throw new RuntimeException(ERROR_TAMANIO_LOTE_INVALIDO);
+        }
+    }
+
+    // Ejecuta un barrido completo y devuelve la cantidad de carritos eliminados.
+    // Los ids se buscan con el límite fijado al empezar, así el barrido termina aunque
+    // otros carritos crucen el TTL mientras corre. Cada lote usa sus propios EntityManager
+    // y no retiene ninguno (ni su conexión) durante las pausas ni al escribir el segmento.
+    public int barrer() {
+        barrido.lock();
+        try {
+            return barrerHasta(LocalDateTime.now(reloj).minus(ttl));
+        } finally {
+            barrido.unlock();
+        }
+    }
+
+    private int barrerHasta(LocalDateTime limite) {
+        procesadosBarridoActual.set(0);
+        int eliminadosBarrido = 0;
+
+        try (var segmento = new Segmento()) {
+            long ultimoId = 0;
+            while (true) {
+                esperarCargaBaja();
+                List<Long> ids = siguientesIds(limite, ultimoId);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                ultimoId = ids.get(ids.size() - 1);
+                List<Long> aBarrer = sinResidentes(ids);
+                if (!aBarrer.isEmpty()) {
+                    eliminadosBarrido += barrerLote(segmento, () -> cargarDetalles(aBarrer),
+                            () -> eliminarLote(aBarrer, limite));
+                }
+                procesadosBarridoActual.addAndGet(ids.size());
+                logger.info("🧹 Barrido de carritos abandonados: {} archivados, {} eliminados hasta el id {}",
+                        procesadosBarridoActual.get(), eliminadosBarrido, ultimoId);
+                pausar(pausaEntreLotes);
+            }
+
+            // Los carritos que el almacén guarda fuera de la tabla carritos (log de eventos)
+            String ultimoUsuario = "";
+            while (almacen != null) {
+                esperarCargaBaja();
+                List<String> usuarios = almacen.usuariosAbandonados(limite, ultimoUsuario, tamanioLote);
+                if (usuarios.isEmpty()) {
+                    break;
+                }
+                ultimoUsuario = usuarios.get(usuarios.size() - 1);
+                eliminadosBarrido += barrerLote(segmento,
+                        () -> usuarios.stream()
+                                .flatMap(usuarioId -> almacen.leer(usuarioId, Carrito::toCarritoDetalle).stream())
+                                .toList(),
+                        () -> almacen.eliminarAbandonados(usuarios, limite));
+                procesadosBarridoActual.addAndGet(usuarios.size());
+                logger.info("🧹 Barrido de carritos abandonados: {} archivados, {} eliminados hasta el usuario {}",
+                        procesadosBarridoActual.get(), eliminadosBarrido, ultimoUsuario);
+                pausar(pausaEntreLotes);
+            }
+
+            if (segmento.ruta != null) {
+                logger.info("✅ Barrido terminado: {} carritos eliminados, archivo en {}", eliminadosBarrido, segmento.ruta);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error al escribir el segmento de carritos abandonados", e);
+        }
+        return eliminadosBarrido;
+    }
+
+    // Archiva el lote y recién después lo borra; devuelve los carritos eliminados
+    private int barrerLote(Segmento segmento, Supplier<List<CarritoDetalle>> detalles, IntSupplier eliminar)
+            throws IOException {
+        long inicio = System.nanoTime();
+        archivarLote(detalles.get(), segmento.archivo());
+        int borrados = eliminar.getAsInt();
+        lotes.record(Duration.ofNanos(System.nanoTime() - inicio));
+        eliminados.increment(borrados);
+        return borrados;
+    }
+
+    private List<Long> siguientesIds(LocalDateTime limite, long ultimoId) {
+        try (var em = emf.createEntityManager()) {
+            return em.createQuery("SELECT c.id FROM Carrito c WHERE c.fechaModificacion < :limite " +
+                            "AND c.id > :ultimoId ORDER BY c.id", Long.class)
+                    .setParameter("limite", limite)
+                    .setParameter("ultimoId", ultimoId)
+                    .setMaxResults(tamanioLote)
+                    .getResultList();
+        }
+    }
+
+    // Un carrito que el almacén tiene en memoria no se borra: su fila se volvería a escribir
+    // en el próximo flush. Si se carga en memoria después de este filtro, el flush encuentra
+    // la fila borrada, lo trata como conflicto y el usuario arranca con un carrito nuevo.
+    private List<Long> sinResidentes(List<Long> ids) {
+        if (almacen == null) {
+            return ids;
+        }
+        Set<Long> residentes = almacen.carritosResidentes();
+        return residentes.isEmpty() ? ids : ids.stream().filter(id -> !residentes.contains(id)).toList();
+    }
+
+    private List<CarritoDetalle> cargarDetalles(List<Long> ids) {
+        try (var em = emf.createEntityManager()) {
+            return em.createQuery("SELECT DISTINCT c FROM Carrito c LEFT JOIN FETCH c.itemsPrivados i " +
+                            "LEFT JOIN FETCH i.pelicula WHERE c.id IN :ids ORDER BY c.id", Carrito.class)
+                    .setParameter("ids", ids)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .getResultList()
+                    .stream()
+                    .map(Carrito::toCarritoDetalle)
+                    .toList();
+        }
+    }
+
+    // Un miembro gzip por lote, forzado a disco antes de borrar: gzip admite miembros
+    // concatenados, así el segmento se lee como un único NDJSON comprimido
+    private void archivarLote(List<CarritoDetalle> carritos, FileOutputStream archivo) throws IOException {
+        var gzip = new GZIPOutputStream(sinCerrar(archivo), 64 * 1024);
+        try (JsonGenerator generador = writer.createGenerator(gzip)) {
+            for (CarritoDetalle carrito : carritos) {
+                writer.writeValue(generador, carrito);
+                generador.writeRaw('\n');
+            }
+        }
+        archivo.getFD().sync();
+        archivados.increment(carritos.size());
+    }
+
+    private int eliminarLote(List<Long> ids, LocalDateTime limite) {
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            try {
+                // Primero los items de los carritos que siguen abandonados, después esos carritos
+                em.createNativeQuery("DELETE FROM items_carrito WHERE carrito_id IN " +
+                                "(SELECT id FROM carritos WHERE id IN (:ids) AND fecha_modificacion < :limite)")
+                        .setParameter("ids", ids)
+                        .setParameter("limite", limite)
+                        .executeUpdate();
+                int borrados = em.createNativeQuery("DELETE FROM carritos WHERE id IN (:ids) AND fecha_modificacion < :limite")
+                        .setParameter("ids", ids)
+                        .setParameter("limite", limite)
+                        .executeUpdate();
+                transaction.commit();
+                return borrados;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void esperarCargaBaja() {
+        while (cargaAlta.getAsBoolean()) {
+            pausar(pausaEntreLotes.isZero() ? Duration.ofMillis(100) : pausaEntreLotes);
+        }
+    }
+
+    private static void pausar(Duration pausa) {
+        if (pausa.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(pausa);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Barrido de carritos abandonados interrumpido", e);
+        }
+    }
+
+    // El archivo del barrido se crea con el primer lote: un barrido sin abandonados no deja segmento
+    private final class Segmento implements Closeable {
+        private Path ruta;
+        private FileOutputStream archivo;
+
+        private FileOutputStream archivo() throws IOException {
+            if (archivo == null) {
+                Files.createDirectories(directorio);
+                ruta = directorio.resolve(PREFIJO_SEGMENTO
+                        + LocalDateTime.now(reloj).format(FORMATO_SEGMENTO) + EXTENSION_SEGMENTO);
+                archivo = new FileOutputStream(ruta.toFile(), true);
+            }
+            return archivo;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (archivo != null) {
+                archivo.close();
+            }
+        }
+    }
+
+    // GZIPOutputStream cierra su destino al terminar el miembro; el archivo sigue abierto
+    private static OutputStream sinCerrar(OutputStream destino) {
+        return new FilterOutputStream(destino) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
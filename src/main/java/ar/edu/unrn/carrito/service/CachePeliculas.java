@@ -0,0 +1,202 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Pelicula;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Cache read-through del catálogo local de películas.
+ *
+ * Guarda hasta {@code capacidad} películas desalojando la usada menos recientemente,
+ * y recuerda los ids inexistentes durante {@code ttlNegativoMs} para que ids inválidos
+ * no lleguen a la base de datos. El consumidor de RabbitMQ la mantiene actualizada;
+ * el TTL negativo cubre el caso en que el mensaje lo consume otra instancia.
+ */
+public class CachePeliculas {
+
+    static final String ERROR_CAPACIDAD_INVALIDA = "La capacidad de la cache de películas debe ser mayor a cero";
+    static final String ERROR_TTL_NEGATIVO_INVALIDO = "El TTL negativo de la cache de películas no puede ser negativo";
+
+    private final int capacidad;
+    private final long ttlNegativoNanos;
+    private final Map<Long, Pelicula> peliculas;
+    private final Map<Long, Long> inexistentes;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder aciertosNegativos = new LongAdder();
+
+    public CachePeliculas(int capacidad, long ttlNegativoMs) {
+        assertCapacidadValida(capacidad);
+        assertTtlNegativoValido(ttlNegativoMs);
+        this.capacidad = capacidad;
+        this.ttlNegativoNanos = ttlNegativoMs * 1_000_000;
+        this.peliculas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Pelicula> masAntigua) {
+                return size() > CachePeliculas.this.capacidad;
+            }
+        };
+        this.inexistentes = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> masAntigua) {
+                return size() > CachePeliculas.this.capacidad;
+            }
+        };
+    }
+
+    private void assertCapacidadValida(int capacidad) {
+        if (capacidad <= 0) {
+            throw new RuntimeException(ERROR_CAPACIDAD_INVALIDA);
+        }
+    }
+
+    private void assertTtlNegativoValido(long ttlNegativoMs) {
+        if (ttlNegativoMs < 0) {
+            throw new RuntimeException(ERROR_TTL_NEGATIVO_INVALIDO);
+        }
+    }
+
+    // Devuelve la película cacheada o la carga con el cargador; vacío si no existe
+    public Optional<Pelicula> obtener(Long id, Function<Long, Pelicula> cargador) {
+        lock.lock();
+        try {
+            Pelicula pelicula = peliculas.get(id);
+            if (pelicula != null) {
+                aciertos.increment();
+                return Optional.of(pelicula);
+            }
+            Long vencimiento = inexistentes.get(id);
+            if (vencimiento != null) {
+                if (System.nanoTime() - vencimiento < 0) {
+                    aciertosNegativos.increment();
+                    return Optional.empty();
+                }
+                inexistentes.remove(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // La carga se hace fuera del lock; dos cargas concurrentes del mismo id son inofensivas
+        fallos.increment();
+        Pelicula cargada = cargador.apply(id);
+        lock.lock();
+        try {
+            if (cargada != null) {
+                peliculas.put(id, cargada);
+            } else if (ttlNegativoNanos > 0) {
+                inexistentes.put(id, System.nanoTime() + ttlNegativoNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Optional.ofNullable(cargada);
+    }
+
+    // Versión por lotes de obtener: los ids no cacheados se cargan con una sola llamada al cargador.
+    // Los ids inexistentes no aparecen en el resultado y quedan en la cache negativa.
+    public Map<Long, Pelicula> obtenerTodas(Collection<Long> ids, Function<Set<Long>, Collection<Pelicula>> cargador) {
+        Map<Long, Pelicula> encontradas = new HashMap<>();
+        Set<Long> pendientes = new LinkedHashSet<>();
+        lock.lock();
+        try {
+            long ahora = System.nanoTime();
+            for (Long id : ids) {
+                Pelicula pelicula = peliculas.get(id);
+                if (pelicula != null) {
+                    aciertos.increment();
+                    encontradas.put(id, pelicula);
+                    continue;
+                }
+                Long vencimiento = inexistentes.get(id);
+                if (vencimiento != null && ahora - vencimiento < 0) {
+                    aciertosNegativos.increment();
+                    continue;
+                }
+                inexistentes.remove(id);
+                pendientes.add(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (pendientes.isEmpty()) {
+            return encontradas;
+        }
+
+        fallos.add(pendientes.size());
+        Collection<Pelicula> cargadas = cargador.apply(pendientes);
+        lock.lock();
+        try {
+            for (Pelicula pelicula : cargadas) {
+                peliculas.put(pelicula.id(), pelicula);
+                encontradas.put(pelicula.id(), pelicula);
+            }
+            if (ttlNegativoNanos > 0) {
+                long vencimiento = System.nanoTime() + ttlNegativoNanos;
+                for (Long id : pendientes) {
+                    if (!encontradas.containsKey(id)) {
+                        inexistentes.put(id, vencimiento);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return encontradas;
+    }
+
+    // Registra una película nueva o modificada del catálogo
+    public void actualizar(Pelicula pelicula) {
+        lock.lock();
+        try {
+            inexistentes.remove(pelicula.id());
+            peliculas.put(pelicula.id(), pelicula);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidar(Long id) {
+        lock.lock();
+        try {
+            peliculas.remove(id);
+            inexistentes.remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Estadisticas estadisticas() {
+        lock.lock();
+        try {
+            return new Estadisticas(aciertos.sum(), fallos.sum(), aciertosNegativos.sum(),
+                    peliculas.size(), inexistentes.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public record Estadisticas(
+            long aciertos,
+            long fallos,
+            long aciertosNegativos,
+            int tamanio,
+            int tamanioNegativo
+    ) {
+        public double tasaAciertos() {
+            long total = aciertos + aciertosNegativos + fallos;
+            return total == 0 ? 0 : (double) (aciertos + aciertosNegativos) / total;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ar.edu.unrn.carrito.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Candados por franjas para serializar las mutaciones de un mismo usuario dentro del nodo.
+ *
+ * Cada usuarioId se asigna por hash a una de {@code franjas} ReentrantLock fijos: dos
+ * requests del mismo usuario siempre toman el mismo candado y dos usuarios distintos solo
+ * compiten si caen en la misma franja. No hay un candado por usuario que crear ni limpiar.
+ * Entre nodos la consistencia la da la versión optimista del carrito.
+ */
+public class CandadosPorUsuario {
+
+    static final String ERROR_FRANJAS_INVALIDAS = "La cantidad de franjas debe ser mayor a cero";
+
+    private final ReentrantLock[] franjas;
+    private final int mascara;
+
+    public CandadosPorUsuario(int franjas) {
+        assertFranjasValidas(franjas);
+        // Potencia de dos para elegir la franja con una máscara
+        int cantidad = franjas == 1 ? 1 : Integer.highestOneBit(franjas - 1) << 1;
+        this.franjas = new ReentrantLock[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            this.franjas[i] = new ReentrantLock();
+        }
+        this.mascara = cantidad - 1;
+    }
+
+    private void assertFranjasValidas(int franjas) {
+        if (franjas <= 0) {
+            throw new RuntimeException(ERROR_FRANJAS_INVALIDAS);
+        }
+    }
+
+    public <T> T conCandado(String usuarioId, Supplier<T> accion) {
+        ReentrantLock candado = franja(usuarioId);
+        candado.lock();
+        try {
+            return accion.get();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    int cantidadFranjas() {
+        return franjas.length;
+    }
+
+    private ReentrantLock franja(String usuarioId) {
+        int h = usuarioId.hashCode();
+        // Mezcla los bits altos: los ids con prefijo común difieren sobre todo al final
+        h ^= (h >>> 16);
+        return franjas[h & mascara];
+    }
+}
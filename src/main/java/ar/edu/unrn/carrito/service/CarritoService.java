@@ -1,92 +1,422 @@
 package ar.edu.unrn.carrito.service;
 
 import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.EventoCarrito;
+import ar.edu.unrn.carrito.model.Monto;
 import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.web.AgregadoMultipleInfo;
 import ar.edu.unrn.carrito.web.CarritoDetalle;
 import ar.edu.unrn.carrito.web.CarritoInfo;
+import ar.edu.unrn.carrito.web.ErrorPeliculaInfo;
+import ar.edu.unrn.carrito.web.PeliculaAAgregar;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class CarritoService {
+    private static final Logger logger = LoggerFactory.getLogger(CarritoService.class);
+
     private final EntityManagerFactory emf;
+    private final CachePeliculas cachePeliculas;
+    // Opcional: si está presente los carritos activos se leen y mutan a través del almacén
+    // (en memoria con escritura diferida, o como log de eventos con snapshots)
+    private final AlmacenCarritos almacen;
+    private final CandadosPorUsuario candados;
+    private final MetricasCarrito metricas;
+    // Lecturas puras a la réplica (si hay), salvo read-your-writes o réplica atrasada
+    private final EnrutadorLecturas lecturas;
+    // Mensajes de cambio de carrito escritos en la transacción de cada mutación (outbox)
+    private final BandejaSalida bandejaSalida;
+    // GETs concurrentes del mismo usuario comparten una sola carga del detalle
+    private final LecturasEnVuelo<Optional<CarritoDetalle>> detallesEnVuelo;
 
     // Mensaje de error usado en tests (visibilidad de paquete)
     static final String ERROR_PELICULA_NO_ENCONTRADA = "Película no encontrada en la base de datos";
+    static final String ERROR_SIN_PELICULAS = "Debe indicar al menos una película para agregar";
+    static final int MAX_PELICULAS_POR_PEDIDO = 100;
+    static final String ERROR_DEMASIADAS_PELICULAS =
+            "No se pueden agregar más de " + MAX_PELICULAS_POR_PEDIDO + " películas por pedido";
+
+    static final int TAMANIO_LOTE_REPARACION = 100;
+
+    static final String QUERY_CARRITO_ACTIVO_CON_DETALLE =
+            "SELECT c FROM Carrito c LEFT JOIN FETCH c.itemsPrivados i LEFT JOIN FETCH i.pelicula " +
+            "WHERE c.usuarioId = :usuarioId";
+    static final int MAX_INTENTOS_CONFLICTO = 3;
 
-    public CarritoService(EntityManagerFactory emf) {
+    public CarritoService(EntityManagerFactory emf, CachePeliculas cachePeliculas, AlmacenCarritos almacen,
+                          CandadosPorUsuario candados, MetricasCarrito metricas, EnrutadorLecturas lecturas,
+                          BandejaSalida bandejaSalida) {
         this.emf = emf;
+        this.cachePeliculas = cachePeliculas;
+        this.almacen = almacen;
+        this.candados = candados;
+        this.metricas = metricas;
+        this.lecturas = lecturas;
+        this.bandejaSalida = bandejaSalida;
+        this.detallesEnVuelo = new LecturasEnVuelo<>(metricas::registrarLecturaCompartida);
     }
 
-    // Obtener el carrito activo de un usuario específico
+    // Obtener el carrito activo de un usuario específico. Las lecturas concurrentes del mismo
+    // usuario comparten la que está en curso; cada escritura confirmada la invalida.
     public Optional<CarritoDetalle> obtenerCarrito(String usuarioId) {
-        try (var em = emf.createEntityManager()) {
-            var carritos = em.createQuery("FROM Carrito WHERE usuarioId = :usuarioId ORDER BY fechaCreacion DESC", Carrito.class)
+        return metricas.medir("obtenerCarrito", () -> detallesEnVuelo.leer(usuarioId, () -> obtenerCarritoSinMedir(usuarioId)));
+    }
+
+    private Optional<CarritoDetalle> obtenerCarritoSinMedir(String usuarioId) {
+        if (almacen != null) {
+            return almacen.leer(usuarioId, Carrito::toCarritoDetalle);
+        }
+
+        try (var em = lecturas.paraLectura(usuarioId)) {
+            return buscarCarritoActivoConDetalle(em, usuarioId).map(Carrito::toCarritoDetalle);
+        }
+    }
+
+    // Resumen del carrito activo leído solo de la fila de carritos (totales desnormalizados)
+    public Optional<CarritoInfo> obtenerResumenCarrito(String usuarioId) {
+        return metricas.medir("obtenerResumenCarrito", () -> obtenerResumenCarritoSinMedir(usuarioId));
+    }
+
+    private Optional<CarritoInfo> obtenerResumenCarritoSinMedir(String usuarioId) {
+        if (almacen != null) {
+            return almacen.leer(usuarioId, Carrito::toCarritoInfo);
+        }
+
+        try (var em = lecturas.paraLectura(usuarioId)) {
+            // El total se lee como Monto (convertido de la columna) y pasa a BigDecimal en el DTO
+            return em.createQuery("SELECT c.id, c.usuarioId, c.cantidadItems, c.total FROM Carrito c " +
+                            "WHERE c.usuarioId = :usuarioId", Object[].class)
                 .setParameter("usuarioId", usuarioId)
-                .setMaxResults(1)
-                .getResultList();
+                .getResultStream()
+                .findFirst()
+                .map(fila -> new CarritoInfo((Long) fila[0], (String) fila[1], (Integer) fila[2],
+                        fila[3] == null ? null : ((Monto) fila[3]).aBigDecimal()));
+        }
+    }
 
-            if (carritos.isEmpty()) {
-                return Optional.empty();
-            }
+    // Versión fuerte del carrito activo (id y revisión) para el ETag: se lee solo de la fila
+    // del carrito por el índice único de usuario_id, sin cargar items ni películas
+    public Optional<String> obtenerVersionCarrito(String usuarioId) {
+        return metricas.medir("obtenerVersionCarrito", () -> obtenerVersionCarritoSinMedir(usuarioId));
+    }
+
+    private Optional<String> obtenerVersionCarritoSinMedir(String usuarioId) {
+        if (almacen != null) {
+            return almacen.leer(usuarioId, Carrito::version);
+        }
 
-            return Optional.of(carritos.get(0).toCarritoDetalle());
+        try (var em = lecturas.paraLectura(usuarioId)) {
+            return em.createQuery("SELECT c.id, c.revision FROM Carrito c " +
+                            "WHERE c.usuarioId = :usuarioId", Object[].class)
+                .setParameter("usuarioId", usuarioId)
+                .getResultStream()
+                .findFirst()
+                .map(fila -> Carrito.version((Long) fila[0], fila[1] == null ? 0 : (Long) fila[1]));
         }
     }
 
-    // Crear un carrito vacío cuando no existe ninguno para el usuario
+    // Crear un carrito vacío cuando no existe ninguno para el usuario. El GET no lo usa: responde
+    // con CarritoDetalle.vacio y la fila se crea en la primera mutación (obtenerOCrearCarritoActivo)
     public CarritoDetalle crearCarritoVacio(String usuarioId) {
-        try (var em = emf.createEntityManager()) {
-            var transaction = em.getTransaction();
-            transaction.begin();
-            try {
-                Carrito nuevoCarrito = new Carrito(usuarioId);
-                em.persist(nuevoCarrito);
-                transaction.commit();
-                return nuevoCarrito.toCarritoDetalle();
-            } catch (Exception e) {
-                transaction.rollback();
-                throw e;
-            }
+        return metricas.medir("crearCarritoVacio", () -> crearCarritoVacioSinMedir(usuarioId));
+    }
+
+    // Solo la creación de la fila es una mutación: si el carrito ya existía no se registra su tamaño
+    private CarritoDetalle crearCarritoVacioSinMedir(String usuarioId) {
+        if (almacen != null) {
+            return mutarEnAlmacen(usuarioId, Carrito::toCarritoDetalle);
         }
+
+        return mutarCarrito(usuarioId, () -> {
+            try (var em = emf.createEntityManager()) {
+                var transaction = em.getTransaction();
+                transaction.begin();
+                try {
+                    // Otra request del usuario pudo crearlo mientras se esperaba el candado
+                    Optional<Carrito> existente = buscarCarritoActivoConDetalle(em, usuarioId);
+                    if (existente.isPresent()) {
+                        transaction.commit();
+                        return existente.get().toCarritoDetalle();
+                    }
+                    Carrito nuevoCarrito = new Carrito(usuarioId);
+                    em.persist(nuevoCarrito);
+                    bandejaSalida.registrar(em, nuevoCarrito);
+                    transaction.commit();
+                    return registrarTamanio(nuevoCarrito.toCarritoDetalle());
+                } catch (Exception e) {
+                    transaction.rollback();
+                    throw e;
+                }
+            }
+        });
     }
 
     // Agregar película al carrito desde la base de datos local y devolver información del carrito
     public CarritoInfo agregarPeliculaDesdeCatalogo(Long peliculaId, String usuarioId) {
+        return metricas.medir("agregarPeliculaDesdeCatalogo", () -> agregarPeliculaDesdeCatalogoSinMedir(peliculaId, usuarioId));
+    }
+
+    private CarritoInfo agregarPeliculaDesdeCatalogoSinMedir(Long peliculaId, String usuarioId) {
+        if (almacen != null) {
+            Pelicula pelicula = buscarPelicula(peliculaId);
+            CarritoInfo info = mutarEnAlmacen(usuarioId, carrito -> {
+                carrito.agregarPelicula(pelicula, 1); // Cantidad por defecto = 1
+                return carrito.toCarritoInfo();
+            });
+            // Fuera de la mutación, que el almacén puede reintentar
+            return registrarTamanio(info);
+        }
+
+        return mutarCarrito(usuarioId, () -> {
+            try (var em = emf.createEntityManager()) {
+                var transaction = em.getTransaction();
+                transaction.begin();
+                try {
+                    // Buscar la película en la cache del catálogo, y si no está en la BD local
+                    Pelicula pelicula = buscarPelicula(em, peliculaId);
+
+                    // Buscar o crear un carrito activo para el usuario
+                    Carrito carrito = obtenerOCrearCarritoActivo(em, usuarioId);
+
+                    carrito.agregarPelicula(pelicula, 1); // Cantidad por defecto = 1
+                    // Si el carrito es nuevo fue persistido en obtenerOCrearCarritoActivo; si no, merge
+                    em.merge(carrito);
+                    bandejaSalida.registrar(em, carrito);
+                    transaction.commit();
+
+                    return registrarTamanio(carrito.toCarritoInfo());
+                } catch (RuntimeException e) {
+                    if (transaction.isActive()) {
+                        transaction.rollback();
+                    }
+                    throw e;
+                } catch (Exception e) {
+                    transaction.rollback();
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+    }
+
+    // Agregar varias películas en una sola transacción. Las películas se resuelven con una única
+    // consulta IN (las cacheadas ni siquiera llegan a la base); los ids inexistentes o las
+    // cantidades inválidas se informan por item sin impedir que se agreguen las demás. Un pedido
+    // admite hasta MAX_PELICULAS_POR_PEDIDO películas.
+    public AgregadoMultipleInfo agregarPeliculasDesdeCatalogo(List<PeliculaAAgregar> aAgregar, String usuarioId) {
+        return metricas.medir("agregarPeliculasDesdeCatalogo", () -> agregarPeliculasDesdeCatalogoSinMedir(aAgregar, usuarioId));
+    }
+
+    private AgregadoMultipleInfo agregarPeliculasDesdeCatalogoSinMedir(List<PeliculaAAgregar> aAgregar, String usuarioId) {
+        assertHayPeliculas(aAgregar);
+
+        // Las películas inexistentes y las cantidades inválidas fallan igual en cualquier
+        // carrito: se prueban sobre uno vacío y, si falla todo, se informan los errores sin
+        // crear ni tocar el carrito del usuario
+        Map<Long, Pelicula> encontradas;
         try (var em = emf.createEntityManager()) {
-            var transaction = em.getTransaction();
-            transaction.begin();
+            encontradas = buscarPeliculas(em, aAgregar);
+        }
+        List<ErrorPeliculaInfo> erroresPrevios = agregarPeliculas(new Carrito(usuarioId), aAgregar, encontradas);
+        if (erroresPrevios.size() == aAgregar.size()) {
+            return new AgregadoMultipleInfo(obtenerResumenCarrito(usuarioId)
+                    .orElseGet(() -> CarritoInfo.vacio(usuarioId)), erroresPrevios);
+        }
+
+        if (almacen != null) {
+            AgregadoMultipleInfo agregado = mutarEnAlmacen(usuarioId, carrito -> {
+                List<ErrorPeliculaInfo> errores = agregarPeliculas(carrito, aAgregar, encontradas);
+                return new AgregadoMultipleInfo(carrito.toCarritoInfo(), errores);
+            });
+            // Fuera de la mutación, que el almacén puede reintentar: una vez y solo si se agregó alguna
+            if (agregado.errores().size() < aAgregar.size()) {
+                registrarTamanio(agregado.carrito());
+            }
+            return agregado;
+        }
+
+        return mutarCarrito(usuarioId, () -> {
+            try (var em = emf.createEntityManager()) {
+                var transaction = em.getTransaction();
+                transaction.begin();
+                try {
+                    // Con varias películas conviene traer los items existentes en la misma consulta
+                    Carrito carrito = buscarCarritoActivoConDetalle(em, usuarioId).orElseGet(() -> {
+                        Carrito nuevoCarrito = new Carrito(usuarioId);
+                        em.persist(nuevoCarrito);
+                        return nuevoCarrito;
+                    });
+
+                    List<ErrorPeliculaInfo> errores = agregarPeliculas(carrito, aAgregar, encontradas);
+                    em.merge(carrito);
+                    boolean mutado = errores.size() < aAgregar.size();
+                    if (mutado) {
+                        bandejaSalida.registrar(em, carrito);
+                    }
+                    transaction.commit();
+
+                    CarritoInfo info = carrito.toCarritoInfo();
+                    return new AgregadoMultipleInfo(mutado ? registrarTamanio(info) : info, errores);
+                } catch (RuntimeException e) {
+                    if (transaction.isActive()) {
+                        transaction.rollback();
+                    }
+                    throw e;
+                }
+            }
+        });
+    }
+
+    // Las mutaciones del mismo usuario se serializan con un candado por franja, así en un nodo
+    // no se crean carritos duplicados ni se pierden incrementos. Si el carrito lo modificó otro
+    // nodo (o creó su carrito activo), el commit falla y la mutación se reintenta desde cero.
+    private <T> T mutarCarrito(String usuarioId, Supplier<T> mutacion) {
+        return candados.conCandado(usuarioId, () -> {
+            T resultado = reintentarConflictos(usuarioId, mutacion, metricas::registrarConflicto);
+            lecturas.registrarEscritura(usuarioId);
+            detallesEnVuelo.invalidar(usuarioId);
+            return resultado;
+        });
+    }
+
+    // Repite la mutación desde cero mientras falle por un conflicto concurrente, hasta
+    // MAX_INTENTOS_CONFLICTO intentos. También la usa el almacén por eventos.
+    static <T> T reintentarConflictos(String usuarioId, Supplier<T> mutacion, Runnable alReintentar) {
+        for (int intento = 1; ; intento++) {
             try {
-                // Buscar la película en la BD local
-                Pelicula pelicula = em.find(Pelicula.class, peliculaId);
-                if (pelicula == null) {
-                    throw new RuntimeException(ERROR_PELICULA_NO_ENCONTRADA);
+                return mutacion.get();
+            } catch (RuntimeException e) {
+                if (!esConflictoConcurrente(e) || intento >= MAX_INTENTOS_CONFLICTO) {
+                    throw e;
                 }
+                alReintentar.run();
+                logger.warn("⚠️ Conflicto concurrente en el carrito de {}, reintento {} de {}",
+                        usuarioId, intento + 1, MAX_INTENTOS_CONFLICTO);
+            }
+        }
+    }
 
-                // Buscar o crear un carrito activo para el usuario
-                Carrito carrito = obtenerOCrearCarritoActivo(em, usuarioId);
+    // El almacén serializa y reintenta por su cuenta; acá solo falta invalidar las lecturas en curso
+    private <T> T mutarEnAlmacen(String usuarioId, Function<Carrito, T> mutacion) {
+        T resultado = almacen.mutar(usuarioId, mutacion);
+        detallesEnVuelo.invalidar(usuarioId);
+        return resultado;
+    }
 
-                carrito.agregarPelicula(pelicula, 1); // Cantidad por defecto = 1
-                // Si el carrito es nuevo fue persistido en obtenerOCrearCarritoActivo; si no, merge
-                em.merge(carrito);
-                transaction.commit();
+    private CarritoInfo registrarTamanio(CarritoInfo info) {
+        metricas.registrarTamanio(info.cantidadItems(), info.total());
+        return info;
+    }
 
-                return carrito.toCarritoInfo();
+    private CarritoDetalle registrarTamanio(CarritoDetalle detalle) {
+        metricas.registrarTamanio(detalle.cantidadItems(), detalle.total());
+        return detalle;
+    }
+
+    // Versión optimista vieja, carrito del usuario creado en paralelo por otro nodo, o evento del
+    // log del carrito escrito en paralelo con la misma secuencia (índices únicos)
+    static boolean esConflictoConcurrente(Throwable e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof OptimisticLockException || causa instanceof StaleStateException) {
+                return true;
+            }
+            if (causa instanceof ConstraintViolationException violacion && violacion.getConstraintName() != null
+                    && (violacion.getConstraintName().toLowerCase().contains(Carrito.UK_USUARIO)
+                        || violacion.getConstraintName().toLowerCase().contains(EventoCarrito.UK_USUARIO_SECUENCIA))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void assertHayPeliculas(List<PeliculaAAgregar> aAgregar) {
+        if (aAgregar == null || aAgregar.isEmpty()) {
+            throw new RuntimeException(ERROR_SIN_PELICULAS);
+        }
+        if (aAgregar.size() > MAX_PELICULAS_POR_PEDIDO) {
+            throw new RuntimeException(ERROR_DEMASIADAS_PELICULAS);
+        }
+    }
+
+    private Map<Long, Pelicula> buscarPeliculas(EntityManager em, List<PeliculaAAgregar> aAgregar) {
+        Set<Long> ids = new HashSet<>();
+        for (PeliculaAAgregar item : aAgregar) {
+            if (item.peliculaId() != null) {
+                ids.add(item.peliculaId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return cachePeliculas.obtenerTodas(ids, pendientes ->
+                em.createQuery("FROM Pelicula WHERE id IN :ids", Pelicula.class)
+                        .setParameter("ids", pendientes)
+                        .getResultList());
+    }
+
+    private static List<ErrorPeliculaInfo> agregarPeliculas(Carrito carrito, List<PeliculaAAgregar> aAgregar,
+                                                            Map<Long, Pelicula> peliculas) {
+        List<ErrorPeliculaInfo> errores = new ArrayList<>();
+        for (PeliculaAAgregar item : aAgregar) {
+            Pelicula pelicula = peliculas.get(item.peliculaId());
+            if (pelicula == null) {
+                errores.add(new ErrorPeliculaInfo(item.peliculaId(), ERROR_PELICULA_NO_ENCONTRADA));
+                continue;
+            }
+            try {
+                carrito.agregarPelicula(pelicula, item.cantidad() == null ? 1 : item.cantidad());
             } catch (RuntimeException e) {
-                transaction.rollback();
-                throw e;
-            } catch (Exception e) {
-                transaction.rollback();
-                throw new RuntimeException(e);
+                // El carrito valida antes de modificarse, así que un item inválido no lo deja a medias
+                errores.add(new ErrorPeliculaInfo(item.peliculaId(), e.getMessage()));
             }
         }
+        return errores;
+    }
+
+    // Carrito activo con sus items y películas en una sola consulta. El índice único de
+    // usuario_id garantiza un único carrito por usuario.
+    static Optional<Carrito> buscarCarritoActivoConDetalle(EntityManager em, String usuarioId) {
+        return em.createQuery(QUERY_CARRITO_ACTIVO_CON_DETALLE, Carrito.class)
+                .setParameter("usuarioId", usuarioId)
+                .getResultStream()
+                .findFirst();
+    }
+
+    private Pelicula buscarPelicula(Long peliculaId) {
+        try (var em = emf.createEntityManager()) {
+            return buscarPelicula(em, peliculaId);
+        }
     }
 
-    private Carrito obtenerOCrearCarritoActivo(jakarta.persistence.EntityManager em, String usuarioId) {
-        // Buscar el carrito del usuario específico
-        var carritos = em.createQuery("FROM Carrito WHERE usuarioId = :usuarioId ORDER BY fechaCreacion DESC", Carrito.class)
+    private Pelicula buscarPelicula(EntityManager em, Long peliculaId) {
+        return cachePeliculas.obtener(peliculaId, id -> em.find(Pelicula.class, id))
+                .orElseThrow(() -> new RuntimeException(ERROR_PELICULA_NO_ENCONTRADA));
+    }
+
+    public CachePeliculas.Estadisticas estadisticasCachePeliculas() {
+        return cachePeliculas.estadisticas();
+    }
+
+    private Carrito obtenerOCrearCarritoActivo(EntityManager em, String usuarioId) {
+        // Buscar el carrito del usuario específico (único por el índice de usuario_id)
+        var carritos = em.createQuery("FROM Carrito WHERE usuarioId = :usuarioId", Carrito.class)
             .setParameter("usuarioId", usuarioId)
-            .setMaxResults(1)
             .getResultList();
 
         if (!carritos.isEmpty()) {
@@ -101,6 +431,14 @@ public class CarritoService {
 
     // Agregar película al catálogo desde un mensaje de RabbitMQ
     public void agregarPeliculaAlCatalogo(Long id, String nombre, double precio) {
+        agregarPeliculaAlCatalogo(id, nombre, Monto.redondeado(precio));
+    }
+
+    public void agregarPeliculaAlCatalogo(Long id, String nombre, Monto precio) {
+        metricas.medir("agregarPeliculaAlCatalogo", () -> agregarPeliculaAlCatalogoSinMedir(id, nombre, precio));
+    }
+
+    private void agregarPeliculaAlCatalogoSinMedir(Long id, String nombre, Monto precio) {
         try (var em = emf.createEntityManager()) {
             var transaction = em.getTransaction();
             transaction.begin();
@@ -110,21 +448,224 @@ public class CarritoService {
                 if (peliculaExistente != null) {
                     // Si ya existe, no hacer nada (o actualizar si es necesario)
                     transaction.rollback();
+                    cachePeliculas.actualizar(peliculaExistente);
                     return;
                 }
 
-                // Crear la nueva película con BigDecimal
-                Pelicula nuevaPelicula = new Pelicula(
-                    id,
-                    nombre,
-                    java.math.BigDecimal.valueOf(precio)
-                );
+                Pelicula nuevaPelicula = new Pelicula(id, nombre, precio);
                 em.persist(nuevaPelicula);
                 transaction.commit();
+                // Solo después del commit, para no cachear una película que no llegó a la BD
+                cachePeliculas.actualizar(nuevaPelicula);
             } catch (Exception e) {
                 transaction.rollback();
                 throw new RuntimeException("Error al agregar película al catálogo: " + e.getMessage(), e);
             }
         }
     }
+
+    // Verifica los totales desnormalizados de todos los carritos y corrige los inconsistentes.
+    // Recorre la tabla por rangos de id para no cargar todo en memoria. Devuelve los carritos corregidos.
+    public int repararTotales() {
+        return metricas.medir("repararTotales", () -> corregirTotalesPorLotes(true, (em, ultimoId) ->
+                em.createQuery("SELECT c.id FROM Carrito c WHERE c.id > :ultimoId ORDER BY c.id", Long.class)
+                        .setParameter("ultimoId", ultimoId)
+                        .setMaxResults(TAMANIO_LOTE_REPARACION)
+                        .getResultList()));
+    }
+
+    // Actualiza en bloque los precios de películas del catálogo y corrige los totales (y con ellos
+    // la versión/ETag) solo de los carritos que contienen alguna de las películas pedidas. Los
+    // carritos se encuentran por el índice inverso película -> items (índice de pelicula_id en
+    // items_carrito), y los que viven en el almacén por el índice inverso del almacén.
+    // La corrección sale de las películas pedidas y no solo de las que cambiaron de precio: si una
+    // entrega anterior actualizó el catálogo y falló antes de corregir los carritos, la reentrega
+    // los corrige (los que ya están bien no se tocan). Las películas que no están en el catálogo
+    // local se ignoran. Devuelve los carritos actualizados.
+    public int actualizarPreciosCatalogo(Map<Long, Monto> precios) {
+        return metricas.medir("actualizarPreciosCatalogo", () -> actualizarPreciosCatalogoSinMedir(precios));
+    }
+
+    private int actualizarPreciosCatalogoSinMedir(Map<Long, Monto> precios) {
+        if (precios.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Pelicula> peliculas = actualizarPreciosPeliculas(precios);
+        if (peliculas.isEmpty()) {
+            return 0;
+        }
+        peliculas.values().forEach(cachePeliculas::actualizar);
+
+        // Primero el almacén: persiste sus carritos ya corregidos y la corrección por filas no los vuelve a tocar
+        int actualizados = almacen == null ? 0 : almacen.actualizarPrecios(peliculas);
+        detallesEnVuelo.invalidarTodas();
+        actualizados += corregirTotalesPorLotes(false, (em, ultimoId) ->
+                em.createQuery("SELECT DISTINCT c.id FROM Carrito c JOIN c.itemsPrivados i " +
+                                "WHERE i.peliculaId IN :peliculas AND c.id > :ultimoId ORDER BY c.id", Long.class)
+                        .setParameter("peliculas", peliculas.keySet())
+                        .setParameter("ultimoId", ultimoId)
+                        .setMaxResults(TAMANIO_LOTE_REPARACION)
+                        .getResultList());
+        logger.info("💲 Precios actualizados: {} películas, {} carritos con totales corregidos",
+                peliculas.size(), actualizados);
+        return actualizados;
+    }
+
+    // Devuelve las películas pedidas que están en el catálogo, haya cambiado su precio o no;
+    // los UPDATE de las que cambiaron salen en lote al confirmar
+    private Map<Long, Pelicula> actualizarPreciosPeliculas(Map<Long, Monto> precios) {
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            try {
+                Map<Long, Pelicula> peliculas = new HashMap<>();
+                for (Pelicula pelicula : em.createQuery("FROM Pelicula WHERE id IN :ids", Pelicula.class)
+                        .setParameter("ids", precios.keySet())
+                        .getResultList()) {
+                    pelicula.actualizarPrecio(precios.get(pelicula.id()));
+                    peliculas.put(pelicula.id(), pelicula);
+                }
+                transaction.commit();
+                return peliculas;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Recorre por lotes de ids (cada lote en su transacción) los carritos que devuelve
+    // siguientesIds a partir del último id procesado y corrige sus totales desde los items.
+    // El lote no toma los candados por usuario: si una mutación concurrente cambió alguno de
+    // sus carritos, el lote se descarta y se corrige carrito por carrito con su candado y sus
+    // reintentos, así un conflicto no corta la corrección de los lotes siguientes.
+    private int corregirTotalesPorLotes(boolean inconsistenciaInesperada,
+                                        BiFunction<EntityManager, Long, List<Long>> siguientesIds) {
+        int corregidos = 0;
+        long ultimoId = 0;
+        while (true) {
+            List<Long> ids;
+            try (var em = emf.createEntityManager()) {
+                ids = siguientesIds.apply(em, ultimoId);
+            }
+            if (ids.isEmpty()) {
+                return corregidos;
+            }
+
+            try {
+                corregidos += corregirTotales(ids, inconsistenciaInesperada);
+            } catch (RuntimeException e) {
+                if (!esConflictoConcurrente(e)) {
+                    throw e;
+                }
+                metricas.registrarConflicto();
+                logger.warn("⚠️ Conflicto de versión al corregir los carritos {} a {}, se corrigen de a uno",
+                        ids.get(0), ids.get(ids.size() - 1));
+                corregidos += corregirTotalesDeAUno(ids, inconsistenciaInesperada);
+            }
+            ultimoId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private int corregirTotalesDeAUno(List<Long> ids, boolean inconsistenciaInesperada) {
+        List<Object[]> duenios;
+        try (var em = emf.createEntityManager()) {
+            duenios = em.createQuery("SELECT c.id, c.usuarioId FROM Carrito c WHERE c.id IN :ids ORDER BY c.id",
+                            Object[].class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+        }
+        int corregidos = 0;
+        for (Object[] duenio : duenios) {
+            Long carritoId = (Long) duenio[0];
+            corregidos += mutarCarrito((String) duenio[1],
+                    () -> corregirTotales(List.of(carritoId), inconsistenciaInesperada));
+        }
+        return corregidos;
+    }
+
+    private int corregirTotales(List<Long> ids, boolean inconsistenciaInesperada) {
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            try {
+                var carritos = em.createQuery("SELECT DISTINCT c FROM Carrito c LEFT JOIN FETCH c.itemsPrivados i " +
+                                "LEFT JOIN FETCH i.pelicula WHERE c.id IN :ids", Carrito.class)
+                        .setParameter("ids", ids)
+                        .getResultList();
+                int corregidos = 0;
+                for (Carrito carrito : carritos) {
+                    if (carrito.repararTotales()) {
+                        if (inconsistenciaInesperada) {
+                            logger.warn("Totales inconsistentes corregidos en el carrito {}", carrito);
+                        }
+                        bandejaSalida.registrar(em, carrito);
+                        corregidos++;
+                    }
+                }
+                transaction.commit();
+                if (corregidos > 0) {
+                    detallesEnVuelo.invalidarTodas();
+                }
+                return corregidos;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Agregar en una sola transacción un lote de películas recibidas de RabbitMQ.
+    // La existencia se verifica con un único IN y los INSERT se envían en batch JDBC.
+    // Si el lote falla no se agrega ninguna y se lanza la excepción: el consumidor decide cómo
+    // aislar la película que falla. Devuelve la cantidad de películas efectivamente agregadas.
+    public int agregarPeliculasAlCatalogo(List<Pelicula> peliculas) {
+        return metricas.medir("agregarPeliculasAlCatalogo", () -> agregarPeliculasAlCatalogoSinMedir(peliculas));
+    }
+
+    private int agregarPeliculasAlCatalogoSinMedir(List<Pelicula> peliculas) {
+        if (peliculas.isEmpty()) {
+            return 0;
+        }
+
+        // Si el catálogo republica la misma película en el lote, vale la última
+        Map<Long, Pelicula> porId = new LinkedHashMap<>();
+        peliculas.forEach(pelicula -> porId.put(pelicula.id(), pelicula));
+
+        return agregarLoteAlCatalogo(porId);
+    }
+
+    private int agregarLoteAlCatalogo(Map<Long, Pelicula> porId) {
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            try {
+                Set<Long> existentes = new HashSet<>(em.createQuery(
+                                "SELECT p.id FROM Pelicula p WHERE p.id IN :ids", Long.class)
+                        .setParameter("ids", porId.keySet())
+                        .getResultList());
+
+                List<Pelicula> nuevas = new ArrayList<>();
+                for (Pelicula pelicula : porId.values()) {
+                    if (!existentes.contains(pelicula.id())) {
+                        em.persist(pelicula);
+                        nuevas.add(pelicula);
+                    }
+                }
+                transaction.commit();
+
+                nuevas.forEach(cachePeliculas::actualizar);
+                return nuevas.size();
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
 }
@@ -0,0 +1,569 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Almacén acotado de carritos activos en memoria con escritura diferida (write-behind).
+ *
+ * Las mutaciones se aplican sobre el carrito en memoria y se marca como sucio.
+ * Cada ventana de durabilidad los carritos sucios se persisten en un único lote
+ * transaccional. Al cerrar el almacén se hace un último flush, por lo que solo se
+ * pueden perder las mutaciones de la última ventana ante una caída abrupta.
+ *
+ * Cuando se supera la capacidad se desaloja el carrito usado menos recientemente;
+ * si estaba sucio queda pendiente hasta el próximo flush y, si el usuario vuelve
+ * antes, se recupera sin leer la base de datos (que todavía no lo tiene). Los
+ * desalojados pendientes también se acotan a {@code capacidad}: con el cupo lleno,
+ * quien trae un carrito nuevo a memoria espera un flush del planificador y, si el cupo
+ * sigue lleno (la base no acepta las escrituras), recibe una excepción en lugar de
+ * seguir acumulando carritos.
+ *
+ * El flush copia cada carrito sucio bajo el lock de su entrada y lo persiste sin locks
+ * tomados; si el carrito se modificó mientras tanto queda sucio para el próximo flush.
+ *
+ * Si el lote falla, los carritos se persisten de a uno. Los que están en conflicto
+ * con otro nodo (versión optimista) se descartan de memoria para volver a leerse de
+ * la base; los que fallan por otro motivo quedan sucios para el próximo flush y, tras
+ * {@code MAX_FLUSHES_FALLIDOS} flushes fallidos seguidos, se descartan dejando su
+ * estado en el log, para que un carrito que la base rechaza no se reintente para siempre.
+ */
+public class CarritosEnMemoria implements AlmacenCarritos, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CarritosEnMemoria.class);
+
+    static final String ERROR_CAPACIDAD_INVALIDA = "La capacidad del almacén de carritos debe ser mayor a cero";
+    static final String ERROR_VENTANA_INVALIDA = "La ventana de durabilidad debe ser mayor a cero";
+    static final String ERROR_DESALOJADOS_LLENO = "Hay demasiados carritos pendientes de persistir, reintente más tarde";
+    static final int MAX_FLUSHES_FALLIDOS = 5;
+
+    private final EntityManagerFactory emf;
+    private final int capacidad;
+    private final LinkedHashMap<String, Entrada> activos = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Entrada> desalojados = new HashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Lock del almacén: protege activos, desalojados y el índice inverso
+    private final ReentrantLock almacenLock = new ReentrantLock();
+    private final ScheduledExecutorService planificador;
+    private final long ventanaDurabilidadMs;
+    // Flush pedido al planificador cuando se llena el cupo de desalojados; se protege con el lock del almacén
+    private Future<?> flushPedido;
+    private final BandejaSalida bandejaSalida;
+    // Índice inverso película -> usuarios con carrito en memoria que la contienen, para que un
+    // cambio de precio solo toque esos carritos. Se protege con el lock del almacén.
+    private final Map<Long, Set<String>> usuariosPorPelicula = new HashMap<>();
+    private final Map<String, Set<Long>> peliculasPorUsuario = new HashMap<>();
+
+    public CarritosEnMemoria(EntityManagerFactory emf, int capacidad, long ventanaDurabilidadMs) {
+        this(emf, capacidad, ventanaDurabilidadMs, BandejaSalida.deshabilitada());
+    }
+
+    // Los mensajes de la bandeja de salida se escriben en el lote del flush: uno por carrito persistido
+    public CarritosEnMemoria(EntityManagerFactory emf, int capacidad, long ventanaDurabilidadMs,
+                             BandejaSalida bandejaSalida) {
+        assertCapacidadValida(capacidad);
+        assertVentanaValida(ventanaDurabilidadMs);
+        this.emf = emf;
+        this.capacidad = capacidad;
+        this.ventanaDurabilidadMs = ventanaDurabilidadMs;
+        this.bandejaSalida = bandejaSalida;
+        this.planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "carritos-write-behind");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.planificador.scheduleWithFixedDelay(this::flushSeguro,
+                ventanaDurabilidadMs, ventanaDurabilidadMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void assertCapacidadValida(int capacidad) {
+        if (capacidad <= 0) {
+            throw new RuntimeException(ERROR_CAPACIDAD_INVALIDA);
+        }
+    }
+
+    private void assertVentanaValida(long ventanaDurabilidadMs) {
+        if (ventanaDurabilidadMs <= 0) {
+            throw new RuntimeException(ERROR_VENTANA_INVALIDA);
+        }
+    }
+
+    // Aplica una mutación sobre el carrito del usuario, creándolo en memoria si no existe
+    @Override
+    public <T> T mutar(String usuarioId, Function<Carrito, T> mutacion) {
+        while (true) {
+            Entrada entrada = obtenerEntrada(usuarioId, true);
+            entrada.lock.lock();
+            try {
+                if (entrada.descartada) {
+                    continue;
+                }
+                T resultado = mutacion.apply(entrada.carrito);
+                entrada.marcarSucia();
+                indexar(usuarioId, entrada.carrito);
+                return resultado;
+            } finally {
+                entrada.lock.unlock();
+            }
+        }
+    }
+
+    // Lee el carrito del usuario sin crearlo; vacío si el usuario no tiene carrito
+    @Override
+    public <T> Optional<T> leer(String usuarioId, Function<Carrito, T> lectura) {
+        while (true) {
+            Entrada entrada = obtenerEntrada(usuarioId, false);
+            if (entrada == null) {
+                return Optional.empty();
+            }
+            entrada.lock.lock();
+            try {
+                if (entrada.descartada) {
+                    continue;
+                }
+                return Optional.of(lectura.apply(entrada.carrito));
+            } finally {
+                entrada.lock.unlock();
+            }
+        }
+    }
+
+    // Actualiza los precios de los carritos en memoria que contienen alguna de las películas y
+    // persiste los modificados con un flush, para que el servicio encuentre sus filas al día
+    @Override
+    public int actualizarPrecios(Map<Long, Pelicula> peliculas) {
+        Set<String> afectados = new HashSet<>();
+        almacenLock.lock();
+        try {
+            for (Long peliculaId : peliculas.keySet()) {
+                afectados.addAll(usuariosPorPelicula.getOrDefault(peliculaId, Set.of()));
+            }
+        } finally {
+            almacenLock.unlock();
+        }
+
+        int actualizados = 0;
+        for (String usuarioId : afectados) {
+            Entrada entrada;
+            almacenLock.lock();
+            try {
+                entrada = activos.containsKey(usuarioId) ? activos.get(usuarioId) : desalojados.get(usuarioId);
+            } finally {
+                almacenLock.unlock();
+            }
+            if (entrada == null) {
+                continue;
+            }
+            entrada.lock.lock();
+            try {
+                if (!entrada.descartada && entrada.carrito.actualizarPrecios(peliculas)) {
+                    entrada.marcarSucia();
+                    actualizados++;
+                }
+            } finally {
+                entrada.lock.unlock();
+            }
+        }
+        if (actualizados > 0) {
+            flush();
+        }
+        return actualizados;
+    }
+
+    // Los desalojados pendientes también: el próximo flush escribiría su fila
+    @Override
+    public Set<Long> carritosResidentes() {
+        almacenLock.lock();
+        try {
+            Set<Long> ids = new HashSet<>();
+            for (Entrada entrada : activos.values()) {
+                if (entrada.carrito.id() != null) {
+                    ids.add(entrada.carrito.id());
+                }
+            }
+            for (Entrada entrada : desalojados.values()) {
+                if (entrada.carrito.id() != null) {
+                    ids.add(entrada.carrito.id());
+                }
+            }
+            return ids;
+        } finally {
+            almacenLock.unlock();
+        }
+    }
+
+    public int cantidadActivos() {
+        almacenLock.lock();
+        try {
+            return activos.size();
+        } finally {
+            almacenLock.unlock();
+        }
+    }
+
+    // Persiste en un único lote todos los carritos modificados desde el último flush. Bajo el
+    // lock de cada entrada solo se copia su estado: la transacción corre sin locks tomados y las
+    // mutaciones del carrito siguen mientras tanto.
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Entrada> candidatas;
+            almacenLock.lock();
+            try {
+                candidatas = new ArrayList<>(activos.values());
+                candidatas.addAll(desalojados.values());
+            } finally {
+                almacenLock.unlock();
+            }
+
+            List<Pendiente> pendientes = new ArrayList<>();
+            for (Entrada entrada : candidatas) {
+                entrada.lock.lock();
+                try {
+                    if (entrada.sucio && !entrada.descartada) {
+                        pendientes.add(new Pendiente(entrada, entrada.carrito.copiar(), entrada.generacion));
+                    }
+                } finally {
+                    entrada.lock.unlock();
+                }
+            }
+
+            if (!pendientes.isEmpty()) {
+                persistirConConflictos(pendientes);
+            }
+
+            almacenLock.lock();
+            try {
+                Iterator<Map.Entry<String, Entrada>> iterador = desalojados.entrySet().iterator();
+                while (iterador.hasNext()) {
+                    Map.Entry<String, Entrada> desalojado = iterador.next();
+                    if (!desalojado.getValue().sucio) {
+                        iterador.remove();
+                        desindexar(desalojado.getKey());
+                    }
+                }
+            } finally {
+                almacenLock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        planificador.shutdown();
+        try {
+            planificador.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    // Si el lote falla por cualquier motivo se persiste de a uno, así un carrito que la base
+    // rechaza no frena a los demás
+    private void persistirConConflictos(List<Pendiente> pendientes) {
+        try {
+            persistirLote(pendientes);
+            return;
+        } catch (RuntimeException e) {
+            if (pendientes.size() == 1) {
+                registrarFallo(pendientes.get(0).entrada(), e);
+                return;
+            }
+            logger.warn("⚠️ Falló el lote de {} carritos, se persisten de a uno: {}", pendientes.size(), e.getMessage());
+        }
+        for (Pendiente pendiente : pendientes) {
+            try {
+                persistirLote(List.of(pendiente));
+            } catch (RuntimeException e) {
+                registrarFallo(pendiente.entrada(), e);
+            }
+        }
+    }
+
+    private void registrarFallo(Entrada entrada, RuntimeException e) {
+        entrada.lock.lock();
+        try {
+            if (entrada.descartada) {
+                return;
+            }
+            String usuarioId = entrada.carrito.usuarioId();
+            if (CarritoService.esConflictoConcurrente(e)) {
+                logger.warn("⚠️ El carrito de {} fue modificado en otro nodo; se descartan sus cambios en memoria", usuarioId);
+                descartar(entrada);
+                return;
+            }
+            entrada.flushesFallidos++;
+            if (entrada.flushesFallidos < MAX_FLUSHES_FALLIDOS) {
+                logger.warn("⚠️ No se pudo persistir el carrito de {} ({} de {}), se reintenta en el próximo flush: {}",
+                        usuarioId, entrada.flushesFallidos, MAX_FLUSHES_FALLIDOS, e.getMessage());
+                return;
+            }
+            logger.error("❌ El carrito de {} falló {} flushes seguidos y se descarta de memoria; cambios perdidos: {}",
+                    usuarioId, entrada.flushesFallidos, entrada.carrito, e);
+            descartar(entrada);
+        } finally {
+            entrada.lock.unlock();
+        }
+    }
+
+    // La base de datos gana: se pierden las mutaciones en memoria del carrito.
+    // Se invoca con el lock de la entrada tomado.
+    private void descartar(Entrada entrada) {
+        String usuarioId = entrada.carrito.usuarioId();
+        entrada.descartada = true;
+        entrada.sucio = false;
+        almacenLock.lock();
+        try {
+            activos.remove(usuarioId, entrada);
+            desalojados.remove(usuarioId, entrada);
+            desindexar(usuarioId);
+        } finally {
+            almacenLock.unlock();
+        }
+    }
+
+    // Persiste las copias sin tomar los locks de las entradas
+    private void persistirLote(List<Pendiente> pendientes) {
+        List<Carrito> fusionados = new ArrayList<>(pendientes.size());
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            try {
+                for (Pendiente pendiente : pendientes) {
+                    Carrito fusionado = em.merge(pendiente.copia());
+                    bandejaSalida.registrar(em, fusionado);
+                    fusionados.add(fusionado);
+                }
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+        for (int i = 0; i < pendientes.size(); i++) {
+            confirmar(pendientes.get(i), fusionados.get(i));
+        }
+        logger.debug("Write-behind: {} carritos persistidos", pendientes.size());
+    }
+
+    // El carrito en memoria toma los ids generados y la versión nueva, así el próximo merge no
+    // reinserta filas ni choca con su propia escritura. Sigue sucio si se modificó mientras se
+    // persistía la copia.
+    private void confirmar(Pendiente pendiente, Carrito fusionado) {
+        Entrada entrada = pendiente.entrada();
+        entrada.lock.lock();
+        try {
+            if (entrada.descartada) {
+                return;
+            }
+            entrada.carrito.adoptarIdentidad(fusionado);
+            entrada.flushesFallidos = 0;
+            if (entrada.generacion == pendiente.generacion()) {
+                entrada.sucio = false;
+            }
+        } finally {
+            entrada.lock.unlock();
+        }
+    }
+
+    private void flushSeguro() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("❌ Error en el flush de carritos en memoria, se reintenta en la próxima ventana: {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    private Entrada obtenerEntrada(String usuarioId, boolean crearSiNoExiste) {
+        almacenLock.lock();
+        try {
+            Entrada existente = buscarEntrada(usuarioId);
+            if (existente != null) {
+                return existente;
+            }
+        } finally {
+            almacenLock.unlock();
+        }
+        esperarCupoDesalojados();
+
+        // La carga desde la base de datos se hace fuera del lock del almacén
+        Carrito carrito = cargar(usuarioId);
+        boolean nuevo = carrito == null;
+        if (nuevo && !crearSiNoExiste) {
+            return null;
+        }
+
+        almacenLock.lock();
+        try {
+            Entrada existente = buscarEntrada(usuarioId);
+            if (existente != null) {
+                return existente;
+            }
+            Entrada entrada = new Entrada(nuevo ? new Carrito(usuarioId) : carrito, nuevo);
+            insertar(usuarioId, entrada);
+            indexar(usuarioId, entrada.carrito);
+            return entrada;
+        } finally {
+            almacenLock.unlock();
+        }
+    }
+
+    // Traer un carrito nuevo a memoria puede desalojar a otro: si los desalojados pendientes
+    // llenaron su cupo, se espera un flush del planificador (back-pressure sobre quien agrega
+    // carritos, sin hacer la escritura en su hilo)
+    private void esperarCupoDesalojados() {
+        if (!desalojadosLleno()) {
+            return;
+        }
+        try {
+            solicitarFlush().get(ventanaDurabilidadMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            logger.warn("⚠️ No se completó el flush pedido por el cupo de desalojados: {}", e.toString());
+        }
+        if (desalojadosLleno()) {
+            throw new RuntimeException(ERROR_DESALOJADOS_LLENO);
+        }
+    }
+
+    // Los que esperan cupo al mismo tiempo comparten el flush pedido
+    private Future<?> solicitarFlush() {
+        almacenLock.lock();
+        try {
+            if (flushPedido == null || flushPedido.isDone()) {
+                flushPedido = planificador.submit(this::flushSeguro);
+            }
+            return flushPedido;
+        } finally {
+            almacenLock.unlock();
+        }
+    }
+
+    private boolean desalojadosLleno() {
+        almacenLock.lock();
+        try {
+            return desalojados.size() >= capacidad;
+        } finally {
+            almacenLock.unlock();
+        }
+    }
+
+    // Debe invocarse con el lock del almacén tomado
+    private Entrada buscarEntrada(String usuarioId) {
+        Entrada entrada = activos.get(usuarioId);
+        if (entrada != null) {
+            return entrada;
+        }
+        entrada = desalojados.remove(usuarioId);
+        if (entrada != null) {
+            insertar(usuarioId, entrada);
+        }
+        return entrada;
+    }
+
+    // Debe invocarse con el lock del almacén tomado
+    private void insertar(String usuarioId, Entrada entrada) {
+        activos.put(usuarioId, entrada);
+        if (activos.size() > capacidad) {
+            Iterator<Map.Entry<String, Entrada>> masAntiguo = activos.entrySet().iterator();
+            Map.Entry<String, Entrada> desalojado = masAntiguo.next();
+            masAntiguo.remove();
+            // Se conserva hasta el próximo flush; si estaba limpio el flush lo descarta
+            desalojados.put(desalojado.getKey(), desalojado.getValue());
+        }
+    }
+
+    private void indexar(String usuarioId, Carrito carrito) {
+        almacenLock.lock();
+        try {
+            Set<Long> actuales = carrito.peliculaIds();
+            Set<Long> anteriores = peliculasPorUsuario.put(usuarioId, actuales);
+            if (anteriores != null) {
+                for (Long peliculaId : anteriores) {
+                    if (!actuales.contains(peliculaId)) {
+                        quitarDelIndice(peliculaId, usuarioId);
+                    }
+                }
+            }
+            for (Long peliculaId : actuales) {
+                usuariosPorPelicula.computeIfAbsent(peliculaId, id -> new HashSet<>()).add(usuarioId);
+            }
+        } finally {
+            almacenLock.unlock();
+        }
+    }
+
+    // Debe invocarse con el lock del almacén tomado
+    private void desindexar(String usuarioId) {
+        Set<Long> peliculas = peliculasPorUsuario.remove(usuarioId);
+        if (peliculas != null) {
+            peliculas.forEach(peliculaId -> quitarDelIndice(peliculaId, usuarioId));
+        }
+    }
+
+    private void quitarDelIndice(Long peliculaId, String usuarioId) {
+        Set<String> usuarios = usuariosPorPelicula.get(peliculaId);
+        if (usuarios != null && usuarios.remove(usuarioId) && usuarios.isEmpty()) {
+            usuariosPorPelicula.remove(peliculaId);
+        }
+    }
+
+    private Carrito cargar(String usuarioId) {
+        try (var em = emf.createEntityManager()) {
+            return CarritoService.buscarCarritoActivoConDetalle(em, usuarioId).orElse(null);
+        }
+    }
+
+    private static final class Entrada {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Carrito carrito;
+        private boolean sucio;
+        // Crece con cada mutación: el flush solo limpia la entrada si no cambió desde su copia
+        private long generacion;
+        private boolean descartada;
+        private int flushesFallidos;
+
+        private Entrada(Carrito carrito, boolean sucio) {
+            this.carrito = carrito;
+            this.sucio = sucio;
+        }
+
+        private void marcarSucia() {
+            sucio = true;
+            generacion++;
+        }
+    }
+
+    // Copia del carrito tomada bajo el lock de la entrada y la generación que tenía
+    private record Pendiente(Entrada entrada, Carrito copia, long generacion) {
+    }
+}
@@ -0,0 +1,346 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.EventoCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.model.SnapshotCarrito;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Almacén de carritos como log append-only de eventos con snapshots periódicos.
+ *
+ * Cada mutación solo inserta sus eventos en eventos_carrito (no actualiza filas), numerados a
+ * continuación del último evento del usuario. El carrito se reconstruye desde su snapshot más
+ * reciente más los eventos posteriores. Cuando se acumulan {@code snapshotCada} eventos desde
+ * el último snapshot, se guarda uno nuevo en segundo plano y en la misma transacción se
+ * compacta el log: se borran los eventos anteriores a la secuencia del snapshot (el de esa
+ * secuencia queda, así cada carrito conserva su último evento). El id del carrito es el de
+ * su primer evento (CREADO, que se inserta antes de aplicar la primera mutación, así cada
+ * mutación se aplica una sola vez por intento) y se guarda en el snapshot.
+ *
+ * Las mutaciones de un usuario se serializan en el nodo con los candados por usuario; entre
+ * nodos, el índice único (usuario_id, secuencia) hace fallar al segundo que escribe y la
+ * mutación se reintenta sobre el log actualizado.
+ */
+public class CarritosPorEventos implements AlmacenCarritos, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CarritosPorEventos.class);
+
+    static final String ERROR_SNAPSHOT_CADA_INVALIDO = "La cantidad de eventos entre snapshots debe ser mayor a cero";
+
+    private final EntityManagerFactory emf;
+    private final CachePeliculas cachePeliculas;
+    private final CandadosPorUsuario candados;
+    private final int snapshotCada;
+    private final ExecutorService snapshots;
+    private final BandejaSalida bandejaSalida;
+
+    public CarritosPorEventos(EntityManagerFactory emf, CachePeliculas cachePeliculas, CandadosPorUsuario candados,
+                              int snapshotCada) {
+        this(emf, cachePeliculas, candados, snapshotCada, BandejaSalida.deshabilitada());
+    }
+
+    public CarritosPorEventos(EntityManagerFactory emf, CachePeliculas cachePeliculas, CandadosPorUsuario candados,
+                              int snapshotCada, BandejaSalida bandejaSalida) {
+        assertSnapshotCadaValido(snapshotCada);
+        this.emf = emf;
+        this.cachePeliculas = cachePeliculas;
+        this.candados = candados;
+        this.snapshotCada = snapshotCada;
+        this.bandejaSalida = bandejaSalida;
+        this.snapshots = Executors.newSingleThreadExecutor(r -> {
+            Thread hilo = new Thread(r, "carritos-snapshots");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    private void assertSnapshotCadaValido(int snapshotCada) {
+        if (snapshotCada <= 0) {
+            throw new RuntimeException(ERROR_SNAPSHOT_CADA_INVALIDO);
+        }
+    }
+
+    @Override
+    public <T> T mutar(String usuarioId, Function<Carrito, T> mutacion) {
+        return candados.conCandado(usuarioId, () ->
+                CarritoService.reintentarConflictos(usuarioId, () -> mutarUnaVez(usuarioId, mutacion), () -> { }));
+    }
+
+    @Override
+    public <T> Optional<T> leer(String usuarioId, Function<Carrito, T> lectura) {
+        try (var em = emf.createEntityManager()) {
+            Estado estado = cargar(em, usuarioId);
+            if (estado.secuencia() == 0) {
+                return Optional.empty();
+            }
+            return Optional.of(lectura.apply(estado.carrito()));
+        }
+    }
+
+    // Los totales se recalculan con los precios del catálogo en cada reconstrucción; a los carritos
+    // que contienen alguna de las películas se les agrega un evento para que cambie su versión.
+    // Candidatos son los usuarios cuyo snapshot tiene alguna de las películas (índice de
+    // pelicula_id en snapshot_items) más los que las agregaron después de su snapshot (índice de
+    // pelicula_id en eventos_carrito), sin recorrer el historial anterior a los snapshots.
+    @Override
+    public int actualizarPrecios(Map<Long, Pelicula> peliculas) {
+        Set<String> candidatos = new LinkedHashSet<>();
+        try (var em = emf.createEntityManager()) {
+            candidatos.addAll(em.createQuery("""
+                            SELECT DISTINCT e.usuarioId FROM EventoCarrito e
+                            WHERE e.peliculaId IN :peliculas AND e.tipo = :agregada
+                              AND e.secuencia > COALESCE((SELECT s.secuencia FROM SnapshotCarrito s
+                                                          WHERE s.usuarioId = e.usuarioId), 0)""", String.class)
+                    .setParameter("peliculas", peliculas.keySet())
+                    .setParameter("agregada", EventoCarrito.Tipo.AGREGADA)
+                    .getResultList());
+            candidatos.addAll(usuariosConSnapshotQueContiene(em, peliculas.keySet()));
+        }
+        int actualizados = 0;
+        for (String usuarioId : candidatos) {
+            // Pudo haber quitado las películas: entonces actualizarPrecios no agrega evento
+            boolean contiene = mutar(usuarioId, carrito -> {
+                carrito.actualizarPrecios(peliculas);
+                return carrito.peliculaIds().stream().anyMatch(peliculas::containsKey);
+            });
+            if (contiene) {
+                actualizados++;
+            }
+        }
+        return actualizados;
+    }
+
+    // La fecha del último evento es la de la última modificación del carrito
+    @Override
+    public List<String> usuariosAbandonados(LocalDateTime limite, String desdeUsuario, int maximo) {
+        try (var em = emf.createEntityManager()) {
+            return em.createQuery("""
+                            SELECT e.usuarioId FROM EventoCarrito e WHERE e.usuarioId > :desde
+                            GROUP BY e.usuarioId HAVING MAX(e.fecha) < :limite ORDER BY e.usuarioId""", String.class)
+                    .setParameter("desde", desdeUsuario)
+                    .setParameter("limite", limite)
+                    .setMaxResults(maximo)
+                    .getResultList();
+        }
+    }
+
+    // Cada usuario con su candado y en su transacción: una mutación en curso en el nodo termina
+    // antes o ve el log vacío, y si agregó un evento reciente el carrito ya no se borra
+    @Override
+    public int eliminarAbandonados(List<String> usuarios, LocalDateTime limite) {
+        int eliminados = 0;
+        for (String usuarioId : usuarios) {
+            if (candados.conCandado(usuarioId, () -> eliminarSiAbandonado(usuarioId, limite))) {
+                eliminados++;
+            }
+        }
+        return eliminados;
+    }
+
+    private boolean eliminarSiAbandonado(String usuarioId, LocalDateTime limite) {
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            try {
+                int eventos = em.createQuery("""
+                                DELETE FROM EventoCarrito e WHERE e.usuarioId = :usuarioId
+                                AND NOT EXISTS (SELECT 1 FROM EventoCarrito r
+                                                WHERE r.usuarioId = :usuarioId AND r.fecha >= :limite)""")
+                        .setParameter("usuarioId", usuarioId)
+                        .setParameter("limite", limite)
+                        .executeUpdate();
+                if (eventos > 0) {
+                    em.createQuery("DELETE FROM SnapshotCarrito s WHERE s.usuarioId = :usuarioId")
+                            .setParameter("usuarioId", usuarioId)
+                            .executeUpdate();
+                }
+                transaction.commit();
+                return eventos > 0;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Espera a que terminen los snapshots pendientes
+    @Override
+    public void close() {
+        snapshots.shutdown();
+        try {
+            snapshots.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> T mutarUnaVez(String usuarioId, Function<Carrito, T> mutacion) {
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            try {
+                Estado estado = cargar(em, usuarioId);
+                Carrito carrito = estado.carrito();
+                long secuencia = estado.secuencia();
+                if (secuencia == 0) {
+                    // Carrito nuevo: su id es el del primer evento del log, que se conoce recién al
+                    // insertarlo. Se reserva con el evento de creación antes de aplicar la mutación.
+                    EventoCarrito creado = EventoCarrito.creado(usuarioId);
+                    creado.numerar(++secuencia);
+                    em.persist(creado);
+                    carrito = Carrito.reconstruir(usuarioId, creado.id(), null, List.of(creado), Map.of());
+                }
+                T resultado = mutacion.apply(carrito);
+
+                List<EventoCarrito> nuevos = carrito.extraerEventos();
+                if (nuevos.isEmpty()) {
+                    // Sin cambios no se escribe nada; un carrito nuevo sin eventos no llega a existir
+                    transaction.rollback();
+                    return resultado;
+                }
+                for (EventoCarrito evento : nuevos) {
+                    evento.numerar(++secuencia);
+                    em.persist(evento);
+                }
+                bandejaSalida.registrar(em, carrito);
+                transaction.commit();
+
+                if (secuencia - estado.secuenciaSnapshot() >= snapshotCada) {
+                    programarSnapshot(SnapshotCarrito.de(carrito, secuencia));
+                }
+                return resultado;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Por el índice de pelicula_id en snapshot_items
+    private static List<String> usuariosConSnapshotQueContiene(EntityManager em, Set<Long> peliculaIds) {
+        return em.createQuery("""
+                        SELECT DISTINCT s.usuarioId FROM SnapshotCarrito s JOIN s.items i
+                        WHERE i.peliculaId IN :peliculas""", String.class)
+                .setParameter("peliculas", peliculaIds)
+                .getResultList();
+    }
+
+    // Sin transacción, el snapshot y los eventos se leen en consultas separadas: si entre las
+    // dos se guardó un snapshot nuevo y se compactó el log, los eventos leídos no continúan al
+    // snapshot leído y se vuelve a cargar
+    private Estado cargar(EntityManager em, String usuarioId) {
+        while (true) {
+            SnapshotCarrito snapshot = em.find(SnapshotCarrito.class, usuarioId);
+            long secuenciaSnapshot = snapshot == null ? 0 : snapshot.secuencia();
+            List<EventoCarrito> eventos = em.createQuery("FROM EventoCarrito WHERE usuarioId = :usuarioId " +
+                            "AND secuencia > :desde ORDER BY secuencia", EventoCarrito.class)
+                    .setParameter("usuarioId", usuarioId)
+                    .setParameter("desde", secuenciaSnapshot)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .getResultList();
+            if (!eventos.isEmpty() && eventos.get(0).secuencia() != secuenciaSnapshot + 1) {
+                em.clear();
+                continue;
+            }
+
+            Carrito carrito = Carrito.reconstruir(usuarioId, carritoId(em, usuarioId, snapshot, eventos), snapshot,
+                    eventos, buscarPeliculas(em, snapshot, eventos));
+            long secuencia = eventos.isEmpty() ? secuenciaSnapshot : eventos.get(eventos.size() - 1).secuencia();
+            return new Estado(carrito, secuencia, secuenciaSnapshot);
+        }
+    }
+
+    // El id del carrito es el de su primer evento; el snapshot lo conserva cuando el log se compacta
+    private static Long carritoId(EntityManager em, String usuarioId, SnapshotCarrito snapshot,
+                                  List<EventoCarrito> eventos) {
+        if (snapshot == null) {
+            return eventos.isEmpty() ? null : eventos.get(0).id();
+        }
+        if (snapshot.carritoId() != null) {
+            return snapshot.carritoId();
+        }
+        // Snapshot anterior al id: el log todavía no se compactó
+        return em.createQuery("SELECT MIN(e.id) FROM EventoCarrito e WHERE e.usuarioId = :usuarioId", Long.class)
+                .setParameter("usuarioId", usuarioId)
+                .getSingleResult();
+    }
+
+    // Las películas del snapshot y de los eventos, de la cache o con una única consulta IN
+    private Map<Long, Pelicula> buscarPeliculas(EntityManager em, SnapshotCarrito snapshot, List<EventoCarrito> eventos) {
+        Set<Long> ids = new HashSet<>();
+        if (snapshot != null) {
+            ids.addAll(snapshot.cantidades().keySet());
+        }
+        for (EventoCarrito evento : eventos) {
+            if (evento.tipo() == EventoCarrito.Tipo.AGREGADA) {
+                ids.add(evento.peliculaId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return cachePeliculas.obtenerTodas(ids, pendientes ->
+                em.createQuery("FROM Pelicula WHERE id IN :ids", Pelicula.class)
+                        .setParameter("ids", pendientes)
+                        .getResultList());
+    }
+
+    private void programarSnapshot(SnapshotCarrito snapshot) {
+        snapshots.execute(() -> guardarSnapshot(snapshot));
+    }
+
+    // Un snapshot que no se guarda solo hace más largo el log a reproducir: se reintenta
+    // con el próximo evento del usuario
+    private void guardarSnapshot(SnapshotCarrito snapshot) {
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            try {
+                SnapshotCarrito actual = em.find(SnapshotCarrito.class, snapshot.usuarioId());
+                boolean guardado = actual == null || actual.actualizar(snapshot);
+                if (actual == null) {
+                    em.persist(snapshot);
+                }
+                int compactados = !guardado ? 0 : em.createQuery("DELETE FROM EventoCarrito e " +
+                                "WHERE e.usuarioId = :usuarioId AND e.secuencia < :secuencia")
+                        .setParameter("usuarioId", snapshot.usuarioId())
+                        .setParameter("secuencia", snapshot.secuencia())
+                        .executeUpdate();
+                transaction.commit();
+                logger.debug("Snapshot del carrito de {} en la secuencia {}, {} eventos compactados",
+                        snapshot.usuarioId(), snapshot.secuencia(), compactados);
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ No se pudo guardar el snapshot del carrito de {}: {}", snapshot.usuarioId(), e.getMessage());
+        }
+    }
+
+    private record Estado(Carrito carrito, long secuencia, long secuenciaSnapshot) {
+    }
+}
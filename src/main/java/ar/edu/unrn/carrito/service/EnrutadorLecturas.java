@@ -0,0 +1,158 @@
+package ar.edu.unrn.carrito.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Elige el EntityManagerFactory de cada lectura: la réplica para lecturas puras y la
+ * primaria para todo lo demás.
+ *
+ * Un usuario que acaba de escribir lee de la primaria durante {@code ventanaLecturaPropia}
+ * (read-your-writes dentro del nodo). Si el retraso de la réplica supera
+ * {@code retrasoMaximo} o no se puede medir (p. ej. la réplica no responde), se lee de la primaria.
+ * El retraso lo mide una tarea en segundo plano cada {@code INTERVALO_MEDICION}; las lecturas
+ * solo consultan el último resultado y nunca esperan a la medición. Si la última medición tiene
+ * más de {@code VIGENCIA_MEDICION} (la tarea quedó trabada esperando a la réplica), se lee de la primaria.
+ */
+public class EnrutadorLecturas implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnrutadorLecturas.class);
+
+    static final Duration INTERVALO_MEDICION = Duration.ofSeconds(1);
+    static final Duration VIGENCIA_MEDICION = INTERVALO_MEDICION.multipliedBy(5);
+    static final int LIMITE_ESCRITURAS_RECIENTES = 100_000;
+
+    private final EntityManagerFactory primaria;
+    private final EntityManagerFactory replica;
+    private final long ventanaLecturaPropiaNanos;
+    private final Duration retrasoMaximo;
+    private final Supplier<Optional<Duration>> medidorRetraso;
+
+    // usuarioId -> System.nanoTime() hasta el que sus lecturas van a la primaria
+    private final Map<String, Long> escriturasRecientes = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService medicion;
+
+    private volatile boolean replicaAlDia;
+    private volatile long medicionVigenteHastaNanos = System.nanoTime();
+
+    public EnrutadorLecturas(EntityManagerFactory primaria, EntityManagerFactory replica, Duration ventanaLecturaPropia,
+                             Duration retrasoMaximo, Supplier<Optional<Duration>> medidorRetraso) {
+        this.primaria = primaria;
+        this.replica = replica;
+        this.ventanaLecturaPropiaNanos = ventanaLecturaPropia.toNanos();
+        this.retrasoMaximo = retrasoMaximo;
+        this.medidorRetraso = medidorRetraso;
+        this.medicion = replica == null ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "replica-retraso");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        if (medicion != null) {
+            medicion.scheduleWithFixedDelay(this::medirRetrasoSeguro, 0, INTERVALO_MEDICION.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Sin réplica configurada todas las lecturas van a la primaria
+    public static EnrutadorLecturas soloPrimaria(EntityManagerFactory primaria) {
+        return new EnrutadorLecturas(primaria, null, Duration.ZERO, Duration.ZERO, Optional::empty);
+    }
+
+    // Retraso informado por la réplica de MariaDB (Seconds_Behind_Master); vacío si no replica
+    public static Supplier<Optional<Duration>> retrasoMariaDb(DataSource replica) {
+        return () -> {
+            try (var conexion = replica.getConnection();
+                 var statement = conexion.createStatement();
+                 var resultado = statement.executeQuery("SHOW REPLICA STATUS")) {
+                if (!resultado.next()) {
+                    return Optional.empty();
+                }
+                long segundos = resultado.getLong("Seconds_Behind_Master");
+                return resultado.wasNull() ? Optional.empty() : Optional.of(Duration.ofSeconds(segundos));
+            } catch (SQLException e) {
+                logger.warn("No se pudo medir el retraso de la réplica: {}", e.getMessage());
+                return Optional.empty();
+            }
+        };
+    }
+
+    public EntityManager paraLectura(String usuarioId) {
+        if (replica == null || escribioRecientemente(usuarioId) || !replicaAlDia()) {
+            return primaria.createEntityManager();
+        }
+        return replica.createEntityManager();
+    }
+
+    // Llamar después de confirmar una escritura del usuario
+    public void registrarEscritura(String usuarioId) {
+        if (replica == null) {
+            return;
+        }
+        long ahora = System.nanoTime();
+        if (escriturasRecientes.size() >= LIMITE_ESCRITURAS_RECIENTES) {
+            escriturasRecientes.values().removeIf(hasta -> hasta - ahora <= 0);
+        }
+        escriturasRecientes.put(usuarioId, ahora + ventanaLecturaPropiaNanos);
+    }
+
+    private boolean escribioRecientemente(String usuarioId) {
+        Long hasta = escriturasRecientes.get(usuarioId);
+        if (hasta == null) {
+            return false;
+        }
+        if (hasta - System.nanoTime() > 0) {
+            return true;
+        }
+        escriturasRecientes.remove(usuarioId, hasta);
+        return false;
+    }
+
+    private boolean replicaAlDia() {
+        return replicaAlDia && medicionVigenteHastaNanos - System.nanoTime() > 0;
+    }
+
+    // Solo desde la tarea de medición (y los tests): las lecturas nunca la llaman
+    void medirRetraso() {
+        Optional<Duration> retraso = medidorRetraso.get();
+        boolean alDia = retraso.isPresent() && retraso.get().compareTo(retrasoMaximo) <= 0;
+        if (alDia != replicaAlDia) {
+            logger.info(alDia ? "✅ Réplica al día ({}), las lecturas vuelven a la réplica"
+                            : "⚠️ Réplica atrasada o sin medición ({}), las lecturas van a la primaria",
+                    retraso.map(Duration::toString).orElse("desconocido"));
+        }
+        medicionVigenteHastaNanos = System.nanoTime() + VIGENCIA_MEDICION.toNanos();
+        replicaAlDia = alDia;
+    }
+
+    private void medirRetrasoSeguro() {
+        try {
+            medirRetraso();
+        } catch (Exception e) {
+            replicaAlDia = false;
+            logger.warn("No se pudo medir el retraso de la réplica: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (medicion != null) {
+            medicion.shutdownNow();
+        }
+        if (replica != null) {
+            replica.close();
+        }
+    }
+}
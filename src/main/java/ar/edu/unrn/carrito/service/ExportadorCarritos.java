@@ -0,0 +1,130 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.web.CarritoDetalle;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Exporta los carritos con sus items como NDJSON (un CarritoDetalle por línea).
+ *
+ * Recorre la tabla por rangos de id en lotes de {@code tamanioLote}: cada lote trae los
+ * ids siguientes y luego esos carritos con items y películas en una sola consulta de solo
+ * lectura. Cada lote usa su propio EntityManager, que se cierra (y devuelve su conexión al
+ * pool) antes de escribir el lote en la salida: un cliente lento no retiene una conexión
+ * durante toda la exportación y la memoria usada no depende del tamaño de la tabla.
+ */
+public class ExportadorCarritos {
+
+    static final String ERROR_TAMANIO_LOTE_INVALIDO = "El tamaño de lote de la exportación debe ser mayor a cero";
+    static final String ERROR_RANGO_USUARIOS_INVALIDO = "El usuario inicial del rango debe ser menor al final";
+
+    private final EntityManagerFactory emf;
+    private final ObjectWriter writer;
+    private final int tamanioLote;
+
+    public ExportadorCarritos(EntityManagerFactory emf, ObjectMapper objectMapper, int tamanioLote) {
+        assertTamanioLoteValido(tamanioLote);
+        this.emf = emf;
+        // Cada línea se escribe en el buffer del generador; se vacía una vez por lote.
+        // Sin separador entre valores raíz: el fin de línea lo escribe exportar
+        this.writer = objectMapper.writer()
+                .withRootValueSeparator((String) null)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.tamanioLote = tamanioLote;
+    }
+
+    private void assertTamanioLoteValido(int tamanioLote) {
+        if (tamanioLote <= 0) {
+            throw new RuntimeException(ERROR_TAMANIO_LOTE_INVALIDO);
+        }
+    }
+
+    private void assertRangoUsuariosValido(FiltroExportacion filtro) {
+        if (filtro.usuarioDesde() != null && filtro.usuarioHasta() != null
+                && filtro.usuarioDesde().compareTo(filtro.usuarioHasta()) >= 0) {
+            throw new RuntimeException(ERROR_RANGO_USUARIOS_INVALIDO);
+        }
+    }
+
+    // Escribe los carritos que cumplen el filtro y devuelve cuántos se exportaron.
+    // La salida no se cierra: pertenece a quien la pasa (la respuesta HTTP o un archivo).
+    public long exportar(FiltroExportacion filtro, OutputStream salida) throws IOException {
+        assertRangoUsuariosValido(filtro);
+
+        long exportados = 0;
+        long ultimoId = 0;
+        try (JsonGenerator generador = writer.createGenerator(salida)) {
+            generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (true) {
+                List<Long> ids;
+                List<CarritoDetalle> detalles;
+                try (var em = emf.createEntityManager()) {
+                    ids = siguientesIds(em, filtro, ultimoId);
+                    if (ids.isEmpty()) {
+                        generador.flush();
+                        return exportados;
+                    }
+                    detalles = cargarDetalles(em, ids);
+                }
+
+                for (CarritoDetalle detalle : detalles) {
+                    writer.writeValue(generador, detalle);
+                    generador.writeRaw('\n');
+                    exportados++;
+                }
+                generador.flush();
+                ultimoId = ids.get(ids.size() - 1);
+            }
+        }
+    }
+
+    private static List<CarritoDetalle> cargarDetalles(EntityManager em, List<Long> ids) {
+        return em.createQuery("SELECT DISTINCT c FROM Carrito c LEFT JOIN FETCH c.itemsPrivados i " +
+                        "LEFT JOIN FETCH i.pelicula WHERE c.id IN :ids ORDER BY c.id", Carrito.class)
+                .setParameter("ids", ids)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(Carrito::toCarritoDetalle)
+                .toList();
+    }
+
+    private List<Long> siguientesIds(EntityManager em, FiltroExportacion filtro, long ultimoId) {
+        StringBuilder jpql = new StringBuilder("SELECT c.id FROM Carrito c WHERE c.id > :ultimoId");
+        if (filtro.modificadoDesde() != null) {
+            jpql.append(" AND c.fechaModificacion >= :modificadoDesde");
+        }
+        if (filtro.usuarioDesde() != null) {
+            jpql.append(" AND c.usuarioId >= :usuarioDesde");
+        }
+        if (filtro.usuarioHasta() != null) {
+            jpql.append(" AND c.usuarioId < :usuarioHasta");
+        }
+        jpql.append(" ORDER BY c.id");
+
+        TypedQuery<Long> query = em.createQuery(jpql.toString(), Long.class)
+                .setParameter("ultimoId", ultimoId)
+                .setMaxResults(tamanioLote);
+        if (filtro.modificadoDesde() != null) {
+            query.setParameter("modificadoDesde", filtro.modificadoDesde());
+        }
+        if (filtro.usuarioDesde() != null) {
+            query.setParameter("usuarioDesde", filtro.usuarioDesde());
+        }
+        if (filtro.usuarioHasta() != null) {
+            query.setParameter("usuarioHasta", filtro.usuarioHasta());
+        }
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,18 @@
+package ar.edu.unrn.carrito.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filtros opcionales de la exportación de carritos (null = sin filtro).
+ * El rango de usuarios incluye usuarioDesde y excluye usuarioHasta, así rangos
+ * consecutivos particionan la tabla sin solaparse.
+ */
+public record FiltroExportacion(
+        LocalDateTime modificadoDesde,
+        String usuarioDesde,
+        String usuarioHasta
+) {
+    public static FiltroExportacion todos() {
+        return new FiltroExportacion(null, null, null);
+    }
+}
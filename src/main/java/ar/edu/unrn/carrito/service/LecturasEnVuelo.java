@@ -0,0 +1,70 @@
+package ar.edu.unrn.carrito.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Lecturas compartidas por clave (single-flight): si ya hay una lectura en curso para la
+ * clave, las llamadas concurrentes esperan su resultado en lugar de repetir la consulta.
+ * No es una cache: la entrada se quita apenas termina la lectura.
+ *
+ * Después de confirmar una escritura hay que llamar a {@link #invalidar}: la lectura en curso
+ * pudo haber leído el estado anterior, así que las que lleguen desde ese momento arrancan una
+ * nueva. Las que ya estaban esperando reciben el resultado viejo, que era el vigente cuando llegaron.
+ * Los resultados se comparten entre threads, así que deben ser inmutables.
+ */
+class LecturasEnVuelo<T> {
+
+    private final ConcurrentHashMap<String, CompletableFuture<T>> enVuelo = new ConcurrentHashMap<>();
+    private final Runnable alCompartir;
+
+    LecturasEnVuelo(Runnable alCompartir) {
+        this.alCompartir = alCompartir;
+    }
+
+    T leer(String clave, Supplier<T> lectura) {
+        CompletableFuture<T> propia = new CompletableFuture<>();
+        CompletableFuture<T> enCurso = enVuelo.putIfAbsent(clave, propia);
+        if (enCurso != null) {
+            alCompartir.run();
+            return esperar(enCurso);
+        }
+
+        try {
+            T resultado = lectura.get();
+            propia.complete(resultado);
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            enVuelo.remove(clave, propia);
+        }
+    }
+
+    void invalidar(String clave) {
+        enVuelo.remove(clave);
+    }
+
+    // Para escrituras que afectan a muchas claves (p. ej. un cambio de precio)
+    void invalidarTodas() {
+        enVuelo.clear();
+    }
+
+    // Quien espera recibe la misma excepción que la lectura compartida
+    private static <T> T esperar(CompletableFuture<T> enCurso) {
+        try {
+            return enCurso.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ar.edu.unrn.carrito.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métricas de las operaciones de CarritoService.
+ *
+ * Cada operación registra un timer carrito.servicio (tags operacion y resultado) con
+ * histograma de percentiles, y los errores un contador carrito.servicio.errores por tipo
+ * de excepción. Las mutaciones registran la distribución de tamaños del carrito
+ * resultante (items y total) y los reintentos por conflicto de versión. Las lecturas que
+ * se suman a una lectura en curso del mismo usuario se cuentan en carrito.servicio.lecturas.compartidas.
+ */
+public class MetricasCarrito {
+
+    static final String TIMER_SERVICIO = "carrito.servicio";
+    static final String CONTADOR_ERRORES = "carrito.servicio.errores";
+    static final String CONTADOR_CONFLICTOS = "carrito.servicio.conflictos";
+    static final String CONTADOR_LECTURAS_COMPARTIDAS = "carrito.servicio.lecturas.compartidas";
+    static final String RESUMEN_ITEMS = "carrito.tamanio.items";
+    static final String RESUMEN_TOTAL = "carrito.tamanio.total";
+
+    private final MeterRegistry registro;
+    private final Counter conflictos;
+    private final Counter lecturasCompartidas;
+    private final DistributionSummary items;
+    private final DistributionSummary total;
+
+    public MetricasCarrito(MeterRegistry registro) {
+        this.registro = registro;
+        this.conflictos = Counter.builder(CONTADOR_CONFLICTOS)
+                .description("Mutaciones reintentadas por conflicto de versión del carrito")
+                .register(registro);
+        this.lecturasCompartidas = Counter.builder(CONTADOR_LECTURAS_COMPARTIDAS)
+                .description("Lecturas del carrito resueltas con el resultado de otra lectura en curso")
+                .register(registro);
+        this.items = DistributionSummary.builder(RESUMEN_ITEMS)
+                .description("Cantidad de items del carrito después de cada mutación")
+                .publishPercentileHistogram()
+                .register(registro);
+        this.total = DistributionSummary.builder(RESUMEN_TOTAL)
+                .description("Total del carrito después de cada mutación")
+                .publishPercentileHistogram()
+                .register(registro);
+    }
+
+    // Sin registro: los meters de un CompositeMeterRegistry sin hijos no registran nada
+    public static MetricasCarrito deshabilitadas() {
+        return new MetricasCarrito(new CompositeMeterRegistry());
+    }
+
+    public <T> T medir(String operacion, Supplier<T> accion) {
+        long inicio = registro.config().clock().monotonicTime();
+        String resultado = "ok";
+        try {
+            return accion.get();
+        } catch (RuntimeException e) {
+            resultado = "error";
+            registro.counter(CONTADOR_ERRORES, "operacion", operacion, "excepcion", e.getClass().getSimpleName())
+                    .increment();
+            throw e;
+        } finally {
+            long duracion = registro.config().clock().monotonicTime() - inicio;
+            timer(operacion, resultado).record(duracion, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void medir(String operacion, Runnable accion) {
+        medir(operacion, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    void registrarConflicto() {
+        conflictos.increment();
+    }
+
+    void registrarLecturaCompartida() {
+        lecturasCompartidas.increment();
+    }
+
+    void registrarTamanio(Integer cantidadItems, BigDecimal totalCarrito) {
+        items.record(cantidadItems == null ? 0 : cantidadItems);
+        total.record(totalCarrito == null ? 0 : totalCarrito.doubleValue());
+    }
+
+    private Timer timer(String operacion, String resultado) {
+        // El registro devuelve el mismo timer para el mismo nombre y tags
+        return Timer.builder(TIMER_SERVICIO)
+                .description("Duración de las operaciones de CarritoService")
+                .tags("operacion", operacion, "resultado", resultado)
+                .publishPercentileHistogram()
+                .register(registro);
+    }
+}
@@ -0,0 +1,112 @@
+package ar.edu.unrn.carrito.utils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compuerta de concurrencia delante de la base de datos para el modo de virtual threads.
+ *
+ * Envuelve el DataSource: cada conexión que se pide toma un permiso y lo devuelve al
+ * cerrarse. Con tantos permisos como conexiones tiene el pool, miles de requests en
+ * virtual threads esperan en el semáforo (barato, sin bloquear un carrier thread) en
+ * lugar de acumularse en el pool de conexiones hasta su timeout.
+ *
+ * El permiso sigue a la conexión y no al EntityManager: un EntityManager que no llega a
+ * la base (lecturas resueltas por cache) no ocupa permisos, y abrir uno anidado mientras
+ * el externo no tiene conexión no se bloquea. Un EntityManager con una transacción abierta
+ * sí retiene su permiso, igual que retiene su conexión del pool.
+ */
+public class CompuertaJdbc {
+
+    static final String ERROR_PERMISOS_INVALIDOS = "La compuerta JDBC necesita al menos un permiso";
+    static final String ERROR_TIMEOUT = "Tiempo de espera agotado esperando acceso a la base de datos";
+
+    private final Semaphore permisos;
+    private final long timeoutMs;
+
+    public CompuertaJdbc(int permisos, long timeoutMs) {
+        assertPermisosValidos(permisos);
+        this.permisos = new Semaphore(permisos, true);
+        this.timeoutMs = timeoutMs;
+    }
+
+    private void assertPermisosValidos(int permisos) {
+        if (permisos <= 0) {
+            throw new RuntimeException(ERROR_PERMISOS_INVALIDOS);
+        }
+    }
+
+    // Devuelve un DataSource cuyas conexiones pasan por la compuerta
+    public DataSource envolver(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(
+                DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("getConnection")) {
+                        return invocar(dataSource, method, args);
+                    }
+                    adquirir();
+                    try {
+                        return conPermiso((Connection) invocar(dataSource, method, args));
+                    } catch (Throwable e) {
+                        permisos.release();
+                        throw e;
+                    }
+                });
+    }
+
+    public int permisosDisponibles() {
+        return permisos.availablePermits();
+    }
+
+    public int esperando() {
+        return permisos.getQueueLength();
+    }
+
+    private Connection conPermiso(Connection conexion) {
+        AtomicBoolean liberado = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                try {
+                    return invocar(conexion, method, args);
+                } finally {
+                    if (liberado.compareAndSet(false, true)) {
+                        permisos.release();
+                    }
+                }
+            }
+            return invocar(conexion, method, args);
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    // Falla como el pool cuando se agota su timeout, así Hibernate lo trata igual
+    private void adquirir() throws SQLException {
+        try {
+            if (!permisos.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(ERROR_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException(ERROR_TIMEOUT, e);
+        }
+    }
+
+    private static Object invocar(Object destino, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
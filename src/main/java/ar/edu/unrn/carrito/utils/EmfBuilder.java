@@ -2,9 +2,14 @@ package ar.edu.unrn.carrito.utils;
 
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.PersistenceConfiguration;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.BatchSettings;
 import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.cfg.StatisticsSettings;
 import org.hibernate.tool.schema.Action;
 
+import javax.sql.DataSource;
+
 /**
  * EmfBuilder centraliza la configuración de la base de datos.
  * Por defecto usa MariaDB (para desarrollo y producción).
@@ -20,8 +25,12 @@ public class EmfBuilder {
     public static final String DB_PWD = "";
     public static final String IN_MEMORY_DB_URL = "jdbc:h2:mem:carrito;MODE=MySQL;DB_CLOSE_DELAY=-1";
     public static final String CLIENT_DB_URL = "jdbc:mariadb://localhost:3306/carrito";
+    public static final int JDBC_BATCH_SIZE = 50;
+    public static final String MIGRACIONES = "classpath:db/migracion";
     private EntityManagerFactory emf;
     private PersistenceConfiguration config;
+    private DataSource dataSource;
+    private boolean migraciones;
 
     public EmfBuilder() {
         config = new PersistenceConfiguration("peliculas")
@@ -30,6 +39,10 @@ public class EmfBuilder {
                 .property(JdbcSettings.SHOW_SQL, true)
                 .property(JdbcSettings.FORMAT_SQL, true)
                 .property(JdbcSettings.HIGHLIGHT_SQL, true)
+                // Agrupa los INSERT/UPDATE en batches JDBC (las entidades con IDENTITY no se agrupan)
+                .property(BatchSettings.STATEMENT_BATCH_SIZE, JDBC_BATCH_SIZE)
+                .property(BatchSettings.ORDER_INSERTS, true)
+                .property(BatchSettings.ORDER_UPDATES, true)
                 .property(PersistenceConfiguration.JDBC_URL, CLIENT_DB_URL)
                 .property(PersistenceConfiguration.SCHEMAGEN_DATABASE_ACTION, Action.CREATE)
                 .property("hibernate.dialect", "org.hibernate.dialect.MariaDBDialect")
@@ -46,17 +59,80 @@ public class EmfBuilder {
         return this;
     }
 
+    /**
+     * Obtiene las conexiones de un pool (ver PoolConexionesBuilder) en lugar de la URL JDBC.
+     * El pool pertenece a quien lo crea: cerrar el EntityManagerFactory no lo cierra.
+     */
+    public EmfBuilder withDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+        return this;
+    }
+
     public EmfBuilder addClass(Class<?> clazz) {
         config.managedClass(clazz);
         return this;
     }
 
+    /**
+     * Habilita las estadísticas de Hibernate (consultas, sentencias preparadas, cargas de entidades).
+     */
+    public EmfBuilder withStatistics() {
+        config.property(StatisticsSettings.GENERATE_STATISTICS, true);
+        return this;
+    }
+
+    /**
+     * Aplica las migraciones versionadas de db/migracion antes de crear el EntityManagerFactory
+     * y deja a Hibernate solo validando el esquema. Las bases creadas antes de las migraciones
+     * se toman como línea base en la versión 1.
+     */
+    public EmfBuilder withMigrations() {
+        this.migraciones = true;
+        return this;
+    }
+
+    /**
+     * No imprime el SQL por consola (p. ej. cuando la salida estándar lleva datos, como en ExportarCarritos).
+     */
+    public EmfBuilder withOutShowSql() {
+        config.property(JdbcSettings.SHOW_SQL, false);
+        return this;
+    }
+
     public EmfBuilder withOutChangeSchema() {
         config.property(PersistenceConfiguration.SCHEMAGEN_DATABASE_ACTION, Action.NONE);
         return this;
     }
 
     public EntityManagerFactory build() {
+        if (migraciones) {
+            migrar();
+            config.property(PersistenceConfiguration.SCHEMAGEN_DATABASE_ACTION, Action.VALIDATE);
+        }
+        if (dataSource != null) {
+            // Hibernate prioriza la URL JDBC sobre el DataSource, así que se quitan las propiedades de conexión
+            config.properties().remove(PersistenceConfiguration.JDBC_URL);
+            config.properties().remove(PersistenceConfiguration.JDBC_DRIVER);
+            config.properties().remove(PersistenceConfiguration.JDBC_USER);
+            config.properties().remove(PersistenceConfiguration.JDBC_PASSWORD);
+            config.property(JdbcSettings.DATASOURCE, dataSource);
+        }
         return config.createEntityManagerFactory();
     }
+
+    private void migrar() {
+        var flyway = Flyway.configure()
+                .locations(MIGRACIONES)
+                .baselineOnMigrate(true)
+                .baselineVersion("1");
+        if (dataSource != null) {
+            flyway.dataSource(dataSource);
+        } else {
+            var propiedades = config.properties();
+            flyway.dataSource((String) propiedades.get(PersistenceConfiguration.JDBC_URL),
+                    (String) propiedades.get(PersistenceConfiguration.JDBC_USER),
+                    (String) propiedades.get(PersistenceConfiguration.JDBC_PASSWORD));
+        }
+        flyway.load().migrate();
+    }
 }
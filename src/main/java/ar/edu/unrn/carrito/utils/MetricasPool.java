@@ -0,0 +1,64 @@
+package ar.edu.unrn.carrito.utils;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas del pool de conexiones: conexiones activas, ociosas y pendientes
+ * (threads esperando una conexión), y tiempo de espera para obtener una conexión.
+ */
+public class MetricasPool implements MetricsTrackerFactory {
+
+    private volatile PoolStats poolStats;
+    private final LongAdder adquisiciones = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final LongAccumulator esperaMaximaNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder timeouts = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                adquisiciones.increment();
+                esperaTotalNanos.add(elapsedAcquiredNanos);
+                esperaMaximaNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public Estadisticas estadisticas() {
+        PoolStats stats = poolStats;
+        long cantidad = adquisiciones.sum();
+        return new Estadisticas(
+                stats == null ? 0 : stats.getActiveConnections(),
+                stats == null ? 0 : stats.getIdleConnections(),
+                stats == null ? 0 : stats.getPendingThreads(),
+                cantidad,
+                cantidad == 0 ? 0 : esperaTotalNanos.sum() / cantidad,
+                esperaMaximaNanos.get(),
+                timeouts.sum()
+        );
+    }
+
+    public record Estadisticas(
+            int activas,
+            int ociosas,
+            int pendientes,
+            long adquisiciones,
+            long esperaPromedioNanos,
+            long esperaMaximaNanos,
+            long timeouts
+    ) {
+    }
+}
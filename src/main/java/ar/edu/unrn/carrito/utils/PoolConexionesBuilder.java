@@ -0,0 +1,108 @@
+package ar.edu.unrn.carrito.utils;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * PoolConexionesBuilder arma el pool de conexiones (HikariCP) que usa EmfBuilder.
+ * Por defecto apunta a MariaDB con cache de sentencias preparadas del driver.
+ *
+ * Ejemplo:
+ *   var metricas = new MetricasPool();
+ *   var dataSource = new PoolConexionesBuilder().tamanio(5, 20).metricas(metricas).build();
+ *   new EmfBuilder().withDataSource(dataSource).addClass(...).build();
+ */
+public class PoolConexionesBuilder {
+
+    static final String ERROR_TAMANIO_INVALIDO = "El tamaño del pool debe cumplir 0 <= mínimo <= máximo y máximo > 0";
+    static final String ERROR_TIMEOUT_INVALIDO = "El timeout de conexión debe ser de al menos 250 ms";
+
+    private String url = EmfBuilder.CLIENT_DB_URL;
+    private String driver = "org.mariadb.jdbc.Driver";
+    private String usuario = EmfBuilder.DB_USER;
+    private String password = EmfBuilder.DB_PWD;
+    private int minimo = 5;
+    private int maximo = 20;
+    private long timeoutConexionMs = 3_000;
+    private int cacheSentencias = 250;
+    private MetricasPool metricas;
+
+    /**
+     * Usar solo en tests: apunta el pool a H2 en memoria.
+     */
+    public PoolConexionesBuilder memory() {
+        this.url = EmfBuilder.IN_MEMORY_DB_URL;
+        this.driver = "org.h2.Driver";
+        return this;
+    }
+
+    public PoolConexionesBuilder url(String url) {
+        this.url = url;
+        return this;
+    }
+
+    public PoolConexionesBuilder credenciales(String usuario, String password) {
+        this.usuario = usuario;
+        this.password = password;
+        return this;
+    }
+
+    public PoolConexionesBuilder tamanio(int minimo, int maximo) {
+        assertTamanioValido(minimo, maximo);
+        this.minimo = minimo;
+        this.maximo = maximo;
+        return this;
+    }
+
+    public PoolConexionesBuilder timeoutConexion(long timeoutConexionMs) {
+        assertTimeoutValido(timeoutConexionMs);
+        this.timeoutConexionMs = timeoutConexionMs;
+        return this;
+    }
+
+    // Cantidad de sentencias preparadas cacheadas por conexión; 0 la deshabilita
+    public PoolConexionesBuilder cacheSentencias(int cacheSentencias) {
+        this.cacheSentencias = cacheSentencias;
+        return this;
+    }
+
+    public PoolConexionesBuilder metricas(MetricasPool metricas) {
+        this.metricas = metricas;
+        return this;
+    }
+
+    public HikariDataSource build() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("carrito-pool");
+        config.setJdbcUrl(url);
+        config.setDriverClassName(driver);
+        config.setUsername(usuario);
+        config.setPassword(password);
+        config.setMinimumIdle(minimo);
+        config.setMaximumPoolSize(maximo);
+        config.setConnectionTimeout(timeoutConexionMs);
+
+        if (url.startsWith("jdbc:mariadb:")) {
+            boolean cachear = cacheSentencias > 0;
+            config.addDataSourceProperty("cachePrepStmts", cachear);
+            config.addDataSourceProperty("prepStmtCacheSize", cacheSentencias);
+            config.addDataSourceProperty("useServerPrepStmts", cachear);
+        }
+        if (metricas != null) {
+            config.setMetricsTrackerFactory(metricas);
+        }
+        return new HikariDataSource(config);
+    }
+
+    private void assertTamanioValido(int minimo, int maximo) {
+        if (minimo < 0 || maximo <= 0 || minimo > maximo) {
+            throw new RuntimeException(ERROR_TAMANIO_INVALIDO);
+        }
+    }
+
+    private void assertTimeoutValido(long timeoutConexionMs) {
+        if (timeoutConexionMs < 250) {
+            throw new RuntimeException(ERROR_TIMEOUT_INVALIDO);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ar.edu.unrn.carrito.web;
+
+import java.util.List;
+
+public record AgregadoMultipleInfo(
+        CarritoInfo carrito,
+        List<ErrorPeliculaInfo> errores
+) {}
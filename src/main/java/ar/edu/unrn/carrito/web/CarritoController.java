@@ -2,9 +2,19 @@ package ar.edu.unrn.carrito.web;
 
 import ar.edu.unrn.carrito.service.CarritoService;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 @CrossOrigin(origins = "http://localhost:5173")
 @RestController
@@ -17,14 +27,42 @@ public class CarritoController {
     }
 
     static final String ERROR_CARRITO_NO_ENCONTRADO = "Carrito no encontrado";
+    static final String SUFIJO_ETAG_CBOR = "-cbor";
+
+    // El cuerpo depende del Accept (JSON o CBOR): los caches intermedios deben guardar una
+    // copia por formato y no servir el CBOR a quien pidió JSON
+    @ModelAttribute
+    void variarSegunAccept(HttpServletResponse response) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
 
+    // GET condicional: si el If-None-Match coincide con la versión del carrito responde 304
+    // sin cargar items ni películas. La versión se lee antes que el detalle, así que a lo sumo
+    // queda atrasada respecto del cuerpo y el próximo GET lo devuelve completo. Un usuario sin
+    // carrito recibe uno vacío sin tocar la base: la fila se crea con la primera mutación.
+    // El ETag es fuerte, así que distingue la representación: la versión CBOR lleva un sufijo.
     @GetMapping
-    public CarritoDetalle obtenerCarrito(@AuthenticationPrincipal Jwt jwt) {
+    public CarritoDetalle obtenerCarrito(@AuthenticationPrincipal Jwt jwt, WebRequest request) {
         // Extraer el ID del usuario desde el JWT (usando el 'sub' que es el identificador único)
         String usuarioId = jwt.getSubject();
 
+        Optional<String> version = carritoService.obtenerVersionCarrito(usuarioId);
+        if (version.isPresent()
+                && request.checkNotModified(version.get() + sufijoRepresentacion(request.getHeader(HttpHeaders.ACCEPT)))) {
+            return null;
+        }
+
         return carritoService.obtenerCarrito(usuarioId)
-                .orElseGet(() -> carritoService.crearCarritoVacio(usuarioId));
+                .orElseGet(() -> CarritoDetalle.vacio(usuarioId));
+    }
+
+    // Resumen liviano (cantidad y total) para badges: no carga los items del carrito
+    @GetMapping("/resumen")
+    public CarritoInfo obtenerResumenCarrito(@AuthenticationPrincipal Jwt jwt) {
+        String usuarioId = jwt.getSubject();
+
+        return carritoService.obtenerResumenCarrito(usuarioId)
+                .orElseGet(() -> CarritoInfo.vacio(usuarioId));
     }
 
     @PostMapping("/agregar/{peliculaId}")
@@ -35,4 +73,40 @@ public class CarritoController {
 
         return carritoService.agregarPeliculaDesdeCatalogo(peliculaId, usuarioId);
     }
+
+    // Agrega varias películas en una sola request; los ids inválidos se informan en 'errores'
+    @PostMapping("/agregar")
+    public AgregadoMultipleInfo agregarPeliculasDesdeCatalogo(@RequestBody List<PeliculaAAgregar> peliculas,
+                                                             @AuthenticationPrincipal Jwt jwt) {
+        String usuarioId = jwt.getSubject();
+
+        return carritoService.agregarPeliculasDesdeCatalogo(peliculas, usuarioId);
+    }
+
+    // Como la negociación de Spring MVC: el primer tipo aceptado, por especificidad y calidad,
+    // que sea JSON o CBOR decide el formato; JSON va primero, así que gana con */* o sin Accept
+    static String sufijoRepresentacion(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return "";
+        }
+        List<MediaType> aceptados;
+        try {
+            aceptados = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return "";
+        }
+        MimeTypeUtils.sortBySpecificity(aceptados);
+        for (MediaType aceptado : aceptados) {
+            if (aceptado.getQualityValue() == 0) {
+                continue;
+            }
+            if (aceptado.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return "";
+            }
+            if (aceptado.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return SUFIJO_ETAG_CBOR;
+            }
+        }
+        return "";
+    }
 }
@@ -13,4 +13,10 @@ public record CarritoDetalle(
         LocalDateTime fechaCreacion,
         LocalDateTime fechaModificacion
 ) {
+
+    // Carrito de un usuario que todavía no tiene fila en carritos: sin id ni fechas. La fila se
+    // crea con la primera mutación, así las lecturas no insertan carritos que nunca se usan.
+    public static CarritoDetalle vacio(String usuarioId) {
+        return new CarritoDetalle(null, usuarioId, List.of(), 0, BigDecimal.valueOf(0, 2), null, null);
+    }
 }
@@ -7,5 +7,11 @@ public record CarritoInfo(
         String usuarioId,
         Integer cantidadItems,
         BigDecimal total
-) {}
+) {
+
+    // Resumen de un usuario sin carrito (ver CarritoDetalle.vacio)
+    public static CarritoInfo vacio(String usuarioId) {
+        return new CarritoInfo(null, usuarioId, 0, BigDecimal.valueOf(0, 2));
+    }
+}
 
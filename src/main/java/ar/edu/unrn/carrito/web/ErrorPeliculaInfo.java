@@ -0,0 +1,6 @@
+package ar.edu.unrn.carrito.web;
+
+public record ErrorPeliculaInfo(
+        Long peliculaId,
+        String error
+) {}
@@ -0,0 +1,38 @@
+package ar.edu.unrn.carrito.web;
+
+import ar.edu.unrn.carrito.service.ExportadorCarritos;
+import ar.edu.unrn.carrito.service.FiltroExportacion;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+// Exportación para analytics (solo ROLE_ADMIN, ver SecurityConfig)
+@RestController
+@RequestMapping("/admin")
+public class ExportacionController {
+    private final ExportadorCarritos exportadorCarritos;
+
+    public ExportacionController(ExportadorCarritos exportadorCarritos) {
+        this.exportadorCarritos = exportadorCarritos;
+    }
+
+    // NDJSON escrito directo en la respuesta mientras se recorre la tabla: no se arma en memoria
+    @GetMapping(value = "/exportacion", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportarCarritos(@RequestParam(required = false)
+                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime modificadoDesde,
+                                 @RequestParam(required = false) String usuarioDesde,
+                                 @RequestParam(required = false) String usuarioHasta,
+                                 HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        exportadorCarritos.exportar(new FiltroExportacion(modificadoDesde, usuarioDesde, usuarioHasta),
+                response.getOutputStream());
+    }
+}
@@ -0,0 +1,7 @@
+package ar.edu.unrn.carrito.web;
+
+// Cantidad opcional: si no se indica se agrega una unidad
+public record PeliculaAAgregar(
+        Long peliculaId,
+        Integer cantidad
+) {}
@@ -0,0 +1,151 @@
+package ar.edu.unrn.carrito.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Serializadores escritos a mano para los DTOs del carrito: escriben los campos en el orden
+ * de los componentes del record con nombres ya codificados, sin introspección ni acceso
+ * reflexivo. Valen para cualquier formato de Jackson (JSON, CBOR) y producen la misma
+ * estructura que la serialización por defecto: fechas ISO-8601 y nulls explícitos.
+ */
+public class SerializadoresCarrito extends SimpleModule {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString USUARIO_ID = new SerializedString("usuarioId");
+    private static final SerializableString ITEMS = new SerializedString("items");
+    private static final SerializableString CANTIDAD_ITEMS = new SerializedString("cantidadItems");
+    private static final SerializableString TOTAL = new SerializedString("total");
+    private static final SerializableString FECHA_CREACION = new SerializedString("fechaCreacion");
+    private static final SerializableString FECHA_MODIFICACION = new SerializedString("fechaModificacion");
+    private static final SerializableString PELICULA_ID = new SerializedString("peliculaId");
+    private static final SerializableString PELICULA_NOMBRE = new SerializedString("peliculaNombre");
+    private static final SerializableString PELICULA_PRECIO = new SerializedString("peliculaPrecio");
+    private static final SerializableString CANTIDAD = new SerializedString("cantidad");
+    private static final SerializableString SUBTOTAL = new SerializedString("subtotal");
+
+    public SerializadoresCarrito() {
+        super("SerializadoresCarrito");
+        addSerializer(CarritoDetalle.class, new CarritoDetalleSerializer());
+        addSerializer(CarritoInfo.class, new CarritoInfoSerializer());
+        addSerializer(ItemCarritoInfo.class, new ItemCarritoInfoSerializer());
+    }
+
+    static class CarritoDetalleSerializer extends StdSerializer<CarritoDetalle> {
+
+        CarritoDetalleSerializer() {
+            super(CarritoDetalle.class);
+        }
+
+        @Override
+        public void serialize(CarritoDetalle carrito, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(carrito, 7);
+            escribir(gen, ID, carrito.id());
+            escribir(gen, USUARIO_ID, carrito.usuarioId());
+            gen.writeFieldName(ITEMS);
+            if (carrito.items() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeStartArray(carrito.items(), carrito.items().size());
+                for (ItemCarritoInfo item : carrito.items()) {
+                    escribirItem(gen, item);
+                }
+                gen.writeEndArray();
+            }
+            escribir(gen, CANTIDAD_ITEMS, carrito.cantidadItems());
+            escribir(gen, TOTAL, carrito.total());
+            escribir(gen, FECHA_CREACION, carrito.fechaCreacion());
+            escribir(gen, FECHA_MODIFICACION, carrito.fechaModificacion());
+            gen.writeEndObject();
+        }
+    }
+
+    static class CarritoInfoSerializer extends StdSerializer<CarritoInfo> {
+
+        CarritoInfoSerializer() {
+            super(CarritoInfo.class);
+        }
+
+        @Override
+        public void serialize(CarritoInfo carrito, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(carrito, 4);
+            escribir(gen, ID, carrito.id());
+            escribir(gen, USUARIO_ID, carrito.usuarioId());
+            escribir(gen, CANTIDAD_ITEMS, carrito.cantidadItems());
+            escribir(gen, TOTAL, carrito.total());
+            gen.writeEndObject();
+        }
+    }
+
+    static class ItemCarritoInfoSerializer extends StdSerializer<ItemCarritoInfo> {
+
+        ItemCarritoInfoSerializer() {
+            super(ItemCarritoInfo.class);
+        }
+
+        @Override
+        public void serialize(ItemCarritoInfo item, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            escribirItem(gen, item);
+        }
+    }
+
+    private static void escribirItem(JsonGenerator gen, ItemCarritoInfo item) throws IOException {
+        gen.writeStartObject(item, 5);
+        escribir(gen, PELICULA_ID, item.peliculaId());
+        escribir(gen, PELICULA_NOMBRE, item.peliculaNombre());
+        escribir(gen, PELICULA_PRECIO, item.peliculaPrecio());
+        escribir(gen, CANTIDAD, item.cantidad());
+        escribir(gen, SUBTOTAL, item.subtotal());
+        gen.writeEndObject();
+    }
+
+    private static void escribir(JsonGenerator gen, SerializableString campo, Long valor) throws IOException {
+        gen.writeFieldName(campo);
+        if (valor == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(valor);
+        }
+    }
+
+    private static void escribir(JsonGenerator gen, SerializableString campo, Integer valor) throws IOException {
+        gen.writeFieldName(campo);
+        if (valor == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(valor);
+        }
+    }
+
+    private static void escribir(JsonGenerator gen, SerializableString campo, BigDecimal valor) throws IOException {
+        gen.writeFieldName(campo);
+        if (valor == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(valor);
+        }
+    }
+
+    private static void escribir(JsonGenerator gen, SerializableString campo, String valor) throws IOException {
+        gen.writeFieldName(campo);
+        gen.writeString(valor);
+    }
+
+    private static void escribir(JsonGenerator gen, SerializableString campo, LocalDateTime valor) throws IOException {
+        gen.writeFieldName(campo);
+        if (valor == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(valor));
+        }
+    }
+}
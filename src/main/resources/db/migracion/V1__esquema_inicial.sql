@@ -0,0 +1,27 @@
+-- Esquema que generaba Hibernate con Action.CREATE antes de las migraciones.
+-- En bases existentes no se ejecuta: Flyway las toma como línea base en la versión 1.
+CREATE TABLE peliculas (
+    id BIGINT NOT NULL,
+    nombre VARCHAR(255) NOT NULL,
+    precio DECIMAL(10,2) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE carritos (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    usuario_id VARCHAR(255) NOT NULL,
+    fecha_creacion DATETIME(6) NOT NULL,
+    fecha_modificacion DATETIME(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE items_carrito (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    carrito_id BIGINT,
+    pelicula_id BIGINT NOT NULL,
+    cantidad INT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+ALTER TABLE items_carrito ADD CONSTRAINT fk_items_carrito_carrito FOREIGN KEY (carrito_id) REFERENCES carritos (id);
+ALTER TABLE items_carrito ADD CONSTRAINT fk_items_carrito_pelicula FOREIGN KEY (pelicula_id) REFERENCES peliculas (id);
@@ -0,0 +1,15 @@
+-- Totales desnormalizados, revisión (ETag) y versión optimista del carrito.
+-- IF NOT EXISTS: las bases creadas por Hibernate después de agregar estos campos ya los tienen.
+ALTER TABLE carritos ADD COLUMN IF NOT EXISTS total DECIMAL(12,2);
+ALTER TABLE carritos ADD COLUMN IF NOT EXISTS cantidad_items INT;
+ALTER TABLE carritos ADD COLUMN IF NOT EXISTS revision BIGINT DEFAULT 0;
+ALTER TABLE carritos ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+
+UPDATE carritos SET
+    total = (SELECT COALESCE(SUM(i.cantidad * p.precio), 0)
+             FROM items_carrito i JOIN peliculas p ON p.id = i.pelicula_id
+             WHERE i.carrito_id = carritos.id),
+    cantidad_items = (SELECT COALESCE(SUM(i.cantidad), 0)
+                      FROM items_carrito i
+                      WHERE i.carrito_id = carritos.id)
+WHERE total IS NULL OR cantidad_items IS NULL;
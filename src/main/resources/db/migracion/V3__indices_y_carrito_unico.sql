@@ -0,0 +1,25 @@
+-- Carga de los items de un carrito y búsqueda de un item por película.
+-- pelicula_id solo ya tiene el índice que crea su clave foránea.
+CREATE INDEX IF NOT EXISTS idx_items_carrito_carrito_pelicula ON items_carrito (carrito_id, pelicula_id);
+
+-- Un único carrito por usuario. En una base previa a las migraciones el carrito que se leía era
+-- el más reciente (fecha_creacion y, a igual fecha, id); los anteriores del mismo usuario no los
+-- leía ninguna consulta. Se archivan con sus items en carritos_duplicados e
+-- items_carrito_duplicados, para revisarlos o recuperarlos a mano, antes de borrarlos.
+CREATE TABLE IF NOT EXISTS carritos_duplicados AS
+SELECT c.* FROM carritos c
+WHERE EXISTS (
+    SELECT 1 FROM carritos posterior
+    WHERE posterior.usuario_id = c.usuario_id
+        AND (posterior.fecha_creacion > c.fecha_creacion
+             OR (posterior.fecha_creacion = c.fecha_creacion AND posterior.id > c.id))
+);
+
+CREATE TABLE IF NOT EXISTS items_carrito_duplicados AS
+SELECT i.* FROM items_carrito i
+WHERE i.carrito_id IN (SELECT id FROM carritos_duplicados);
+
+DELETE FROM items_carrito WHERE carrito_id IN (SELECT id FROM carritos_duplicados);
+DELETE FROM carritos WHERE id IN (SELECT id FROM carritos_duplicados);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_carritos_usuario ON carritos (usuario_id);
@@ -0,0 +1,5 @@
+-- El barrido de carritos abandonados busca por fecha_modificacion: los carritos
+-- anteriores a esa columna toman su fecha de creación y se indexa la columna
+UPDATE carritos SET fecha_modificacion = fecha_creacion WHERE fecha_modificacion IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_carritos_fecha_modificacion ON carritos (fecha_modificacion);
@@ -0,0 +1,36 @@
+-- Modo de persistencia por eventos (carrito.eventos.habilitado): log append-only de las
+-- mutaciones de cada carrito y el último snapshot de su estado
+CREATE TABLE IF NOT EXISTS eventos_carrito (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    usuario_id VARCHAR(255) NOT NULL,
+    secuencia BIGINT NOT NULL,
+    tipo VARCHAR(24) NOT NULL,
+    pelicula_id BIGINT,
+    cantidad INT,
+    fecha DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Lectura de los eventos posteriores al snapshot y secuencia única por usuario
+CREATE UNIQUE INDEX uk_eventos_carrito_usuario_secuencia ON eventos_carrito (usuario_id, secuencia);
+
+CREATE TABLE IF NOT EXISTS snapshots_carrito (
+    usuario_id VARCHAR(255) NOT NULL,
+    secuencia BIGINT NOT NULL,
+    fecha_creacion DATETIME(6) NOT NULL,
+    fecha_modificacion DATETIME(6) NOT NULL,
+    PRIMARY KEY (usuario_id)
+);
+
+-- Items del snapshot en el orden del carrito, una fila por película
+CREATE TABLE IF NOT EXISTS snapshot_items (
+    usuario_id VARCHAR(255) NOT NULL,
+    posicion INT NOT NULL,
+    pelicula_id BIGINT NOT NULL,
+    cantidad INT NOT NULL,
+    PRIMARY KEY (usuario_id, posicion)
+);
+ALTER TABLE snapshot_items ADD CONSTRAINT fk_snapshot_items_snapshot FOREIGN KEY (usuario_id) REFERENCES snapshots_carrito (usuario_id);
+
+-- Snapshots que contienen una película, para los cambios de precio del catálogo
+CREATE INDEX idx_snapshot_items_pelicula ON snapshot_items (pelicula_id);
@@ -0,0 +1,11 @@
+-- Bandeja de salida (outbox) de los cambios de carrito: la escriben las mutaciones en su
+-- transacción y el relay la vacía en orden de id después de publicar en RabbitMQ
+CREATE TABLE IF NOT EXISTS mensajes_salida (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    usuario_id VARCHAR(255) NOT NULL,
+    carrito_id BIGINT,
+    cantidad_items INT NOT NULL,
+    total DECIMAL(12,2) NOT NULL,
+    fecha DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
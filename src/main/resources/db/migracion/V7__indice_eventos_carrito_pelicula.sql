@@ -0,0 +1,3 @@
+-- Índice inverso película -> usuarios del log de eventos: un cambio de precio solo
+-- agrega eventos a los carritos que tuvieron esa película
+CREATE INDEX IF NOT EXISTS idx_eventos_carrito_pelicula ON eventos_carrito (pelicula_id);
@@ -0,0 +1,5 @@
+-- Reclamo (lease) de los mensajes de la bandeja de salida: el relay marca el lote como suyo
+-- en una transacción corta y publica fuera de ella, sin retener bloqueos mientras espera al broker
+ALTER TABLE mensajes_salida ADD COLUMN IF NOT EXISTS reclamado_hasta DATETIME(6);
+ALTER TABLE mensajes_salida ADD COLUMN IF NOT EXISTS reclamado_por VARCHAR(36);
+CREATE INDEX IF NOT EXISTS idx_mensajes_salida_reclamado_por ON mensajes_salida (reclamado_por);
@@ -0,0 +1,3 @@
+-- Id estable de los carritos del log de eventos: el del primer evento, guardado en el
+-- snapshot para que sobreviva a la compactación de los eventos anteriores
+ALTER TABLE snapshots_carrito ADD COLUMN IF NOT EXISTS carrito_id BIGINT;
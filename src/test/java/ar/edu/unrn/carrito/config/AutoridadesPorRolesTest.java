@@ -0,0 +1,52 @@
+package ar.edu.unrn.carrito.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutoridadesPorRolesTest {
+
+    @Test
+    @DisplayName("Convert con la misma combinación de roles reutiliza la lista de autoridades")
+    void convert_mismosRoles_reutilizaLista() {
+        // Setup: Preparar el escenario
+        AutoridadesPorRoles conversor = new AutoridadesPorRoles();
+
+        // Ejercitación: Ejecutar la acción a probar
+        var primera = conversor.convert(jwtConRoles(List.of("CLIENT", "offline_access")));
+        var segunda = conversor.convert(jwtConRoles(List.of("CLIENT", "offline_access")));
+
+        // Verificación: Verificar el resultado esperado
+        assertSame(primera, segunda, "La misma combinación de roles debe devolver la misma lista");
+        assertEquals(List.of("ROLE_CLIENT", "ROLE_offline_access"),
+                primera.stream().map(GrantedAuthority::getAuthority).toList(), "Debe agregar el prefijo ROLE_");
+    }
+
+    @Test
+    @DisplayName("Convert sin realm_access devuelve una lista vacía")
+    void convert_sinRealmAccess_devuelveVacio() {
+        // Setup: Preparar el escenario
+        AutoridadesPorRoles conversor = new AutoridadesPorRoles();
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject("usuario123").build();
+
+        // Ejercitación: Ejecutar la acción a probar
+        var autoridades = conversor.convert(jwt);
+
+        // Verificación: Verificar el resultado esperado
+        assertTrue(autoridades.isEmpty(), "Sin roles no debe haber autoridades");
+    }
+
+    private Jwt jwtConRoles(List<String> roles) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("usuario123")
+                .claim("realm_access", Map.of("roles", roles))
+                .build();
+    }
+}
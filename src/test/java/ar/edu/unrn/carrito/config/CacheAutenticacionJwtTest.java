@@ -0,0 +1,83 @@
+package ar.edu.unrn.carrito.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheAutenticacionJwtTest {
+
+    private static final Instant AHORA = Instant.parse("2025-01-01T10:00:00Z");
+
+    private final AtomicInteger decodificaciones = new AtomicInteger();
+
+    @Test
+    @DisplayName("Authenticate con el mismo token lo decodifica una sola vez")
+    void authenticate_mismoToken_decodificaUnaSolaVez() {
+        // Setup: Preparar el escenario
+        CacheAutenticacionJwt cache = crearCache(AHORA.plusSeconds(300), AHORA);
+
+        // Ejercitación: Ejecutar la acción a probar
+        var primera = cache.authenticate(new BearerTokenAuthenticationToken("token-1"));
+        var segunda = cache.authenticate(new BearerTokenAuthenticationToken("token-1"));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, decodificaciones.get(), "El segundo uso del token no debe decodificarlo");
+        assertEquals(primera.getName(), segunda.getName(), "Debe autenticar al mismo usuario");
+        assertEquals(primera.getAuthorities(), segunda.getAuthorities(), "Debe conservar las autoridades");
+        assertEquals(1, cache.aciertos(), "Debe registrarse un acierto");
+    }
+
+    @Test
+    @DisplayName("Authenticate con un token vencido vuelve a delegar la verificación")
+    void authenticate_tokenVencido_vuelveADecodificar() {
+        // Setup: Preparar el escenario
+        CacheAutenticacionJwt cache = crearCache(AHORA.plusSeconds(60), AHORA.plusSeconds(61));
+
+        // Ejercitación: Ejecutar la acción a probar
+        cache.authenticate(new BearerTokenAuthenticationToken("token-1"));
+        cache.authenticate(new BearerTokenAuthenticationToken("token-1"));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(2, decodificaciones.get(), "Un token vencido no debe servirse desde la cache");
+        assertEquals(0, cache.aciertos(), "No debe haber aciertos");
+    }
+
+    @Test
+    @DisplayName("Constructor con capacidad cero lanza excepción")
+    void constructor_capacidadCero_lanzaExcepcion() {
+        // Setup, Ejercitación y Verificación: Crear la cache con capacidad inválida
+        var ex = assertThrows(RuntimeException.class, () -> new CacheAutenticacionJwt(a -> a, 0));
+        assertEquals(CacheAutenticacionJwt.ERROR_CAPACIDAD_INVALIDA, ex.getMessage());
+    }
+
+    private CacheAutenticacionJwt crearCache(Instant vencimiento, Instant ahora) {
+        JwtDecoder decoder = token -> {
+            decodificaciones.incrementAndGet();
+            return Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .subject("usuario123")
+                    .claim("realm_access", Map.of("roles", List.of("CLIENT")))
+                    .issuedAt(AHORA)
+                    .expiresAt(vencimiento)
+                    .build();
+        };
+        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(new AutoridadesPorRoles());
+        JwtAuthenticationProvider provider = new JwtAuthenticationProvider(decoder);
+        provider.setJwtAuthenticationConverter(converter);
+        return new CacheAutenticacionJwt(provider::authenticate, 10, Clock.fixed(ahora, ZoneOffset.UTC));
+    }
+}
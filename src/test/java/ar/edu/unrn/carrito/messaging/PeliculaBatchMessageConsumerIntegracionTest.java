@@ -0,0 +1,116 @@
+package ar.edu.unrn.carrito.messaging;
+
+import ar.edu.unrn.carrito.config.RabbitMQConfig;
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.service.BandejaSalida;
+import ar.edu.unrn.carrito.service.CachePeliculas;
+import ar.edu.unrn.carrito.service.CandadosPorUsuario;
+import ar.edu.unrn.carrito.service.CarritoService;
+import ar.edu.unrn.carrito.service.EnrutadorLecturas;
+import ar.edu.unrn.carrito.service.MetricasCarrito;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeliculaBatchMessageConsumerIntegracionTest {
+
+    private EntityManagerFactory emf;
+    private SimpleMeterRegistry registro;
+    private PeliculaBatchMessageConsumer consumidor;
+    private final List<String> colasMuertos = new ArrayList<>();
+    private final List<Message> mensajesMuertos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        emf = new EmfBuilder()
+                .memory()
+                .addClass(Carrito.class)
+                .addClass(Pelicula.class)
+                .addClass(ItemCarrito.class)
+                .build();
+        emf.getSchemaManager().truncate();
+        registro = new SimpleMeterRegistry();
+        var carritoService = new CarritoService(emf, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+        consumidor = new PeliculaBatchMessageConsumer(carritoService, new ObjectMapper(), registro, (cola, mensaje) -> {
+            colasMuertos.add(cola);
+            mensajesMuertos.add(mensaje);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    @DisplayName("Si el lote falla se procesa mensaje por mensaje y solo los que fallan van a la cola de muertos")
+    void recibirPeliculasAgregadas_loteConPeliculaQueFalla_guardaLasDemasYMandaLaFallidaALaDlq() {
+        // Setup: Preparar el escenario
+        // El nombre excede la columna: la película es válida pero su INSERT falla y hace fallar el lote
+        Message fallida = mensaje("{\"id\": 2, \"nombre\": \"" + "x".repeat(300) + "\", \"precio\": 9.99}");
+        Message invalida = mensaje("{no es json");
+        List<Message> lote = List.of(
+                mensaje("{\"id\": 1, \"nombre\": \"Avatar\", \"precio\": 15.99}"),
+                fallida,
+                invalida,
+                mensaje("{\"id\": 3, \"nombre\": \"Matrix\", \"precio\": 12.99}"));
+
+        // Ejercitación: Ejecutar la acción a probar
+        consumidor.recibirPeliculasAgregadas(lote);
+
+        // Verificación: Verificar el resultado esperado
+        try (var em = emf.createEntityManager()) {
+            assertEquals(List.of(1L, 3L), em.createQuery("SELECT p.id FROM Pelicula p ORDER BY p.id", Long.class)
+                    .getResultList(), "Las películas que no fallan solas deben guardarse");
+        }
+        assertEquals(List.of(invalida, fallida), mensajesMuertos,
+                "El mensaje inválido y el que falla solo deben ir a la cola de muertos");
+        assertEquals(List.of(RabbitMQConfig.PELICULA_AGREGADA_DLQ, RabbitMQConfig.PELICULA_AGREGADA_DLQ), colasMuertos,
+                "Los mensajes deben ir a la cola de muertos de su cola");
+        assertEquals(1, registro.get(MetricasConsumidor.CONTADOR_MENSAJES).tags("resultado", "error").counter().count(),
+                "Debe contarse un mensaje fallido");
+        assertEquals(2, registro.get(MetricasConsumidor.CONTADOR_MENSAJES).tags("resultado", "procesado").counter().count(),
+                "Deben contarse los mensajes procesados");
+    }
+
+    @Test
+    @DisplayName("Si no se puede mandar a la cola de muertos la excepción sale del listener para reencolar el lote")
+    void recibirPeliculasAgregadas_colaMuertosNoDisponible_lanzaExcepcion() {
+        // Setup: Preparar el escenario
+        var carritoService = new CarritoService(emf, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+        var consumidorSinDlq = new PeliculaBatchMessageConsumer(carritoService, new ObjectMapper(), registro,
+                (cola, mensaje) -> {
+                    throw new IllegalStateException("broker caído");
+                });
+        List<Message> lote = List.of(
+                mensaje("{\"id\": 1, \"nombre\": \"Avatar\", \"precio\": 15.99}"),
+                mensaje("{\"id\": 2, \"nombre\": \"" + "x".repeat(300) + "\", \"precio\": 9.99}"));
+
+        // Ejercitación: Ejecutar la acción a probar
+        var excepcion = assertThrows(IllegalStateException.class, () -> consumidorSinDlq.recibirPeliculasAgregadas(lote));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals("broker caído", excepcion.getMessage(), "El lote no debe confirmarse si el mensaje se perdería");
+    }
+
+    private static Message mensaje(String json) {
+        return MessageBuilder.withBody(json.getBytes(StandardCharsets.UTF_8)).build();
+    }
+}
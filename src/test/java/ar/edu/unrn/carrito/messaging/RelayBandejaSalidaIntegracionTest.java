@@ -0,0 +1,176 @@
+package ar.edu.unrn.carrito.messaging;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.MensajeSalida;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.service.BandejaSalida;
+import ar.edu.unrn.carrito.service.CachePeliculas;
+import ar.edu.unrn.carrito.service.CandadosPorUsuario;
+import ar.edu.unrn.carrito.service.CarritoService;
+import ar.edu.unrn.carrito.service.EnrutadorLecturas;
+import ar.edu.unrn.carrito.service.MetricasCarrito;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RelayBandejaSalidaIntegracionTest {
+
+    private EntityManagerFactory emf;
+    private CarritoService carritoService;
+    private final List<List<CarritoModificadoEvent>> lotesPublicados = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        emf = new EmfBuilder()
+                .memory()
+                .addClass(Carrito.class)
+                .addClass(Pelicula.class)
+                .addClass(ItemCarrito.class)
+                .addClass(MensajeSalida.class)
+                .build();
+        emf.getSchemaManager().truncate();
+        carritoService = new CarritoService(emf, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), new BandejaSalida(true));
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    @DisplayName("Las mutaciones escriben en la bandeja y el relay la publica en orden y la vacía")
+    void publicarPendientes_mutaciones_publicaEnOrdenYBorra() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "ana");
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "beto");
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "ana");
+
+        // Ejercitación: Ejecutar la acción a probar
+        int publicados;
+        try (var relay = relay(10, lotesPublicados::add)) {
+            publicados = relay.publicarPendientes();
+        }
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(3, publicados, "Debe publicarse un mensaje por mutación");
+        List<CarritoModificadoEvent> eventos = lotesPublicados.get(0);
+        assertEquals(List.of("ana", "beto", "ana"), eventos.stream().map(CarritoModificadoEvent::usuarioId).toList(),
+                "Los mensajes deben publicarse en el orden en que se escribieron");
+        assertEquals(2, eventos.get(2).cantidadItems(), "El mensaje lleva el estado del carrito después de la mutación");
+        assertEquals(0, pendientes(), "Los mensajes confirmados deben borrarse");
+    }
+
+    @Test
+    @DisplayName("Si la publicación falla el lote queda en la bandeja y se publica en la pasada siguiente")
+    void publicarPendientes_publicacionFalla_conservaMensajes() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "ana");
+        var fallar = new boolean[]{true};
+        var relay = relay(10, eventos -> {
+            if (fallar[0]) {
+                throw new RuntimeException("Sin confirmación del broker");
+            }
+            lotesPublicados.add(eventos);
+        });
+
+        // Ejercitación: Ejecutar la acción a probar
+        assertThrows(RuntimeException.class, relay::publicarPendientes);
+        long pendientesDespuesDelFallo = pendientes();
+        fallar[0] = false;
+        int publicados = relay.publicarPendientes();
+        relay.close();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, pendientesDespuesDelFallo, "Un lote no confirmado no debe borrarse");
+        assertEquals(1, publicados, "El lote debe publicarse al reintentar");
+        assertEquals(0, pendientes());
+    }
+
+    @Test
+    @DisplayName("El relay publica de a lotes del tamaño configurado")
+    void publicarPendientes_masMensajesQueElLote_publicaVariosLotes() {
+        // Setup: Preparar el escenario
+        for (String usuario : List.of("ana", "beto", "carla", "dario", "eva")) {
+            carritoService.agregarPeliculaDesdeCatalogo(1L, usuario);
+        }
+
+        // Ejercitación: Ejecutar la acción a probar
+        try (var relay = relay(2, lotesPublicados::add)) {
+            relay.publicarPendientes();
+        }
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(List.of(2, 2, 1), lotesPublicados.stream().map(List::size).toList(),
+                "Deben publicarse lotes de hasta 2 mensajes");
+    }
+
+    @Test
+    @DisplayName("Mientras se espera al broker no se retienen bloqueos: las mutaciones confirman y otro relay sigue con lo nuevo")
+    void publicarPendientes_publicacionBloqueada_noBloqueaMutacionesNiOtroRelay() throws Exception {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "ana");
+        CountDownLatch publicando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        var relayLento = relay(10, eventos -> {
+            publicando.countDown();
+            esperar(liberar);
+            lotesPublicados.add(eventos);
+        });
+        var otroRelay = relay(10, lotesPublicados::add);
+
+        // Ejercitación: Ejecutar la acción a probar
+        int publicadosOtro;
+        Future<Integer> publicadosLento;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            publicadosLento = executor.submit(relayLento::publicarPendientes);
+            assertTrue(publicando.await(10, TimeUnit.SECONDS), "El relay lento debe estar esperando al broker");
+            carritoService.agregarPeliculaDesdeCatalogo(1L, "beto");
+            publicadosOtro = otroRelay.publicarPendientes();
+            liberar.countDown();
+        }
+        relayLento.close();
+        otroRelay.close();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, publicadosOtro, "El otro relay solo debe publicar el mensaje que no estaba reclamado");
+        assertEquals("beto", lotesPublicados.get(0).get(0).usuarioId(), "La mutación debe confirmarse con la publicación en curso");
+        assertEquals(1, publicadosLento.get(), "El relay lento debe terminar su lote");
+        assertEquals(0, pendientes(), "Ambos lotes deben borrarse al confirmarse");
+    }
+
+    private RelayBandejaSalida relay(int tamanioLote, RelayBandejaSalida.Publicador publicador) {
+        return new RelayBandejaSalida(emf, publicador, tamanioLote, Duration.ofHours(1), Duration.ofMinutes(1),
+                new SimpleMeterRegistry());
+    }
+
+    private long pendientes() {
+        try (var em = emf.createEntityManager()) {
+            return em.createQuery("SELECT COUNT(m) FROM MensajeSalida m", Long.class).getSingleResult();
+        }
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS), "La publicación no fue liberada");
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
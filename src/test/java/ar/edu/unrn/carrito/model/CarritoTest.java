@@ -4,6 +4,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,7 +20,7 @@ class CarritoTest {
         // Verificación: Verificar el resultado esperado
         assertTrue(carrito.estaVacio(), "El carrito recién creado debe estar vacío");
         assertEquals(0, carrito.cantidadTotalItems(), "La cantidad total de items debe ser cero");
-        assertEquals(BigDecimal.ZERO, carrito.calcularTotal(), "El total debe ser cero");
+        assertEquals(Monto.CERO, carrito.calcularTotal(), "El total debe ser cero");
         assertNotNull(carrito.items(), "La lista de items no debe ser nula");
         assertEquals("usuario123", carrito.usuarioId(), "El usuario ID debe coincidir");
     }
@@ -75,7 +77,7 @@ class CarritoTest {
         // Verificación: Verificar el resultado esperado
         assertEquals("usuario123", carritoInfo.usuarioId(), "El usuario ID debe coincidir");
         assertEquals(carrito.cantidadTotalItems(), carritoInfo.cantidadItems(), "La cantidad de items debe coincidir");
-        assertEquals(carrito.calcularTotal(), carritoInfo.total(), "El total debe coincidir");
+        assertEquals(carrito.calcularTotal().aBigDecimal(), carritoInfo.total(), "El total debe coincidir");
     }
 
     @Test
@@ -94,7 +96,7 @@ class CarritoTest {
         // Verificación: Verificar el resultado esperado
         assertEquals("usuario123", carritoDetalle.usuarioId(), "El usuario ID debe coincidir");
         assertEquals(carrito.cantidadTotalItems(), carritoDetalle.cantidadItems(), "La cantidad total debe coincidir");
-        assertEquals(carrito.calcularTotal(), carritoDetalle.total(), "El total debe coincidir");
+        assertEquals(carrito.calcularTotal().aBigDecimal(), carritoDetalle.total(), "El total debe coincidir");
         assertEquals(2, carritoDetalle.items().size(), "Debe haber 2 items en el detalle");
         assertNotNull(carritoDetalle.fechaCreacion(), "La fecha de creación no debe ser nula");
         assertNotNull(carritoDetalle.fechaModificacion(), "La fecha de modificación no debe ser nula");
@@ -128,4 +130,187 @@ class CarritoTest {
         });
         assertEquals(Carrito.ERROR_CARRITO_VACIO, ex.getMessage());
     }
+
+    @Test
+    @DisplayName("EliminarPelicula quita solo la película indicada")
+    void eliminarPelicula_peliculaExistente_quitaSoloEsaPelicula() {
+        // Setup: Preparar el escenario
+        Carrito carrito = new Carrito("usuario123");
+        carrito.agregarPelicula(new Pelicula(1L, "Avatar", new BigDecimal("15.99")), 1);
+        carrito.agregarPelicula(new Pelicula(2L, "Titanic", new BigDecimal("12.99")), 1);
+
+        // Ejercitación: Ejecutar la acción a probar
+        carrito.eliminarPelicula(1L);
+
+        // Verificación: Verificar el resultado esperado
+        assertFalse(carrito.contienePelicula(1L), "La película eliminada no debe estar en el carrito");
+        assertTrue(carrito.contienePelicula(2L), "La otra película debe seguir en el carrito");
+        assertEquals(1, carrito.items().size(), "Debe quedar un solo item");
+    }
+
+    @Test
+    @DisplayName("AgregarPelicula repetida en un carrito grande incrementa el item existente")
+    void agregarPelicula_repetidaEnCarritoGrande_incrementaItemExistente() {
+        // Setup: Preparar el escenario
+        Carrito carrito = new Carrito("usuario123");
+        for (long id = 1; id <= 500; id++) {
+            carrito.agregarPelicula(new Pelicula(id, "Pelicula " + id, new BigDecimal("1.00")), 1);
+        }
+
+        // Ejercitación: Ejecutar la acción a probar
+        carrito.agregarPelicula(new Pelicula(250L, "Pelicula 250", new BigDecimal("1.00")), 2);
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(500, carrito.items().size(), "No debe agregarse un item duplicado");
+        assertEquals(502, carrito.cantidadTotalItems(), "La cantidad total debe incluir el incremento");
+    }
+
+    @Test
+    @DisplayName("Vaciar deja el carrito sin películas indexadas")
+    void vaciar_carritoConPeliculas_noContienePeliculas() {
+        // Setup: Preparar el escenario
+        Carrito carrito = new Carrito("usuario123");
+        carrito.agregarPelicula(new Pelicula(1L, "Avatar", new BigDecimal("15.99")), 1);
+
+        // Ejercitación: Ejecutar la acción a probar
+        carrito.vaciar();
+
+        // Verificación: Verificar el resultado esperado
+        assertTrue(carrito.estaVacio(), "El carrito debe quedar vacío");
+        assertFalse(carrito.contienePelicula(1L), "No debe quedar la película en el índice");
+    }
+
+    @Test
+    @DisplayName("ActualizarCantidadPelicula ajusta el total y la cantidad acumulados")
+    void actualizarCantidadPelicula_nuevaCantidad_ajustaTotales() {
+        // Setup: Preparar el escenario
+        Carrito carrito = new Carrito("usuario123");
+        carrito.agregarPelicula(new Pelicula(1L, "Avatar", new BigDecimal("10.00")), 1);
+        carrito.agregarPelicula(new Pelicula(2L, "Titanic", new BigDecimal("5.00")), 1);
+
+        // Ejercitación: Ejecutar la acción a probar
+        carrito.actualizarCantidadPelicula(1L, 3);
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(Monto.de(new BigDecimal("35.00")), carrito.calcularTotal(), "El total debe ser 3 × 10 + 5");
+        assertEquals(4, carrito.cantidadTotalItems(), "La cantidad total debe ser 4");
+    }
+
+    @Test
+    @DisplayName("EliminarPelicula descuenta su subtotal del total acumulado")
+    void eliminarPelicula_peliculaExistente_descuentaSubtotal() {
+        // Setup: Preparar el escenario
+        Carrito carrito = new Carrito("usuario123");
+        carrito.agregarPelicula(new Pelicula(1L, "Avatar", new BigDecimal("10.00")), 2);
+        carrito.agregarPelicula(new Pelicula(2L, "Titanic", new BigDecimal("5.00")), 1);
+
+        // Ejercitación: Ejecutar la acción a probar
+        carrito.eliminarPelicula(1L);
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(Monto.de(new BigDecimal("5.00")), carrito.calcularTotal(), "Solo debe quedar el subtotal de Titanic");
+        assertEquals(1, carrito.cantidadTotalItems(), "Solo debe quedar un item");
+    }
+
+    @Test
+    @DisplayName("RepararTotales en un carrito consistente no corrige nada")
+    void repararTotales_carritoConsistente_retornaFalse() {
+        // Setup: Preparar el escenario
+        Carrito carrito = new Carrito("usuario123");
+        carrito.agregarPelicula(new Pelicula(1L, "Avatar", new BigDecimal("15.99")), 2);
+        carrito.agregarPelicula(new Pelicula(2L, "Titanic", new BigDecimal("12.99")), 1);
+
+        // Ejercitación: Ejecutar la acción a probar
+        boolean reparado = carrito.repararTotales();
+
+        // Verificación: Verificar el resultado esperado
+        assertFalse(reparado, "Los totales mantenidos por las mutaciones deben ser consistentes");
+    }
+
+    @Test
+    @DisplayName("Version cambia con cada modificación del carrito")
+    void version_carritoModificado_cambia() {
+        // Setup: Preparar el escenario
+        Carrito carrito = new Carrito("usuario123");
+        String versionInicial = carrito.version();
+
+        // Ejercitación: Ejecutar la acción a probar
+        carrito.agregarPelicula(new Pelicula(1L, "Avatar", new BigDecimal("15.99")), 1);
+        String versionConPelicula = carrito.version();
+        carrito.eliminarPelicula(1L);
+
+        // Verificación: Verificar el resultado esperado
+        assertNotEquals(versionInicial, versionConPelicula, "Agregar una película debe cambiar la versión");
+        assertNotEquals(versionInicial, carrito.version(),
+                "Volver al mismo contenido no debe repetir una versión anterior");
+    }
+
+    @Test
+    @DisplayName("Eliminar una película que no está en el carrito no cambia la versión")
+    void eliminarPelicula_peliculaInexistente_noCambiaVersion() {
+        // Setup: Preparar el escenario
+        Carrito carrito = new Carrito("usuario123");
+        carrito.agregarPelicula(new Pelicula(1L, "Avatar", new BigDecimal("15.99")), 1);
+        String versionInicial = carrito.version();
+
+        // Ejercitación: Ejecutar la acción a probar
+        carrito.eliminarPelicula(2L);
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(versionInicial, carrito.version(), "Sin cambios en el contenido la versión (ETag) debe mantenerse");
+    }
+
+    @Test
+    @DisplayName("Un carrito reconstruido registra un evento por cada mutación que lo modifica")
+    void extraerEventos_carritoReconstruido_registraUnEventoPorMutacion() {
+        // Setup: Preparar el escenario
+        Carrito carrito = Carrito.reconstruir("usuario123", null, null, List.of(), Map.of());
+        Pelicula avatar = new Pelicula(1L, "Avatar", new BigDecimal("15.99"));
+
+        // Ejercitación: Ejecutar la acción a probar
+        carrito.agregarPelicula(avatar, 2);
+        carrito.actualizarCantidadPelicula(1L, 3);
+        carrito.eliminarPelicula(99L);
+        carrito.eliminarPelicula(1L);
+        carrito.vaciar();
+        List<EventoCarrito> eventos = carrito.extraerEventos();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(List.of(EventoCarrito.Tipo.AGREGADA, EventoCarrito.Tipo.CANTIDAD_ACTUALIZADA,
+                        EventoCarrito.Tipo.ELIMINADA, EventoCarrito.Tipo.VACIADO),
+                eventos.stream().map(EventoCarrito::tipo).toList(),
+                "Eliminar una película que no está no debe registrar evento");
+        assertEquals(3, eventos.get(1).cantidad(), "El evento debe llevar la nueva cantidad");
+        assertTrue(carrito.extraerEventos().isEmpty(), "Los eventos extraídos no deben volver a devolverse");
+        assertTrue(new Carrito("usuario123").extraerEventos().isEmpty(),
+                "Un carrito que no se reconstruyó desde el log no registra eventos");
+    }
+
+    @Test
+    @DisplayName("Reconstruir aplica el snapshot y los eventos posteriores y toma la secuencia como revisión")
+    void reconstruir_snapshotYEventos_aplicaEnOrden() {
+        // Setup: Preparar el escenario
+        Pelicula avatar = new Pelicula(1L, "Avatar", new BigDecimal("10.00"));
+        Pelicula titanic = new Pelicula(2L, "Titanic", new BigDecimal("5.00"));
+        Carrito original = Carrito.reconstruir("usuario123", 7L, null, List.of(), Map.of());
+        original.agregarPelicula(avatar, 1);
+        original.agregarPelicula(titanic, 1);
+        List<EventoCarrito> eventos = original.extraerEventos();
+        eventos.get(0).numerar(1);
+        eventos.get(1).numerar(2);
+        SnapshotCarrito snapshot = SnapshotCarrito.de(original, 2);
+        original.actualizarCantidadPelicula(2L, 4);
+        EventoCarrito posterior = original.extraerEventos().get(0);
+        posterior.numerar(3);
+
+        // Ejercitación: Ejecutar la acción a probar
+        Carrito carrito = Carrito.reconstruir("usuario123", snapshot.carritoId(), snapshot, List.of(posterior),
+                Map.of(1L, avatar, 2L, titanic));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(5, carrito.cantidadTotalItems(), "Debe aplicarse el evento posterior al snapshot");
+        assertEquals(Monto.de(new BigDecimal("30.00")), carrito.calcularTotal(), "El total debe recalcularse con los precios");
+        assertEquals(Carrito.version(7L, 3), carrito.version(),
+                "El id debe conservarse en el snapshot y la revisión ser la secuencia del último evento");
+    }
 }
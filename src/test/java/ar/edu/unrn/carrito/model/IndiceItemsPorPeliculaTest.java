@@ -0,0 +1,69 @@
+package ar.edu.unrn.carrito.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceItemsPorPeliculaTest {
+
+    @Test
+    @DisplayName("Buscar un id agregado devuelve su item")
+    void buscar_idAgregado_devuelveItem() {
+        // Setup: Preparar el escenario
+        IndiceItemsPorPelicula indice = new IndiceItemsPorPelicula(0);
+        ItemCarrito item = nuevoItem(42L);
+
+        // Ejercitación: Ejecutar la acción a probar
+        indice.agregar(42L, item);
+
+        // Verificación: Verificar el resultado esperado
+        assertSame(item, indice.buscar(42L), "Debe devolver el item indexado");
+        assertNull(indice.buscar(43L), "Un id no indexado no debe encontrarse");
+    }
+
+    @Test
+    @DisplayName("Agregar más items que la capacidad inicial redimensiona sin perder entradas")
+    void agregar_superaCapacidadInicial_conservaEntradas() {
+        // Setup: Preparar el escenario
+        IndiceItemsPorPelicula indice = new IndiceItemsPorPelicula(0);
+
+        // Ejercitación: Ejecutar la acción a probar
+        for (long id = 1; id <= 1000; id++) {
+            indice.agregar(id, nuevoItem(id));
+        }
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1000, indice.tamanio(), "Deben indexarse todos los items");
+        for (long id = 1; id <= 1000; id++) {
+            assertNotNull(indice.buscar(id), "El id " + id + " debe seguir indexado");
+        }
+    }
+
+    @Test
+    @DisplayName("Eliminar un id conserva el resto de las entradas del cluster")
+    void eliminar_idEnCluster_conservaRestoDeEntradas() {
+        // Setup: Preparar el escenario
+        IndiceItemsPorPelicula indice = new IndiceItemsPorPelicula(0);
+        for (long id = 1; id <= 100; id++) {
+            indice.agregar(id, nuevoItem(id));
+        }
+
+        // Ejercitación: Ejecutar la acción a probar
+        for (long id = 1; id <= 100; id += 2) {
+            indice.eliminar(id);
+        }
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(50, indice.tamanio(), "Deben quedar solo los ids pares");
+        for (long id = 1; id <= 100; id++) {
+            assertEquals(id % 2 == 0, indice.buscar(id) != null, "Solo los ids pares deben seguir indexados");
+        }
+    }
+
+    private ItemCarrito nuevoItem(long peliculaId) {
+        return new ItemCarrito(new Pelicula(peliculaId, "Pelicula " + peliculaId, new BigDecimal("10.00")), 1);
+    }
+}
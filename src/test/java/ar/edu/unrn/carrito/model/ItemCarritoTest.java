@@ -37,9 +37,9 @@ class ItemCarritoTest {
         // Verificación: Verificar el resultado esperado
         assertEquals(pelicula.id(), itemInfo.peliculaId(), "El ID de la película debe coincidir");
         assertEquals(pelicula.nombre(), itemInfo.peliculaNombre(), "El nombre de la película debe coincidir");
-        assertEquals(pelicula.precio(), itemInfo.peliculaPrecio(), "El precio de la película debe coincidir");
+        assertEquals(pelicula.precio().aBigDecimal(), itemInfo.peliculaPrecio(), "El precio de la película debe coincidir");
         assertEquals(item.cantidad(), itemInfo.cantidad(), "La cantidad debe coincidir");
-        assertEquals(item.calcularSubtotal(), itemInfo.subtotal(), "El subtotal debe coincidir");
+        assertEquals(item.calcularSubtotal().aBigDecimal(), itemInfo.subtotal(), "El subtotal debe coincidir");
     }
 
     @Test
@@ -63,10 +63,10 @@ class ItemCarritoTest {
         BigDecimal precio = new BigDecimal("15.99");
         Pelicula pelicula = new Pelicula(1L, "Avatar", precio);
         ItemCarrito item = new ItemCarrito(pelicula, 3);
-        BigDecimal subtotalEsperado = precio.multiply(BigDecimal.valueOf(3));
+        Monto subtotalEsperado = Monto.de(precio.multiply(BigDecimal.valueOf(3)));
 
         // Ejercitación: Ejecutar la acción a probar
-        BigDecimal subtotalCalculado = item.calcularSubtotal();
+        Monto subtotalCalculado = item.calcularSubtotal();
 
         // Verificación: Verificar el resultado esperado
         assertEquals(subtotalEsperado, subtotalCalculado, "El subtotal debe ser precio × cantidad");
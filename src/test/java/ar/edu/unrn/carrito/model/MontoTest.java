@@ -0,0 +1,54 @@
+package ar.edu.unrn.carrito.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MontoTest {
+
+    @Test
+    @DisplayName("Las operaciones se hacen en centavos y se convierten a BigDecimal con dos decimales")
+    void operaciones_montosValidos_calculanEnCentavos() {
+        // Setup: Preparar el escenario
+        Monto precio = Monto.de(new BigDecimal("15.99"));
+
+        // Ejercitación: Ejecutar la acción a probar
+        Monto total = precio.por(3).sumar(Monto.deCentavos(2)).restar(Monto.deCentavos(1));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(4798, total.centavos(), "15.99 × 3 + 0.02 - 0.01 debe ser 4798 centavos");
+        assertEquals(new BigDecimal("47.98"), total.aBigDecimal(), "El BigDecimal debe tener escala 2");
+        assertEquals(Monto.CERO, total.sumar(total.negar()), "Sumar el opuesto debe dar cero");
+    }
+
+    @Test
+    @DisplayName("Crear un monto desde BigDecimal es exacto: más de dos decimales lanza excepción")
+    void de_masDeDosDecimales_lanzaExcepcion() {
+        // Setup: Preparar el escenario
+        BigDecimal conCerosDeMas = new BigDecimal("9.9900");
+        BigDecimal conTresDecimales = new BigDecimal("9.999");
+
+        // Ejercitación y Verificación: Ejecutar la acción y verificar la excepción
+        assertEquals(999, Monto.de(conCerosDeMas).centavos(), "Los ceros a la derecha no cuentan como decimales");
+        var ex = assertThrows(RuntimeException.class, () -> Monto.de(conTresDecimales));
+        assertEquals(Monto.ERROR_PRECISION, ex.getMessage());
+        assertEquals(1599, Monto.redondeado(15.99).centavos(), "Un double se redondea al centavo");
+        assertEquals(30, Monto.redondeado(0.1 + 0.2).centavos(), "El error de representación del double se descarta");
+    }
+
+    @Test
+    @DisplayName("Un desbordamiento lanza excepción en lugar de dar la vuelta")
+    void por_desbordamiento_lanzaExcepcion() {
+        // Setup: Preparar el escenario
+        Monto enorme = Monto.deCentavos(Long.MAX_VALUE / 2 + 1);
+
+        // Ejercitación y Verificación: Ejecutar la acción y verificar la excepción
+        var exProducto = assertThrows(RuntimeException.class, () -> enorme.por(2));
+        var exSuma = assertThrows(RuntimeException.class, () -> enorme.sumar(enorme));
+        assertEquals(Monto.ERROR_DESBORDE, exProducto.getMessage());
+        assertEquals(Monto.ERROR_DESBORDE, exSuma.getMessage());
+    }
+}
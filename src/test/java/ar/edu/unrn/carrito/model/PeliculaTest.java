@@ -23,7 +23,7 @@ class PeliculaTest {
         // Verificación: Verificar el resultado esperado
         assertEquals(id, pelicula.id(), "El ID debe coincidir con el valor asignado");
         assertEquals(nombre, pelicula.nombre(), "El nombre debe coincidir con el valor asignado");
-        assertEquals(precio, pelicula.precio(), "El precio debe coincidir con el valor asignado");
+        assertEquals(Monto.de(precio), pelicula.precio(), "El precio debe coincidir con el valor asignado");
     }
 
     @Test
@@ -129,7 +129,7 @@ class PeliculaTest {
 
         // Verificación: Verificar el resultado esperado
         assertNotNull(pelicula, "La película debe crearse correctamente con precio cero");
-        assertEquals(BigDecimal.ZERO, pelicula.precio(), "El precio debe ser cero");
+        assertEquals(Monto.CERO, pelicula.precio(), "El precio debe ser cero");
     }
 
     @Test
@@ -157,4 +157,22 @@ class PeliculaTest {
         assertEquals(pelicula1.hashCode(), pelicula2.hashCode(),
                 "HashCode debe ser igual para objetos que son equals");
     }
+
+    @Test
+    @DisplayName("ActualizarPrecio cambia el precio e informa si cambió")
+    void actualizarPrecio_precioNuevo_cambiaPrecio() {
+        // Setup: Preparar el escenario
+        Pelicula pelicula = new Pelicula(1L, "Avatar", new BigDecimal("15.99"));
+
+        // Ejercitación: Ejecutar la acción a probar
+        boolean cambio = pelicula.actualizarPrecio(Monto.de(new BigDecimal("9.99")));
+        boolean repetido = pelicula.actualizarPrecio(Monto.de(new BigDecimal("9.990")));
+
+        // Verificación: Verificar el resultado esperado
+        assertTrue(cambio, "Un precio distinto debe informarse como cambio");
+        assertFalse(repetido, "El mismo precio con otra escala no es un cambio");
+        assertEquals(Monto.deCentavos(999), pelicula.precio());
+        var ex = assertThrows(RuntimeException.class, () -> pelicula.actualizarPrecio(Monto.deCentavos(-100)));
+        assertEquals(Pelicula.ERROR_PRECIO_NEGATIVO, ex.getMessage());
+    }
 }
@@ -0,0 +1,200 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.EventoCarrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Monto;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.model.SnapshotCarrito;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActualizacionPreciosIntegracionTest {
+
+    private EntityManagerFactory emf;
+    private CarritoService carritoService;
+
+    @BeforeEach
+    void setUp() {
+        emf = new EmfBuilder()
+                .memory()
+                .addClass(Carrito.class)
+                .addClass(Pelicula.class)
+                .addClass(ItemCarrito.class)
+                .addClass(EventoCarrito.class)
+                .addClass(SnapshotCarrito.class)
+                .build();
+        emf.getSchemaManager().truncate();
+        carritoService = new CarritoService(emf, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 10.00);
+        carritoService.agregarPeliculaAlCatalogo(2L, "Titanic", 5.00);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    @DisplayName("Un cambio de precio corrige el total y la versión solo de los carritos con esa película")
+    void actualizarPreciosCatalogo_carritosConLaPelicula_corrigeSoloEsos() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "ana");
+        carritoService.agregarPeliculaDesdeCatalogo(2L, "beto");
+        String versionAna = carritoService.obtenerVersionCarrito("ana").orElseThrow();
+        String versionBeto = carritoService.obtenerVersionCarrito("beto").orElseThrow();
+
+        // Ejercitación: Ejecutar la acción a probar
+        int actualizados = carritoService.actualizarPreciosCatalogo(Map.of(1L, Monto.de(new BigDecimal("12.50"))));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, actualizados, "Solo el carrito que contiene la película debe corregirse");
+        assertEquals(0, new BigDecimal("12.50").compareTo(carritoService.obtenerResumenCarrito("ana").orElseThrow().total()),
+                "El total desnormalizado debe reflejar el precio nuevo");
+        assertNotEquals(versionAna, carritoService.obtenerVersionCarrito("ana").orElseThrow(),
+                "La versión (ETag) del carrito afectado debe cambiar");
+        assertEquals(versionBeto, carritoService.obtenerVersionCarrito("beto").orElseThrow(),
+                "La versión de un carrito sin la película no debe cambiar");
+        assertEquals(0, new BigDecimal("12.50").compareTo(
+                        carritoService.obtenerCarrito("ana").orElseThrow().items().get(0).peliculaPrecio()),
+                "El detalle debe mostrar el precio nuevo");
+    }
+
+    @Test
+    @DisplayName("Con write-behind el índice inverso corrige los carritos en memoria y los persiste")
+    void actualizarPreciosCatalogo_writeBehind_corrigeCarritosEnMemoria() {
+        // Setup: Preparar el escenario
+        try (var carritosEnMemoria = new CarritosEnMemoria(emf, 10, 60_000)) {
+            var servicio = new CarritoService(emf, new CachePeliculas(10, 0), carritosEnMemoria, new CandadosPorUsuario(1),
+                    MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+            servicio.agregarPeliculaDesdeCatalogo(1L, "ana");
+            servicio.agregarPeliculaDesdeCatalogo(2L, "beto");
+            servicio.agregarPeliculaDesdeCatalogo(2L, "beto");
+
+            // Ejercitación: Ejecutar la acción a probar
+            int actualizados = servicio.actualizarPreciosCatalogo(Map.of(2L, Monto.de(new BigDecimal("7.00"))));
+
+            // Verificación: Verificar el resultado esperado
+            assertEquals(1, actualizados, "Solo el carrito en memoria con la película debe corregirse");
+            assertEquals(0, new BigDecimal("14.00").compareTo(servicio.obtenerResumenCarrito("beto").orElseThrow().total()),
+                    "El carrito en memoria debe tener el total con el precio nuevo");
+            assertEquals(0, new BigDecimal("10.00").compareTo(servicio.obtenerResumenCarrito("ana").orElseThrow().total()),
+                    "El carrito sin la película no cambia");
+        }
+        try (var em = emf.createEntityManager()) {
+            Monto totalPersistido = em.createQuery("SELECT c.total FROM Carrito c WHERE c.usuarioId = 'beto'",
+                    Monto.class).getSingleResult();
+            assertEquals(Monto.deCentavos(1400), totalPersistido, "El total corregido debe persistirse");
+        }
+    }
+
+    @Test
+    @DisplayName("Con el log de eventos un cambio de precio agrega un evento solo a los carritos con la película")
+    void actualizarPreciosCatalogo_modoEventos_cambiaLaVersionDeLosAfectados() {
+        // Setup: Preparar el escenario
+        var cache = new CachePeliculas(10, 0);
+        try (var carritosPorEventos = new CarritosPorEventos(emf, cache, new CandadosPorUsuario(1), 100)) {
+            var servicio = new CarritoService(emf, cache, carritosPorEventos, new CandadosPorUsuario(1),
+                    MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+            servicio.agregarPeliculaDesdeCatalogo(1L, "ana");
+            servicio.agregarPeliculaDesdeCatalogo(2L, "beto");
+            servicio.agregarPeliculaDesdeCatalogo(1L, "carla");
+            carritosPorEventos.mutar("carla", carrito -> {
+                carrito.eliminarPelicula(1L);
+                return null;
+            });
+            String versionAna = servicio.obtenerVersionCarrito("ana").orElseThrow();
+            String versionBeto = servicio.obtenerVersionCarrito("beto").orElseThrow();
+            String versionCarla = servicio.obtenerVersionCarrito("carla").orElseThrow();
+
+            // Ejercitación: Ejecutar la acción a probar
+            int actualizados = servicio.actualizarPreciosCatalogo(Map.of(1L, Monto.de(new BigDecimal("12.50"))));
+
+            // Verificación: Verificar el resultado esperado
+            assertEquals(1, actualizados, "Solo el carrito que todavía contiene la película debe actualizarse");
+            assertEquals(0, new BigDecimal("12.50").compareTo(servicio.obtenerResumenCarrito("ana").orElseThrow().total()),
+                    "El total se recalcula con el precio nuevo");
+            assertNotEquals(versionAna, servicio.obtenerVersionCarrito("ana").orElseThrow(),
+                    "La versión (ETag) del carrito afectado debe cambiar");
+            assertEquals(versionBeto, servicio.obtenerVersionCarrito("beto").orElseThrow(),
+                    "La versión de un carrito sin la película no debe cambiar");
+            assertEquals(versionCarla, servicio.obtenerVersionCarrito("carla").orElseThrow(),
+                    "Un carrito que quitó la película no recibe el evento");
+        }
+    }
+
+    @Test
+    @DisplayName("Un precio igual al actual o de una película desconocida no corrige carritos")
+    void actualizarPreciosCatalogo_sinCambios_noCorrigeCarritos() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "ana");
+        String version = carritoService.obtenerVersionCarrito("ana").orElseThrow();
+
+        // Ejercitación: Ejecutar la acción a probar
+        int actualizados = carritoService.actualizarPreciosCatalogo(Map.of(1L, Monto.de(new BigDecimal("10.00")),
+                99L, Monto.de(new BigDecimal("1.00"))));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(0, actualizados, "Sin cambios de precio no hay carritos que corregir");
+        assertEquals(version, carritoService.obtenerVersionCarrito("ana").orElseThrow(), "La versión no debe cambiar");
+    }
+
+    @Test
+    @DisplayName("Si el catálogo ya tiene el precio pero los carritos quedaron viejos, la reentrega los corrige")
+    void actualizarPreciosCatalogo_reentregaConPrecioYaAplicado_corrigeCarritos() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "ana");
+        try (var em = emf.createEntityManager()) {
+            // Una entrega anterior que actualizó el catálogo y falló antes de corregir los carritos
+            em.getTransaction().begin();
+            em.createNativeQuery("UPDATE peliculas SET precio = 12.50 WHERE id = 1").executeUpdate();
+            em.getTransaction().commit();
+        }
+
+        // Ejercitación: Ejecutar la acción a probar
+        int actualizados = carritoService.actualizarPreciosCatalogo(Map.of(1L, Monto.de(new BigDecimal("12.50"))));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, actualizados, "La reentrega debe corregir el carrito que quedó con el total viejo");
+        assertEquals(0, new BigDecimal("12.50").compareTo(carritoService.obtenerResumenCarrito("ana").orElseThrow().total()),
+                "El total debe reflejar el precio del catálogo");
+    }
+
+    @Test
+    @DisplayName("Con el log de eventos se encuentran por el snapshot los carritos cuya película quedó antes del snapshot")
+    void actualizarPreciosCatalogo_modoEventosConSnapshot_encuentraPorElSnapshot() {
+        // Setup: Preparar el escenario
+        var cache = new CachePeliculas(10, 0);
+        try (var conSnapshots = new CarritosPorEventos(emf, cache, new CandadosPorUsuario(1), 1)) {
+            var servicio = new CarritoService(emf, cache, conSnapshots, new CandadosPorUsuario(1),
+                    MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+            servicio.agregarPeliculaDesdeCatalogo(1L, "ana");
+            servicio.agregarPeliculaDesdeCatalogo(2L, "ana");
+            servicio.agregarPeliculaDesdeCatalogo(2L, "beto");
+        }
+
+        try (var carritosPorEventos = new CarritosPorEventos(emf, cache, new CandadosPorUsuario(1), 100)) {
+            var servicio = new CarritoService(emf, cache, carritosPorEventos, new CandadosPorUsuario(1),
+                    MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+            String versionAna = servicio.obtenerVersionCarrito("ana").orElseThrow();
+
+            // Ejercitación: Ejecutar la acción a probar
+            int actualizados = servicio.actualizarPreciosCatalogo(Map.of(1L, Monto.de(new BigDecimal("12.50"))));
+
+            // Verificación: Verificar el resultado esperado
+            assertEquals(1, actualizados, "Solo el carrito con la película en su snapshot debe actualizarse");
+            assertNotEquals(versionAna, servicio.obtenerVersionCarrito("ana").orElseThrow(),
+                    "La versión del carrito encontrado por el snapshot debe cambiar");
+        }
+    }
+}
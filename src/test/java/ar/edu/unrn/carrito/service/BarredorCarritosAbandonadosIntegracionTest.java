@@ -0,0 +1,224 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.EventoCarrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.model.SnapshotCarrito;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BarredorCarritosAbandonadosIntegracionTest {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    @TempDir
+    Path directorio;
+
+    private EntityManagerFactory emf;
+    private CarritoService carritoService;
+    private SimpleMeterRegistry registro;
+
+    @BeforeEach
+    void setUp() {
+        emf = new EmfBuilder()
+                .memory()
+                .addClass(Carrito.class)
+                .addClass(Pelicula.class)
+                .addClass(ItemCarrito.class)
+                .addClass(EventoCarrito.class)
+                .addClass(SnapshotCarrito.class)
+                .build();
+        emf.getSchemaManager().truncate();
+        carritoService = new CarritoService(emf, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+        registro = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    @DisplayName("Barrer archiva en un segmento gzip y elimina solo los carritos abandonados")
+    void barrer_carritosAbandonados_archivaYEliminaSoloAbandonados() throws IOException {
+        // Setup: Preparar el escenario
+        for (String usuario : List.of("ana", "beto", "carla")) {
+            carritoService.agregarPeliculaDesdeCatalogo(1L, usuario);
+        }
+        abandonar("ana", "beto");
+        var barredor = barredor(1, () -> false);
+
+        // Ejercitación: Ejecutar la acción a probar
+        int eliminados = barredor.barrer();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(2, eliminados, "Deben eliminarse los dos carritos abandonados");
+        try (var em = emf.createEntityManager()) {
+            assertEquals(List.of("carla"), em.createQuery("SELECT c.usuarioId FROM Carrito c", String.class).getResultList(),
+                    "El carrito con actividad reciente debe conservarse");
+            assertEquals(1L, em.createQuery("SELECT COUNT(i) FROM ItemCarrito i", Long.class).getSingleResult(),
+                    "Los items de los carritos eliminados deben borrarse");
+        }
+        List<String> lineas = leerSegmentos();
+        assertEquals(2, lineas.size(), "El segmento debe tener una línea por carrito archivado (un miembro gzip por lote)");
+        assertEquals("ana", MAPPER.readTree(lineas.get(0)).get("usuarioId").asText());
+        assertEquals(1, MAPPER.readTree(lineas.get(0)).get("items").size(), "El archivo debe incluir los items");
+        assertEquals(2, registro.get("carrito.barrido.eliminados").counter().count(),
+                "Las métricas deben reflejar los carritos eliminados");
+    }
+
+    @Test
+    @DisplayName("Barrer espera a que baje la carga antes de procesar un lote")
+    void barrer_cargaAlta_esperaAntesDeProcesar() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "ana");
+        abandonar("ana");
+        var consultas = new AtomicInteger();
+        var barredor = barredor(10, () -> consultas.incrementAndGet() <= 3);
+
+        // Ejercitación: Ejecutar la acción a probar
+        int eliminados = barredor.barrer();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, eliminados, "Al bajar la carga el barrido debe continuar");
+        assertTrue(consultas.get() > 3, "El barrido debe consultar la carga hasta que baje");
+    }
+
+    @Test
+    @DisplayName("Barrer sin carritos abandonados no crea segmentos")
+    void barrer_sinAbandonados_noCreaSegmentos() throws IOException {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "ana");
+        var barredor = barredor(10, () -> false);
+
+        // Ejercitación: Ejecutar la acción a probar
+        int eliminados = barredor.barrer();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(0, eliminados);
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            assertEquals(0, archivos.count(), "No debe crearse un segmento vacío");
+        }
+    }
+
+    private BarredorCarritosAbandonados barredor(int tamanioLote, java.util.function.BooleanSupplier cargaAlta) {
+        return barredor(null, tamanioLote, cargaAlta);
+    }
+
+    private BarredorCarritosAbandonados barredor(AlmacenCarritos almacen, int tamanioLote,
+                                                 java.util.function.BooleanSupplier cargaAlta) {
+        return new BarredorCarritosAbandonados(emf, almacen, MAPPER, directorio, Duration.ofDays(30), tamanioLote,
+                Duration.ofMillis(1), cargaAlta, registro);
+    }
+
+    @Test
+    @DisplayName("Barrer no borra los carritos que el write-behind tiene en memoria")
+    void barrer_carritoEnMemoria_noLoBorra() {
+        // Setup: Preparar el escenario
+        try (var carritosEnMemoria = new CarritosEnMemoria(emf, 10, 60_000)) {
+            var servicio = new CarritoService(emf, new CachePeliculas(10, 0), carritosEnMemoria, new CandadosPorUsuario(1),
+                    MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+            servicio.agregarPeliculaDesdeCatalogo(1L, "ana");
+            carritosEnMemoria.flush();
+            carritoService.agregarPeliculaDesdeCatalogo(1L, "beto");
+            abandonar("ana", "beto");
+            var barredor = barredor(carritosEnMemoria, 10, () -> false);
+
+            // Ejercitación: Ejecutar la acción a probar
+            int eliminados = barredor.barrer();
+
+            // Verificación: Verificar el resultado esperado
+            assertEquals(1, eliminados, "Solo debe borrarse el carrito que no está en memoria");
+            try (var em = emf.createEntityManager()) {
+                assertEquals(List.of("ana"), em.createQuery("SELECT c.usuarioId FROM Carrito c", String.class).getResultList(),
+                        "La fila del carrito en memoria debe conservarse");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Con el log de eventos barrer archiva y borra los eventos y el snapshot de los carritos abandonados")
+    void barrer_modoEventos_borraEventosYSnapshots() throws IOException {
+        // Setup: Preparar el escenario
+        var cache = new CachePeliculas(10, 0);
+        try (var carritosPorEventos = new CarritosPorEventos(emf, cache, new CandadosPorUsuario(1), 1)) {
+            var servicio = new CarritoService(emf, cache, carritosPorEventos, new CandadosPorUsuario(1),
+                    MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+            servicio.agregarPeliculaDesdeCatalogo(1L, "ana");
+            servicio.agregarPeliculaDesdeCatalogo(1L, "beto");
+        }
+        try (var carritosPorEventos = new CarritosPorEventos(emf, cache, new CandadosPorUsuario(1), 100)) {
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                em.createQuery("UPDATE EventoCarrito e SET e.fecha = :fecha WHERE e.usuarioId = 'ana'")
+                        .setParameter("fecha", LocalDateTime.now().minusDays(60))
+                        .executeUpdate();
+                em.getTransaction().commit();
+            }
+            var barredor = barredor(carritosPorEventos, 10, () -> false);
+
+            // Ejercitación: Ejecutar la acción a probar
+            int eliminados = barredor.barrer();
+
+            // Verificación: Verificar el resultado esperado
+            assertEquals(1, eliminados, "Debe eliminarse solo el carrito abandonado del log");
+            try (var em = emf.createEntityManager()) {
+                assertEquals(List.of("beto"), em.createQuery("SELECT DISTINCT e.usuarioId FROM EventoCarrito e",
+                        String.class).getResultList(), "Los eventos del carrito abandonado deben borrarse");
+                assertEquals(List.of("beto"), em.createQuery("SELECT s.usuarioId FROM SnapshotCarrito s",
+                        String.class).getResultList(), "El snapshot del carrito abandonado debe borrarse");
+            }
+            assertTrue(carritosPorEventos.leer("ana", carrito -> carrito).isEmpty(), "El carrito no debe reconstruirse");
+            assertEquals("ana", MAPPER.readTree(leerSegmentos().get(0)).get("usuarioId").asText(),
+                    "El carrito del log debe archivarse antes de borrarse");
+        }
+    }
+
+    private void abandonar(String... usuarios) {
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createQuery("UPDATE Carrito c SET c.fechaModificacion = :fecha WHERE c.usuarioId IN :usuarios")
+                    .setParameter("fecha", LocalDateTime.now().minusDays(60))
+                    .setParameter("usuarios", List.of(usuarios))
+                    .executeUpdate();
+            em.getTransaction().commit();
+        }
+    }
+
+    private List<String> leerSegmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            List<Path> segmentos = archivos.toList();
+            assertEquals(1, segmentos.size(), "Cada barrido debe escribir un único segmento");
+            assertTrue(segmentos.get(0).getFileName().toString().endsWith(BarredorCarritosAbandonados.EXTENSION_SEGMENTO));
+            try (var lector = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(segmentos.get(0))), StandardCharsets.UTF_8))) {
+                return lector.lines().toList();
+            }
+        }
+    }
+}
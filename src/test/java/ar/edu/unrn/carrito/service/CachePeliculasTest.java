@@ -0,0 +1,112 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Pelicula;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachePeliculasTest {
+
+    private static final Pelicula AVATAR = new Pelicula(1L, "Avatar", new BigDecimal("15.99"));
+
+    @Test
+    @DisplayName("Obtener dos veces la misma película carga una sola vez")
+    void obtener_dosVeces_cargaUnaSolaVez() {
+        // Setup: Preparar el escenario
+        CachePeliculas cache = new CachePeliculas(10, 1000);
+        AtomicInteger cargas = new AtomicInteger();
+
+        // Ejercitación: Ejecutar la acción a probar
+        cache.obtener(1L, id -> { cargas.incrementAndGet(); return AVATAR; });
+        var pelicula = cache.obtener(1L, id -> { cargas.incrementAndGet(); return AVATAR; });
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(AVATAR, pelicula.orElseThrow(), "Debe devolver la película cacheada");
+        assertEquals(1, cargas.get(), "La segunda lectura no debe llegar al cargador");
+        assertEquals(1, cache.estadisticas().aciertos(), "Debe registrarse un acierto");
+        assertEquals(1, cache.estadisticas().fallos(), "Debe registrarse un fallo");
+    }
+
+    @Test
+    @DisplayName("Obtener un id inexistente lo recuerda en la cache negativa")
+    void obtener_idInexistente_usaCacheNegativa() {
+        // Setup: Preparar el escenario
+        CachePeliculas cache = new CachePeliculas(10, 60_000);
+        AtomicInteger cargas = new AtomicInteger();
+        cache.obtener(999L, id -> { cargas.incrementAndGet(); return null; });
+
+        // Ejercitación: Ejecutar la acción a probar
+        var pelicula = cache.obtener(999L, id -> { cargas.incrementAndGet(); return null; });
+
+        // Verificación: Verificar el resultado esperado
+        assertTrue(pelicula.isEmpty(), "Un id inexistente debe devolver vacío");
+        assertEquals(1, cargas.get(), "El id inexistente no debe volver a cargarse");
+        assertEquals(1, cache.estadisticas().aciertosNegativos(), "Debe registrarse un acierto negativo");
+    }
+
+    @Test
+    @DisplayName("Actualizar una película elimina su entrada negativa")
+    void actualizar_peliculaMarcadaInexistente_quedaDisponible() {
+        // Setup: Preparar el escenario
+        CachePeliculas cache = new CachePeliculas(10, 60_000);
+        cache.obtener(1L, id -> null);
+
+        // Ejercitación: Ejecutar la acción a probar
+        cache.actualizar(AVATAR);
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(AVATAR, cache.obtener(1L, id -> null).orElseThrow(),
+                "La película publicada por el catálogo debe quedar disponible");
+    }
+
+    @Test
+    @DisplayName("Superar la capacidad desaloja la película usada menos recientemente")
+    void obtener_superaCapacidad_desalojaMenosReciente() {
+        // Setup: Preparar el escenario
+        CachePeliculas cache = new CachePeliculas(1, 0);
+        cache.actualizar(AVATAR);
+
+        // Ejercitación: Ejecutar la acción a probar
+        cache.actualizar(new Pelicula(2L, "Titanic", new BigDecimal("12.99")));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, cache.estadisticas().tamanio(), "La cache no debe superar su capacidad");
+        assertTrue(cache.obtener(1L, id -> null).isEmpty(), "La película desalojada debe volver a cargarse");
+    }
+
+    @Test
+    @DisplayName("ObtenerTodas carga solo los ids no cacheados con una única llamada")
+    void obtenerTodas_idsMixtos_cargaSoloLosFaltantesEnUnaLlamada() {
+        // Setup: Preparar el escenario
+        CachePeliculas cache = new CachePeliculas(10, 60_000);
+        cache.actualizar(AVATAR);
+        Pelicula titanic = new Pelicula(2L, "Titanic", new BigDecimal("12.99"));
+        AtomicInteger cargas = new AtomicInteger();
+
+        // Ejercitación: Ejecutar la acción a probar
+        var peliculas = cache.obtenerTodas(List.of(1L, 2L, 999L), ids -> {
+            cargas.incrementAndGet();
+            assertEquals(Set.of(2L, 999L), ids, "Solo deben cargarse los ids no cacheados");
+            return List.of(titanic);
+        });
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, cargas.get(), "Los faltantes deben cargarse en una sola llamada");
+        assertEquals(2, peliculas.size(), "El id inexistente no debe aparecer en el resultado");
+        assertTrue(cache.obtener(999L, id -> AVATAR).isEmpty(), "El id inexistente debe quedar en la cache negativa");
+    }
+
+    @Test
+    @DisplayName("Constructor con capacidad cero lanza excepción")
+    void constructor_capacidadCero_lanzaExcepcion() {
+        // Setup, Ejercitación y Verificación: Crear la cache con capacidad inválida
+        var ex = assertThrows(RuntimeException.class, () -> new CachePeliculas(0, 0));
+        assertEquals(CachePeliculas.ERROR_CAPACIDAD_INVALIDA, ex.getMessage());
+    }
+}
@@ -0,0 +1,70 @@
+package ar.edu.unrn.carrito.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandadosPorUsuarioTest {
+
+    @Test
+    @DisplayName("ConCandado serializa las acciones del mismo usuario")
+    void conCandado_mismoUsuario_serializaAcciones() throws InterruptedException {
+        // Setup: Preparar el escenario
+        CandadosPorUsuario candados = new CandadosPorUsuario(16);
+        int[] contador = new int[1];
+
+        // Ejercitación: Ejecutar la acción a probar
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 10_000; i++) {
+                executor.submit(() -> candados.conCandado("usuario123", () -> contador[0]++));
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "Todas las acciones deben terminar");
+        }
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(10_000, contador[0], "Ningún incremento debe perderse");
+    }
+
+    @Test
+    @DisplayName("ConCandado no bloquea a un usuario de otra franja")
+    void conCandado_usuarioDeOtraFranja_noQuedaBloqueado() throws InterruptedException {
+        // Setup: Preparar el escenario
+        // Con dos franjas "a" (hash 97) y "b" (hash 98) caen en franjas distintas
+        CandadosPorUsuario candados = new CandadosPorUsuario(2);
+        CountDownLatch tomado = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Thread ocupado = Thread.ofVirtual().start(() -> candados.conCandado("a", () -> {
+            tomado.countDown();
+            try {
+                return liberar.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+        assertTrue(tomado.await(10, TimeUnit.SECONDS), "El candado de \"a\" debe estar tomado");
+
+        // Ejercitación: Ejecutar la acción a probar
+        String resultado = candados.conCandado("b", () -> "ok");
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals("ok", resultado, "Otro usuario no debe esperar el candado ocupado");
+        liberar.countDown();
+        ocupado.join();
+    }
+
+    @Test
+    @DisplayName("Constructor redondea las franjas a potencia de dos y rechaza cero")
+    void constructor_franjas_redondeaYValida() {
+        // Setup, Ejercitación y Verificación: Crear candados con distintas franjas
+        assertEquals(256, new CandadosPorUsuario(200).cantidadFranjas(), "Debe redondear a potencia de dos");
+        assertEquals(1, new CandadosPorUsuario(1).cantidadFranjas(), "Una franja es válida");
+        var ex = assertThrows(RuntimeException.class, () -> new CandadosPorUsuario(0));
+        assertEquals(CandadosPorUsuario.ERROR_FRANJAS_INVALIDAS, ex.getMessage());
+    }
+}
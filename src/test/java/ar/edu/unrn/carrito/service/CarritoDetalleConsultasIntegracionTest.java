@@ -0,0 +1,157 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import ar.edu.unrn.carrito.web.AgregadoMultipleInfo;
+import ar.edu.unrn.carrito.web.CarritoDetalle;
+import ar.edu.unrn.carrito.web.PeliculaAAgregar;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarritoDetalleConsultasIntegracionTest {
+
+    private EntityManagerFactory emf;
+    private CarritoService carritoService;
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        emf = new EmfBuilder()
+                .memory()
+                .withStatistics()
+                .addClass(Carrito.class)
+                .addClass(Pelicula.class)
+                .addClass(ItemCarrito.class)
+                .build();
+        emf.getSchemaManager().truncate();
+        carritoService = new CarritoService(emf, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+        estadisticas = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        emf.close();
+    }
+
+    @ParameterizedTest(name = "carrito de {0} items")
+    @ValueSource(ints = {1, 10, 100})
+    @DisplayName("ObtenerCarrito carga el detalle completo con una sola sentencia SQL")
+    void obtenerCarrito_carritoConItems_ejecutaUnaSolaSentencia(int cantidadItems) {
+        // Setup: Preparar el escenario
+        crearCarrito("usuario123", cantidadItems);
+        estadisticas.clear();
+
+        // Ejercitación: Ejecutar la acción a probar
+        var detalle = carritoService.obtenerCarrito("usuario123").orElseThrow();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(cantidadItems, detalle.items().size(), "El detalle debe incluir todos los items");
+        assertEquals(1, estadisticas.getPrepareStatementCount(),
+                "Carrito, items y películas deben cargarse en una sola sentencia");
+    }
+
+    @Test
+    @DisplayName("Leer sin carrito no inserta filas; el carrito se crea con la primera película agregada")
+    void obtenerCarrito_sinCarrito_noInsertaHastaLaPrimeraMutacion() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+        estadisticas.clear();
+
+        // Ejercitación: Ejecutar la acción a probar
+        var detalle = carritoService.obtenerCarrito("usuario123").orElseGet(() -> CarritoDetalle.vacio("usuario123"));
+        long insercionesAlLeer = estadisticas.getEntityInsertCount();
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertNull(detalle.id(), "El carrito vacío de la lectura no tiene fila");
+        assertTrue(detalle.items().isEmpty(), "El carrito vacío no tiene items");
+        assertEquals(0, insercionesAlLeer, "La lectura no debe insertar un carrito");
+        var creado = carritoService.obtenerCarrito("usuario123").orElseThrow();
+        assertNotNull(creado.id(), "La primera mutación debe crear la fila del carrito");
+        assertEquals(1, creado.cantidadItems());
+    }
+
+    @Test
+    @DisplayName("Si ninguna película es válida se informan los errores sin crear el carrito")
+    void agregarPeliculasDesdeCatalogo_todasInvalidas_noCreaCarrito() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+        List<PeliculaAAgregar> aAgregar = List.of(new PeliculaAAgregar(99L, 1), new PeliculaAAgregar(1L, 0));
+        estadisticas.clear();
+
+        // Ejercitación: Ejecutar la acción a probar
+        AgregadoMultipleInfo resultado = carritoService.agregarPeliculasDesdeCatalogo(aAgregar, "usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(2, resultado.errores().size(), "Deben informarse los errores de las dos películas");
+        assertNull(resultado.carrito().id(), "El usuario sigue sin carrito");
+        assertEquals(0, estadisticas.getEntityInsertCount(), "No debe insertarse un carrito vacío");
+        assertTrue(carritoService.obtenerCarrito("usuario123").isEmpty(), "El usuario no debe tener carrito");
+    }
+
+    @Test
+    @DisplayName("Un pedido con más películas que el máximo se rechaza")
+    void agregarPeliculasDesdeCatalogo_superaMaximo_lanzaExcepcion() {
+        // Setup: Preparar el escenario
+        List<PeliculaAAgregar> aAgregar = Collections.nCopies(CarritoService.MAX_PELICULAS_POR_PEDIDO + 1,
+                new PeliculaAAgregar(1L, 1));
+
+        // Ejercitación: Ejecutar la acción a probar
+        var excepcion = assertThrows(RuntimeException.class,
+                () -> carritoService.agregarPeliculasDesdeCatalogo(aAgregar, "usuario123"));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(CarritoService.ERROR_DEMASIADAS_PELICULAS, excepcion.getMessage());
+    }
+
+    @Test
+    @DisplayName("ObtenerVersionCarrito lee solo la fila del carrito y cambia al modificarlo")
+    void obtenerVersionCarrito_carritoModificado_cambiaSinCargarItems() {
+        // Setup: Preparar el escenario
+        crearCarrito("usuario123", 10);
+        estadisticas.clear();
+
+        // Ejercitación: Ejecutar la acción a probar
+        String versionInicial = carritoService.obtenerVersionCarrito("usuario123").orElseThrow();
+        long entidadesCargadas = estadisticas.getEntityLoadCount();
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+        String versionModificada = carritoService.obtenerVersionCarrito("usuario123").orElseThrow();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(0, entidadesCargadas, "La versión no debe cargar carritos, items ni películas");
+        assertNotEquals(versionInicial, versionModificada, "Modificar el carrito debe cambiar su versión");
+        assertEquals(versionModificada, carritoService.obtenerVersionCarrito("usuario123").orElseThrow(),
+                "Sin modificaciones la versión debe mantenerse");
+    }
+
+    private void crearCarrito(String usuarioId, int cantidadItems) {
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            Carrito carrito = new Carrito(usuarioId);
+            for (long id = 1; id <= cantidadItems; id++) {
+                Pelicula pelicula = new Pelicula(id, "Pelicula " + id, new BigDecimal("10.00"));
+                em.persist(pelicula);
+                carrito.agregarPelicula(pelicula, 1);
+            }
+            em.persist(carrito);
+            transaction.commit();
+        }
+    }
+}
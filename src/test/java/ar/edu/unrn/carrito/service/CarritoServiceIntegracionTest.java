@@ -3,13 +3,20 @@ package ar.edu.unrn.carrito.service;
 import ar.edu.unrn.carrito.model.Carrito;
 import ar.edu.unrn.carrito.model.Pelicula;
 import ar.edu.unrn.carrito.utils.EmfBuilder;
+import ar.edu.unrn.carrito.web.AgregadoMultipleInfo;
+import ar.edu.unrn.carrito.web.CarritoDetalle;
 import ar.edu.unrn.carrito.web.CarritoInfo;
+import ar.edu.unrn.carrito.web.ErrorPeliculaInfo;
+import ar.edu.unrn.carrito.web.PeliculaAAgregar;
 import jakarta.persistence.EntityManagerFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 class CarritoServiceIntegracionTest {
@@ -28,7 +35,8 @@ class CarritoServiceIntegracionTest {
         // Limpiar base de datos antes de cada test
         emf.getSchemaManager().truncate();
 
-        carritoService = new CarritoService(emf);
+        carritoService = new CarritoService(emf, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
     }
 
     @Test
@@ -130,4 +138,148 @@ class CarritoServiceIntegracionTest {
         assertEquals(usuarioId, resultado.usuarioId(), "El usuario ID debe coincidir");
         assertEquals(0, resultado.cantidadItems(), "El carrito debe estar vacío");
     }
+
+    @Test
+    @DisplayName("AgregarPeliculasAlCatalogo con lote mixto agrega solo las nuevas")
+    void agregarPeliculasAlCatalogo_loteMixto_agregaSoloNuevas() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+        List<Pelicula> lote = List.of(
+                new Pelicula(1L, "Avatar", new BigDecimal("15.99")),
+                new Pelicula(2L, "Titanic", new BigDecimal("12.99")),
+                new Pelicula(3L, "Matrix", new BigDecimal("9.99")),
+                new Pelicula(3L, "Matrix", new BigDecimal("9.99"))
+        );
+
+        // Ejercitación: Ejecutar la acción a probar
+        int agregadas = carritoService.agregarPeliculasAlCatalogo(lote);
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(2, agregadas, "Solo deben agregarse las películas que no existían");
+        try (var em = emf.createEntityManager()) {
+            assertEquals(3L, em.createQuery("SELECT COUNT(p) FROM Pelicula p", Long.class).getSingleResult(),
+                    "El catálogo debe tener las tres películas sin duplicados");
+        }
+    }
+
+    @Test
+    @DisplayName("AgregarPeliculasAlCatalogo deja las películas nuevas disponibles para el carrito")
+    void agregarPeliculasAlCatalogo_peliculasNuevas_disponiblesParaElCarrito() {
+        // Setup: Preparar el escenario
+        List<Pelicula> lote = List.of(new Pelicula(1L, "Avatar", new BigDecimal("15.99")));
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritoService.agregarPeliculasAlCatalogo(lote);
+        CarritoInfo resultado = carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, resultado.cantidadItems(), "La película del lote debe poder agregarse al carrito");
+    }
+
+    @Test
+    @DisplayName("ObtenerResumenCarrito devuelve los totales guardados en el carrito")
+    void obtenerResumenCarrito_carritoConPeliculas_devuelveTotales() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+
+        // Ejercitación: Ejecutar la acción a probar
+        CarritoInfo resumen = carritoService.obtenerResumenCarrito("usuario123").orElseThrow();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(2, resumen.cantidadItems(), "La cantidad debe salir de la columna desnormalizada");
+        assertEquals(0, new BigDecimal("31.98").compareTo(resumen.total()), "El total debe salir de la columna desnormalizada");
+    }
+
+    @Test
+    @DisplayName("RepararTotales corrige un carrito con totales inconsistentes")
+    void repararTotales_totalesInconsistentes_losCorrige() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createNativeQuery("UPDATE carritos SET total = 0, cantidad_items = 0").executeUpdate();
+            em.getTransaction().commit();
+        }
+
+        // Ejercitación: Ejecutar la acción a probar
+        int reparados = carritoService.repararTotales();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, reparados, "Debe corregirse el carrito inconsistente");
+        CarritoInfo resumen = carritoService.obtenerResumenCarrito("usuario123").orElseThrow();
+        assertEquals(1, resumen.cantidadItems(), "La cantidad debe quedar corregida");
+        assertEquals(0, new BigDecimal("15.99").compareTo(resumen.total()), "El total debe quedar corregido");
+    }
+
+    @Test
+    @DisplayName("AgregarPeliculasDesdeCatalogo agrega las válidas e informa los ids inexistentes")
+    void agregarPeliculasDesdeCatalogo_idsMixtos_agregaValidasEInformaErrores() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+        carritoService.agregarPeliculaAlCatalogo(2L, "Titanic", 12.99);
+        List<PeliculaAAgregar> aAgregar = List.of(
+                new PeliculaAAgregar(1L, null),
+                new PeliculaAAgregar(2L, 3),
+                new PeliculaAAgregar(999L, 1)
+        );
+
+        // Ejercitación: Ejecutar la acción a probar
+        AgregadoMultipleInfo resultado = carritoService.agregarPeliculasDesdeCatalogo(aAgregar, "usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(4, resultado.carrito().cantidadItems(), "Debe agregarse una Avatar y tres Titanic");
+        assertEquals(0, new BigDecimal("54.96").compareTo(resultado.carrito().total()), "El total debe incluir ambas películas");
+        assertEquals(List.of(new ErrorPeliculaInfo(999L, CarritoService.ERROR_PELICULA_NO_ENCONTRADA)),
+                resultado.errores(), "El id inexistente debe informarse como error del item");
+    }
+
+    @Test
+    @DisplayName("AgregarPeliculasDesdeCatalogo suma sobre el carrito existente y rechaza cantidades inválidas")
+    void agregarPeliculasDesdeCatalogo_carritoExistente_sumaCantidades() {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+        List<PeliculaAAgregar> aAgregar = List.of(
+                new PeliculaAAgregar(1L, 2),
+                new PeliculaAAgregar(1L, 0)
+        );
+
+        // Ejercitación: Ejecutar la acción a probar
+        AgregadoMultipleInfo resultado = carritoService.agregarPeliculasDesdeCatalogo(aAgregar, "usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(3, resultado.carrito().cantidadItems(), "Las cantidades deben sumarse al carrito existente");
+        assertEquals(1, resultado.errores().size(), "La cantidad inválida debe informarse como error");
+        CarritoDetalle detalle = carritoService.obtenerCarrito("usuario123").orElseThrow();
+        assertEquals(1, detalle.items().size(), "La misma película no debe duplicar items");
+        assertEquals(3, detalle.items().get(0).cantidad(), "La cantidad persistida debe ser la acumulada");
+    }
+
+    @Test
+    @DisplayName("AgregarPeliculaDesdeCatalogo concurrente del mismo usuario no duplica carritos ni pierde cantidades")
+    void agregarPeliculaDesdeCatalogo_concurrenteMismoUsuario_noPierdeCantidades() throws InterruptedException {
+        // Setup: Preparar el escenario
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+        int requests = 20;
+
+        // Ejercitación: Ejecutar la acción a probar
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < requests; i++) {
+                executor.submit(() -> carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123"));
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "Todas las requests deben terminar");
+        }
+
+        // Verificación: Verificar el resultado esperado
+        try (var em = emf.createEntityManager()) {
+            assertEquals(1L, em.createQuery("SELECT COUNT(c) FROM Carrito c", Long.class).getSingleResult(),
+                    "Las requests concurrentes no deben crear carritos duplicados");
+        }
+        assertEquals(requests, carritoService.obtenerCarrito("usuario123").orElseThrow().cantidadItems(),
+                "No debe perderse ningún incremento de cantidad");
+    }
 }
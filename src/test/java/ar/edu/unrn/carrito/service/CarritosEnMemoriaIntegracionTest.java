@@ -0,0 +1,248 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarritosEnMemoriaIntegracionTest {
+
+    private static final long VENTANA_MS = 60_000;
+
+    private EntityManagerFactory emf;
+    private CarritosEnMemoria carritosEnMemoria;
+    private CarritoService carritoService;
+
+    @BeforeEach
+    void setUp() {
+        emf = new EmfBuilder()
+                .memory()
+                .addClass(Carrito.class)
+                .addClass(Pelicula.class)
+                .addClass(ItemCarrito.class)
+                .build();
+        emf.getSchemaManager().truncate();
+
+        try (var em = emf.createEntityManager()) {
+            var transaction = em.getTransaction();
+            transaction.begin();
+            em.persist(new Pelicula(1L, "Avatar", new BigDecimal("15.99")));
+            em.persist(new Pelicula(2L, "Titanic", new BigDecimal("12.99")));
+            transaction.commit();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        carritosEnMemoria.close();
+        emf.close();
+    }
+
+    @Test
+    @DisplayName("AgregarPeliculaDesdeCatalogo en modo write-behind no persiste hasta el flush")
+    void agregarPeliculaDesdeCatalogo_antesDelFlush_noPersiste() {
+        // Setup: Preparar el escenario
+        crearServicio(10);
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(0L, contarCarritosPersistidos(), "El carrito no debe persistirse antes del flush");
+        assertEquals(1, carritoService.obtenerCarrito("usuario123").orElseThrow().cantidadItems(),
+                "La lectura debe ver la mutación en memoria");
+    }
+
+    @Test
+    @DisplayName("Flush con varias mutaciones persiste el carrito sin duplicar items")
+    void flush_variasMutaciones_persisteSinDuplicarItems() {
+        // Setup: Preparar el escenario
+        crearServicio(10);
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+        carritosEnMemoria.flush();
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+        carritoService.agregarPeliculaDesdeCatalogo(2L, "usuario123");
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritosEnMemoria.flush();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1L, contarCarritosPersistidos(), "Debe existir un único carrito persistido");
+        assertEquals(2L, contarItemsPersistidos(), "Debe haber un item por película sin duplicados");
+        assertEquals(3, servicioSinAlmacen().obtenerCarrito("usuario123").orElseThrow().cantidadItems(),
+                "La base de datos debe reflejar todas las mutaciones");
+    }
+
+    @Test
+    @DisplayName("Una mutación durante el flush no espera a la transacción y queda para el próximo flush")
+    void flush_mutacionDuranteLaTransaccion_noSeBloqueaYSePersisteDespues() {
+        // Setup: Preparar el escenario
+        AtomicBoolean mutado = new AtomicBoolean();
+        AtomicBoolean mutoSinEsperar = new AtomicBoolean();
+        // La bandeja de salida se invoca dentro de la transacción del flush: desde ahí otro hilo muta el carrito
+        BandejaSalida mutaDuranteElFlush = new BandejaSalida(false) {
+            @Override
+            public void registrar(EntityManager em, Carrito carrito) {
+                if (mutado.compareAndSet(false, true)) {
+                    try {
+                        CompletableFuture.runAsync(() -> carritoService.agregarPeliculaDesdeCatalogo(2L, "usuario123"))
+                                .get(5, TimeUnit.SECONDS);
+                        mutoSinEsperar.set(true);
+                    } catch (Exception e) {
+                        // Bloqueada por el flush: la verificación lo detecta
+                    }
+                }
+            }
+        };
+        carritosEnMemoria = new CarritosEnMemoria(emf, 10, VENTANA_MS, mutaDuranteElFlush);
+        carritoService = new CarritoService(emf, new CachePeliculas(100, 0), carritosEnMemoria, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritosEnMemoria.flush();
+        long itemsTrasElPrimerFlush = contarItemsPersistidos();
+        carritosEnMemoria.flush();
+
+        // Verificación: Verificar el resultado esperado
+        assertTrue(mutoSinEsperar.get(), "La mutación no debe esperar a que termine la transacción del flush");
+        assertEquals(1L, itemsTrasElPrimerFlush, "El primer flush debe persistir la copia anterior a la mutación");
+        assertEquals(1L, contarCarritosPersistidos(), "El segundo flush debe actualizar el carrito sin reinsertarlo");
+        assertEquals(2, servicioSinAlmacen().obtenerCarrito("usuario123").orElseThrow().cantidadItems(),
+                "La mutación hecha durante el flush debe persistirse en el siguiente");
+    }
+
+    @Test
+    @DisplayName("Desalojo de un carrito sucio no pierde las mutaciones pendientes")
+    void desalojo_carritoSucio_conservaMutaciones() {
+        // Setup: Preparar el escenario
+        crearServicio(1);
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario1");
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritoService.agregarPeliculaDesdeCatalogo(2L, "usuario2");
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, carritosEnMemoria.cantidadActivos(), "El almacén no debe superar su capacidad");
+        assertEquals(1, carritoService.obtenerCarrito("usuario1").orElseThrow().cantidadItems(),
+                "El carrito desalojado debe recuperarse con sus mutaciones");
+    }
+
+    @Test
+    @DisplayName("Close persiste los carritos sucios pendientes")
+    void close_carritosSucios_persiste() {
+        // Setup: Preparar el escenario
+        crearServicio(10);
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritosEnMemoria.close();
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1L, contarCarritosPersistidos(), "El cierre debe persistir los carritos pendientes");
+    }
+
+    @Test
+    @DisplayName("Flush de un carrito modificado en otro nodo descarta los cambios en memoria")
+    void flush_carritoModificadoEnOtroNodo_descartaCambiosEnMemoria() {
+        // Setup: Preparar el escenario
+        crearServicio(10);
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+        carritosEnMemoria.flush();
+        servicioSinAlmacen().agregarPeliculaDesdeCatalogo(2L, "usuario123");
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritosEnMemoria.flush();
+
+        // Verificación: Verificar el resultado esperado
+        var detalle = carritoService.obtenerCarrito("usuario123").orElseThrow();
+        assertEquals(2, detalle.cantidadItems(), "Debe prevalecer el carrito guardado por el otro nodo");
+        assertEquals(2, detalle.items().size(), "El carrito releído debe incluir la película del otro nodo");
+    }
+
+    @Test
+    @DisplayName("Un carrito que la base rechaza no frena a los demás y se descarta tras varios flushes fallidos")
+    void flush_carritoRechazado_persisteLosDemasYLoDescarta() {
+        // Setup: Preparar el escenario
+        crearServicio(10);
+        String usuarioInvalido = "u".repeat(300);
+        carritoService.agregarPeliculaDesdeCatalogo(1L, usuarioInvalido);
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritosEnMemoria.flush();
+        long persistidosTrasElPrimerFlush = contarCarritosPersistidos();
+        for (int i = 1; i < CarritosEnMemoria.MAX_FLUSHES_FALLIDOS; i++) {
+            carritosEnMemoria.flush();
+        }
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1L, persistidosTrasElPrimerFlush, "El carrito válido debe persistirse aunque el lote falle");
+        assertTrue(carritoService.obtenerCarrito(usuarioInvalido).isEmpty(),
+                "Tras los flushes fallidos el carrito rechazado debe descartarse de memoria");
+    }
+
+    @Test
+    @DisplayName("Con el cupo de desalojados lleno, traer un carrito nuevo hace el flush antes")
+    void mutar_desalojadosLleno_haceFlushAntes() {
+        // Setup: Preparar el escenario
+        crearServicio(1);
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario1");
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario2");
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario3");
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(2L, contarCarritosPersistidos(), "Los carritos pendientes deben persistirse antes de traer otro");
+        assertEquals(1, carritoService.obtenerCarrito("usuario1").orElseThrow().cantidadItems(),
+                "El carrito desalojado y persistido debe leerse de la base");
+    }
+
+    @Test
+    @DisplayName("Constructor con capacidad cero lanza excepción")
+    void constructor_capacidadCero_lanzaExcepcion() {
+        // Setup, Ejercitación y Verificación: Crear el almacén con capacidad inválida
+        crearServicio(10);
+        var ex = assertThrows(RuntimeException.class, () -> new CarritosEnMemoria(emf, 0, VENTANA_MS));
+        assertEquals(CarritosEnMemoria.ERROR_CAPACIDAD_INVALIDA, ex.getMessage());
+    }
+
+    private void crearServicio(int capacidad) {
+        carritosEnMemoria = new CarritosEnMemoria(emf, capacidad, VENTANA_MS);
+        carritoService = new CarritoService(emf, new CachePeliculas(100, 0), carritosEnMemoria, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+    }
+
+    // Otro nodo que escribe las filas directamente, sin pasar por este almacén
+    private CarritoService servicioSinAlmacen() {
+        return new CarritoService(emf, new CachePeliculas(100, 0), null, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+    }
+
+    private long contarCarritosPersistidos() {
+        try (var em = emf.createEntityManager()) {
+            return em.createQuery("SELECT COUNT(c) FROM Carrito c", Long.class).getSingleResult();
+        }
+    }
+
+    private long contarItemsPersistidos() {
+        try (var em = emf.createEntityManager()) {
+            return em.createQuery("SELECT COUNT(i) FROM ItemCarrito i", Long.class).getSingleResult();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.EventoCarrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.model.SnapshotCarrito;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import ar.edu.unrn.carrito.web.CarritoInfo;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarritosPorEventosIntegracionTest {
+
+    private EntityManagerFactory emf;
+    private CarritosPorEventos almacen;
+    private CarritoService carritoService;
+
+    @BeforeEach
+    void setUp() {
+        emf = new EmfBuilder()
+                .memory()
+                .addClass(Carrito.class)
+                .addClass(Pelicula.class)
+                .addClass(ItemCarrito.class)
+                .addClass(EventoCarrito.class)
+                .addClass(SnapshotCarrito.class)
+                .build();
+        emf.getSchemaManager().truncate();
+        almacen = new CarritosPorEventos(emf, new CachePeliculas(10, 0), new CandadosPorUsuario(1), 3);
+        carritoService = new CarritoService(emf, new CachePeliculas(10, 0), almacen, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+        carritoService.agregarPeliculaAlCatalogo(2L, "Titanic", 12.99);
+    }
+
+    @AfterEach
+    void tearDown() {
+        almacen.close();
+        emf.close();
+    }
+
+    @Test
+    @DisplayName("Las mutaciones solo agregan eventos al log y el carrito se reconstruye desde ellos")
+    void agregarPeliculaDesdeCatalogo_modoEventos_agregaEventosSinFilasDeCarrito() {
+        // Setup: Preparar el escenario
+        CarritoInfo creado = carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+        var detalle = carritoService.obtenerCarrito("usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertTrue(detalle.isPresent(), "El carrito debe reconstruirse desde el log");
+        assertEquals(2, detalle.get().cantidadItems(), "Deben aplicarse los dos eventos");
+        try (var em = emf.createEntityManager()) {
+            assertEquals(3L, em.createQuery("SELECT COUNT(e) FROM EventoCarrito e", Long.class).getSingleResult(),
+                    "El log debe tener el evento de creación y uno por mutación");
+            assertEquals(0L, em.createQuery("SELECT COUNT(c) FROM Carrito c", Long.class).getSingleResult(),
+                    "El modo eventos no debe escribir filas de carritos");
+        }
+        assertNotNull(creado.id(), "La primera mutación debe devolver el id del carrito");
+        assertEquals(creado.id(), detalle.get().id(), "El id del carrito no debe cambiar entre mutaciones");
+        assertEquals(Carrito.version(creado.id(), 3), carritoService.obtenerVersionCarrito("usuario123").orElseThrow(),
+                "La versión debe seguir la secuencia del log");
+    }
+
+    @Test
+    @DisplayName("Cada N eventos se guarda un snapshot y la reconstrucción parte de él")
+    void mutar_alcanzaIntervalo_guardaSnapshotYReconstruyeDesdeEl() {
+        // Setup: Preparar el escenario
+        // Creación más dos mutaciones: el tercer evento del log
+        Long carritoId = carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123").id();
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+        almacen.close(); // Espera el snapshot en segundo plano
+
+        // Ejercitación: Ejecutar la acción a probar
+        Optional<CarritoInfo> resumen;
+        try (var otroNodo = new CarritosPorEventos(emf, new CachePeliculas(10, 0), new CandadosPorUsuario(1), 3)) {
+            var otroServicio = new CarritoService(emf, new CachePeliculas(10, 0), otroNodo, new CandadosPorUsuario(1),
+                    MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+            otroServicio.agregarPeliculaDesdeCatalogo(2L, "usuario123");
+            resumen = otroServicio.obtenerResumenCarrito("usuario123");
+        }
+
+        // Verificación: Verificar el resultado esperado
+        try (var em = emf.createEntityManager()) {
+            SnapshotCarrito snapshot = em.find(SnapshotCarrito.class, "usuario123");
+            assertNotNull(snapshot, "Al llegar a 3 eventos debe guardarse un snapshot");
+            assertEquals(3, snapshot.secuencia(), "El snapshot debe corresponder al tercer evento");
+            assertEquals(2, snapshot.cantidades().get(1L), "El snapshot debe tener las cantidades hasta su secuencia");
+            assertEquals(carritoId, snapshot.carritoId(), "El snapshot debe guardar el id del carrito");
+            assertEquals(List.of(3L, 4L), em.createQuery("SELECT e.secuencia FROM EventoCarrito e ORDER BY e.secuencia",
+                    Long.class).getResultList(), "Los eventos anteriores al snapshot deben compactarse");
+        }
+        assertTrue(resumen.isPresent());
+        assertEquals(carritoId, resumen.get().id(), "El id debe restaurarse desde el snapshot tras compactar el log");
+        assertEquals(3, resumen.get().cantidadItems(), "Snapshot más el evento posterior");
+        assertEquals(0, new BigDecimal("44.97").compareTo(resumen.get().total()),
+                "El total debe reconstruirse con los precios del catálogo");
+    }
+
+    @Test
+    @DisplayName("La mutación de un carrito nuevo se aplica una sola vez y su resultado ya tiene el id")
+    void mutar_carritoNuevo_aplicaLaMutacionUnaVezConId() {
+        // Setup: Preparar el escenario
+        var aplicaciones = new AtomicInteger();
+        Pelicula avatar = new Pelicula(1L, "Avatar", new BigDecimal("15.99"));
+
+        // Ejercitación: Ejecutar la acción a probar
+        CarritoInfo resultado = almacen.mutar("usuario123", carrito -> {
+            aplicaciones.incrementAndGet();
+            carrito.agregarPelicula(avatar, 1);
+            return carrito.toCarritoInfo();
+        });
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, aplicaciones.get(), "La mutación no debe repetirse al asignar el id");
+        assertNotNull(resultado.id(), "El resultado debe incluir el id del carrito nuevo");
+        assertEquals(resultado.id(), carritoService.obtenerResumenCarrito("usuario123").orElseThrow().id(),
+                "El id devuelto debe ser el del carrito guardado");
+        try (var em = emf.createEntityManager()) {
+            assertEquals(List.of(EventoCarrito.Tipo.CREADO, EventoCarrito.Tipo.AGREGADA), em.createQuery(
+                    "SELECT e.tipo FROM EventoCarrito e ORDER BY e.secuencia", EventoCarrito.Tipo.class).getResultList(),
+                    "El log debe abrirse con el evento de creación seguido de los de la mutación");
+        }
+    }
+
+    @Test
+    @DisplayName("Leer un usuario sin eventos no crea carrito")
+    void obtenerCarrito_sinEventos_devuelveVacio() {
+        // Setup: Preparar el escenario
+        carritoService.crearCarritoVacio("usuario123");
+
+        // Ejercitación: Ejecutar la acción a probar
+        var detalle = carritoService.obtenerCarrito("usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertTrue(detalle.isEmpty(), "Un carrito sin eventos no existe en el log");
+        try (var em = emf.createEntityManager()) {
+            assertEquals(0L, em.createQuery("SELECT COUNT(e) FROM EventoCarrito e", Long.class).getSingleResult(),
+                    "Crear un carrito vacío no agrega eventos");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import ar.edu.unrn.carrito.utils.PoolConexionesBuilder;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dos bases H2 independientes hacen de primaria y réplica: lo que está solo en la réplica
+ * muestra que la lectura fue a la réplica, y lo que está solo en la primaria, que fue a la primaria.
+ */
+class EnrutadorLecturasIntegracionTest {
+
+    private HikariDataSource poolPrimaria;
+    private HikariDataSource poolReplica;
+    private EntityManagerFactory primaria;
+    private EntityManagerFactory replica;
+
+    @BeforeEach
+    void setUp() {
+        poolPrimaria = pool("primaria");
+        poolReplica = pool("replica");
+        primaria = emf(poolPrimaria);
+        replica = emf(poolReplica);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primaria.close();
+        replica.close();
+        poolPrimaria.close();
+        poolReplica.close();
+    }
+
+    @Test
+    @DisplayName("Las lecturas puras van a la réplica si está al día")
+    void obtenerResumenCarrito_replicaAlDia_leeDeLaReplica() {
+        // Setup: Preparar el escenario
+        persistirCarrito(replica, "usuario123");
+        var carritoService = servicio(() -> Optional.of(Duration.ZERO));
+
+        // Ejercitación: Ejecutar la acción a probar
+        var resumen = carritoService.obtenerResumenCarrito("usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertTrue(resumen.isPresent(), "El carrito existe solo en la réplica, así que la lectura fue a la réplica");
+    }
+
+    @Test
+    @DisplayName("Un usuario que acaba de escribir lee sus escrituras desde la primaria")
+    void obtenerCarrito_despuesDeEscribir_leeDeLaPrimaria() {
+        // Setup: Preparar el escenario
+        var carritoService = servicio(() -> Optional.of(Duration.ZERO));
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+
+        // Ejercitación: Ejecutar la acción a probar
+        carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+        var detalle = carritoService.obtenerCarrito("usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertTrue(detalle.isPresent(), "La réplica no tiene el carrito: la lectura debe ir a la primaria");
+        assertEquals(1, detalle.get().cantidadItems(), "Debe leerse la escritura recién hecha");
+        assertTrue(carritoService.obtenerCarrito("otroUsuario").isEmpty(),
+                "Otro usuario sigue leyendo de la réplica");
+    }
+
+    @Test
+    @DisplayName("Con la réplica atrasada o sin medición las lecturas van a la primaria")
+    void obtenerResumenCarrito_replicaAtrasada_leeDeLaPrimaria() {
+        // Setup: Preparar el escenario
+        persistirCarrito(primaria, "usuario123");
+        var atrasada = servicio(() -> Optional.of(Duration.ofSeconds(30)));
+        var sinMedicion = servicio(Optional::empty);
+
+        // Ejercitación: Ejecutar la acción a probar
+        var resumenAtrasada = atrasada.obtenerResumenCarrito("usuario123");
+        var resumenSinMedicion = sinMedicion.obtenerResumenCarrito("usuario123");
+
+        // Verificación: Verificar el resultado esperado
+        assertTrue(resumenAtrasada.isPresent(), "Con retraso mayor al máximo debe leerse de la primaria");
+        assertTrue(resumenSinMedicion.isPresent(), "Sin medición de retraso debe leerse de la primaria");
+    }
+
+    @Test
+    @DisplayName("Una medición trabada no bloquea las lecturas: van a la primaria sin esperarla")
+    void paraLectura_medicionTrabada_noEspera() throws Exception {
+        // Setup: Preparar el escenario
+        CountDownLatch midiendo = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        var lecturas = new EnrutadorLecturas(primaria, replica, Duration.ofMinutes(1), Duration.ofSeconds(2), () -> {
+            midiendo.countDown();
+            try {
+                liberar.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.of(Duration.ZERO);
+        });
+        assertTrue(midiendo.await(10, TimeUnit.SECONDS), "La medición debe correr en segundo plano");
+
+        // Ejercitación: Ejecutar la acción a probar
+        long inicio = System.nanoTime();
+        try (var em = lecturas.paraLectura("usuario123")) {
+
+            // Verificación: Verificar el resultado esperado
+            assertTrue(Duration.ofNanos(System.nanoTime() - inicio).compareTo(Duration.ofSeconds(1)) < 0,
+                    "La lectura no debe esperar a la medición");
+            assertSame(primaria, em.getEntityManagerFactory(), "Sin medición vigente la lectura va a la primaria");
+        } finally {
+            liberar.countDown();
+        }
+    }
+
+    private CarritoService servicio(Supplier<Optional<Duration>> medidorRetraso) {
+        var lecturas = enrutador(medidorRetraso);
+        return new CarritoService(primaria, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), lecturas, BandejaSalida.deshabilitada());
+    }
+
+    // Con la primera medición ya hecha, sin depender de cuándo corre la tarea de fondo
+    private EnrutadorLecturas enrutador(Supplier<Optional<Duration>> medidorRetraso) {
+        var lecturas = new EnrutadorLecturas(primaria, replica, Duration.ofMinutes(1), Duration.ofSeconds(2), medidorRetraso);
+        lecturas.medirRetraso();
+        return lecturas;
+    }
+
+    private void persistirCarrito(EntityManagerFactory emf, String usuarioId) {
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.persist(new Carrito(usuarioId));
+            em.getTransaction().commit();
+        }
+    }
+
+    private static HikariDataSource pool(String nombre) {
+        String url = "jdbc:h2:mem:" + nombre + "-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        return new PoolConexionesBuilder().memory().url(url).tamanio(1, 2).build();
+    }
+
+    private static EntityManagerFactory emf(HikariDataSource pool) {
+        return new EmfBuilder()
+                .memory()
+                .withDataSource(pool)
+                .addClass(Carrito.class)
+                .addClass(ItemCarrito.class)
+                .addClass(Pelicula.class)
+                .build();
+    }
+}
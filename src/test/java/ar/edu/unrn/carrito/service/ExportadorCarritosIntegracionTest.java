@@ -0,0 +1,156 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportadorCarritosIntegracionTest {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    private EntityManagerFactory emf;
+    private CarritoService carritoService;
+
+    @BeforeEach
+    void setUp() {
+        emf = new EmfBuilder()
+                .memory()
+                .withStatistics()
+                .addClass(Carrito.class)
+                .addClass(Pelicula.class)
+                .addClass(ItemCarrito.class)
+                .build();
+        emf.getSchemaManager().truncate();
+        carritoService = new CarritoService(emf, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                MetricasCarrito.deshabilitadas(), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+        carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    @DisplayName("Exportar escribe un carrito con sus items por línea recorriendo todos los lotes")
+    void exportar_variosLotes_escribeUnCarritoPorLinea() throws IOException {
+        // Setup: Preparar el escenario
+        for (String usuario : List.of("ana", "beto", "carla", "dario", "eva")) {
+            carritoService.agregarPeliculaDesdeCatalogo(1L, usuario);
+        }
+        var exportador = new ExportadorCarritos(emf, MAPPER, 2);
+        var salida = new ByteArrayOutputStream();
+
+        // Ejercitación: Ejecutar la acción a probar
+        long exportados = exportador.exportar(FiltroExportacion.todos(), salida);
+
+        // Verificación: Verificar el resultado esperado
+        List<JsonNode> lineas = lineas(salida);
+        assertEquals(5, exportados, "Deben exportarse todos los carritos");
+        assertEquals(5, lineas.size(), "Debe haber una línea por carrito");
+        assertEquals("ana", lineas.get(0).get("usuarioId").asText(), "Los carritos se exportan por id");
+        assertEquals(1, lineas.get(0).get("items").size(), "Cada carrito debe incluir sus items");
+        assertEquals("Avatar", lineas.get(0).get("items").get(0).get("peliculaNombre").asText(),
+                "Los items deben incluir la película");
+    }
+
+    @Test
+    @DisplayName("Exportar aplica los filtros de fecha de modificación y rango de usuarios")
+    void exportar_conFiltros_exportaSoloCarritosQueCumplen() throws IOException {
+        // Setup: Preparar el escenario
+        for (String usuario : List.of("ana", "beto", "carla", "dario")) {
+            carritoService.agregarPeliculaDesdeCatalogo(1L, usuario);
+        }
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createQuery("UPDATE Carrito c SET c.fechaModificacion = :fecha WHERE c.usuarioId = 'beto'")
+                    .setParameter("fecha", LocalDateTime.of(2020, 1, 1, 0, 0))
+                    .executeUpdate();
+            em.getTransaction().commit();
+        }
+        var exportador = new ExportadorCarritos(emf, MAPPER, 10);
+        var salida = new ByteArrayOutputStream();
+
+        // Ejercitación: Ejecutar la acción a probar
+        exportador.exportar(new FiltroExportacion(LocalDateTime.of(2024, 1, 1, 0, 0), "b", "d"), salida);
+
+        // Verificación: Verificar el resultado esperado
+        List<JsonNode> lineas = lineas(salida);
+        assertEquals(1, lineas.size(), "Solo carla está en el rango [b, d) y fue modificada después de la fecha");
+        assertEquals("carla", lineas.get(0).get("usuarioId").asText());
+    }
+
+    @Test
+    @DisplayName("Exportar cierra el EntityManager de cada lote antes de escribirlo en la salida")
+    void exportar_variosLotes_escribeSinEntityManagerAbierto() throws IOException {
+        // Setup: Preparar el escenario
+        for (String usuario : List.of("ana", "beto", "carla")) {
+            carritoService.agregarPeliculaDesdeCatalogo(1L, usuario);
+        }
+        Statistics estadisticas = emf.unwrap(SessionFactory.class).getStatistics();
+        var escriturasConSesionAbierta = new AtomicInteger();
+        OutputStream salida = new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] bytes, int desde, int largo) {
+                if (estadisticas.getSessionOpenCount() > estadisticas.getSessionCloseCount()) {
+                    escriturasConSesionAbierta.incrementAndGet();
+                }
+                super.write(bytes, desde, largo);
+            }
+        };
+        estadisticas.clear();
+
+        // Ejercitación: Ejecutar la acción a probar
+        long exportados = new ExportadorCarritos(emf, MAPPER, 1).exportar(FiltroExportacion.todos(), salida);
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(3, exportados, "Deben exportarse todos los carritos");
+        assertEquals(0, escriturasConSesionAbierta.get(), "Ninguna escritura debe hacerse con un EntityManager abierto");
+        assertEquals(4, estadisticas.getSessionOpenCount(), "Debe abrirse un EntityManager por lote más el lote vacío final");
+    }
+
+    @Test
+    @DisplayName("Exportar con un rango de usuarios invertido lanza excepción")
+    void exportar_rangoUsuariosInvertido_lanzaExcepcion() {
+        // Setup: Preparar el escenario
+        var exportador = new ExportadorCarritos(emf, MAPPER, 10);
+
+        // Ejercitación y Verificación: Exportar con usuarioDesde mayor a usuarioHasta
+        var excepcion = assertThrows(RuntimeException.class,
+                () -> exportador.exportar(new FiltroExportacion(null, "m", "a"), new ByteArrayOutputStream()));
+        assertEquals(ExportadorCarritos.ERROR_RANGO_USUARIOS_INVALIDO, excepcion.getMessage());
+    }
+
+    private List<JsonNode> lineas(ByteArrayOutputStream salida) throws IOException {
+        String ndjson = salida.toString(StandardCharsets.UTF_8);
+        assertTrue(ndjson.isEmpty() || ndjson.endsWith("\n"), "Cada línea debe terminar en salto de línea");
+        List<JsonNode> lineas = new ArrayList<>();
+        for (String linea : ndjson.split("\n")) {
+            if (!linea.isEmpty()) {
+                lineas.add(MAPPER.readTree(linea));
+            }
+        }
+        return lineas;
+    }
+}
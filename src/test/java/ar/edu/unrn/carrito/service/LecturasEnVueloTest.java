@@ -0,0 +1,115 @@
+package ar.edu.unrn.carrito.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LecturasEnVueloTest {
+
+    @Test
+    @DisplayName("Las lecturas concurrentes de la misma clave comparten una sola carga")
+    void leer_concurrentesMismaClave_compartenUnaCarga() throws Exception {
+        // Setup: Preparar el escenario
+        AtomicInteger compartidas = new AtomicInteger();
+        LecturasEnVuelo<String> lecturas = new LecturasEnVuelo<>(compartidas::incrementAndGet);
+        AtomicInteger cargas = new AtomicInteger();
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        // Ejercitación: Ejecutar la acción a probar
+        List<Future<String>> resultados = new ArrayList<>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 5; i++) {
+                resultados.add(executor.submit(() -> lecturas.leer("usuario123", () -> {
+                    cargas.incrementAndGet();
+                    esperar(liberar);
+                    return "carrito";
+                })));
+            }
+            while (compartidas.get() < 4) {
+                Thread.onSpinWait();
+            }
+            liberar.countDown();
+        }
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(1, cargas.get(), "Solo la primera lectura debe ir a la base");
+        for (Future<String> resultado : resultados) {
+            assertEquals("carrito", resultado.get(), "Todas las lecturas deben recibir el mismo resultado");
+        }
+    }
+
+    @Test
+    @DisplayName("Después de invalidar, una lectura nueva no se suma a la que estaba en curso")
+    void leer_despuesDeInvalidar_haceUnaCargaNueva() throws Exception {
+        // Setup: Preparar el escenario
+        LecturasEnVuelo<String> lecturas = new LecturasEnVuelo<>(() -> { });
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Thread vieja = Thread.ofVirtual().start(() -> lecturas.leer("usuario123", () -> {
+            enCurso.countDown();
+            esperar(liberar);
+            return "antes de escribir";
+        }));
+        assertTrue(enCurso.await(10, TimeUnit.SECONDS), "La primera lectura debe estar en curso");
+
+        // Ejercitación: Ejecutar la acción a probar
+        lecturas.invalidar("usuario123");
+        String nueva = lecturas.leer("usuario123", () -> "después de escribir");
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals("después de escribir", nueva, "La lectura posterior a la escritura debe cargar de nuevo");
+        liberar.countDown();
+        vieja.join();
+    }
+
+    @Test
+    @DisplayName("Si la lectura compartida falla, quienes esperaban reciben la misma excepción")
+    void leer_cargaFalla_propagaLaExcepcionAQuienesEsperan() throws Exception {
+        // Setup: Preparar el escenario
+        AtomicInteger compartidas = new AtomicInteger();
+        LecturasEnVuelo<String> lecturas = new LecturasEnVuelo<>(compartidas::incrementAndGet);
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        // Ejercitación: Ejecutar la acción a probar
+        Future<String> lider;
+        Future<String> seguidora;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            lider = executor.submit(() -> lecturas.leer("usuario123", () -> {
+                enCurso.countDown();
+                esperar(liberar);
+                throw new IllegalStateException("base caída");
+            }));
+            assertTrue(enCurso.await(10, TimeUnit.SECONDS), "La lectura del líder debe estar en curso");
+            seguidora = executor.submit(() -> lecturas.leer("usuario123", () -> "no debería cargar"));
+            while (compartidas.get() < 1) {
+                Thread.onSpinWait();
+            }
+            liberar.countDown();
+        }
+
+        // Verificación: Verificar el resultado esperado
+        var exLider = assertThrows(ExecutionException.class, lider::get);
+        var exSeguidora = assertThrows(ExecutionException.class, seguidora::get);
+        assertInstanceOf(IllegalStateException.class, exSeguidora.getCause(), "Debe propagarse la excepción de la carga");
+        assertSame(exLider.getCause(), exSeguidora.getCause(), "Ambas lecturas deben fallar con la misma excepción");
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS), "La lectura no fue liberada");
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
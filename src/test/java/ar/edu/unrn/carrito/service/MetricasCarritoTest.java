@@ -0,0 +1,114 @@
+package ar.edu.unrn.carrito.service;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.utils.EmfBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricasCarritoTest {
+
+    @Test
+    @DisplayName("Medir registra la duración de la operación con resultado ok")
+    void medir_operacionExitosa_registraTimerOk() {
+        // Setup: Preparar el escenario
+        var registro = new SimpleMeterRegistry();
+        var metricas = new MetricasCarrito(registro);
+
+        // Ejercitación: Ejecutar la acción a probar
+        String resultado = metricas.medir("obtenerCarrito", () -> "carrito");
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals("carrito", resultado, "Medir debe devolver el resultado de la operación");
+        assertEquals(1, registro.get(MetricasCarrito.TIMER_SERVICIO)
+                .tags("operacion", "obtenerCarrito", "resultado", "ok").timer().count(),
+                "Debe registrarse una ejecución exitosa");
+    }
+
+    @Test
+    @DisplayName("Medir cuenta el error por tipo de excepción y la relanza")
+    void medir_operacionConError_cuentaErrorYRelanza() {
+        // Setup: Preparar el escenario
+        var registro = new SimpleMeterRegistry();
+        var metricas = new MetricasCarrito(registro);
+
+        // Ejercitación: Ejecutar la acción a probar
+        var excepcion = assertThrows(IllegalArgumentException.class,
+                () -> metricas.medir("agregarPeliculaDesdeCatalogo", () -> {
+                    throw new IllegalArgumentException("inválido");
+                }));
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals("inválido", excepcion.getMessage(), "La excepción original debe propagarse");
+        assertEquals(1, registro.get(MetricasCarrito.CONTADOR_ERRORES)
+                .tags("operacion", "agregarPeliculaDesdeCatalogo", "excepcion", "IllegalArgumentException")
+                .counter().count(), "Debe contarse el error por tipo de excepción");
+        assertEquals(1, registro.get(MetricasCarrito.TIMER_SERVICIO)
+                .tags("resultado", "error").timer().count(), "La duración debe registrarse también con error");
+    }
+
+    @Test
+    @DisplayName("Las mutaciones de CarritoService registran el tamaño del carrito resultante")
+    void agregarPeliculaDesdeCatalogo_conMetricas_registraTamanioDelCarrito() {
+        // Setup: Preparar el escenario
+        var registro = new SimpleMeterRegistry();
+        try (var emf = new EmfBuilder().memory()
+                .addClass(Carrito.class)
+                .addClass(ItemCarrito.class)
+                .addClass(Pelicula.class)
+                .build()) {
+            emf.getSchemaManager().truncate();
+            var carritoService = new CarritoService(emf, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                    new MetricasCarrito(registro), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+            carritoService.agregarPeliculaAlCatalogo(1L, "Avatar", 15.99);
+
+            // Ejercitación: Ejecutar la acción a probar
+            carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+            carritoService.agregarPeliculaDesdeCatalogo(1L, "usuario123");
+
+            // Verificación: Verificar el resultado esperado
+            var items = registro.get(MetricasCarrito.RESUMEN_ITEMS).summary();
+            assertEquals(2, items.count(), "Debe registrarse el tamaño después de cada mutación");
+            assertEquals(2, items.max(), "El carrito debe llegar a 2 items");
+            assertEquals(0, new BigDecimal("31.98").compareTo(
+                    BigDecimal.valueOf(registro.get(MetricasCarrito.RESUMEN_TOTAL).summary().max())),
+                    "Debe registrarse el total del carrito");
+            assertEquals(2, registro.get(MetricasCarrito.TIMER_SERVICIO)
+                    .tags("operacion", "agregarPeliculaDesdeCatalogo").timer().count(),
+                    "Cada operación del servicio debe medirse");
+        }
+    }
+
+    @Test
+    @DisplayName("Crear un carrito que ya existe no registra su tamaño")
+    void crearCarritoVacio_carritoExistente_noRegistraTamanio() {
+        // Setup: Preparar el escenario
+        var registro = new SimpleMeterRegistry();
+        try (var emf = new EmfBuilder().memory()
+                .addClass(Carrito.class)
+                .addClass(ItemCarrito.class)
+                .addClass(Pelicula.class)
+                .build()) {
+            emf.getSchemaManager().truncate();
+            var carritoService = new CarritoService(emf, new CachePeliculas(10, 0), null, new CandadosPorUsuario(1),
+                    new MetricasCarrito(registro), EnrutadorLecturas.soloPrimaria(emf), BandejaSalida.deshabilitada());
+            carritoService.crearCarritoVacio("usuario123");
+
+            // Ejercitación: Ejecutar la acción a probar
+            carritoService.crearCarritoVacio("usuario123");
+
+            // Verificación: Verificar el resultado esperado
+            assertEquals(1, registro.get(MetricasCarrito.RESUMEN_ITEMS).summary().count(),
+                    "Solo la creación del carrito debe registrar su tamaño");
+            assertEquals(2, registro.get(MetricasCarrito.TIMER_SERVICIO)
+                    .tags("operacion", "crearCarritoVacio").timer().count(),
+                    "Ambas llamadas deben medirse");
+        }
+    }
+}
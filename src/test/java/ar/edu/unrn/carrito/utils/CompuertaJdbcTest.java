@@ -0,0 +1,139 @@
+package ar.edu.unrn.carrito.utils;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompuertaJdbcTest {
+
+    private HikariDataSource dataSource;
+    private EntityManagerFactory emf;
+
+    @BeforeEach
+    void setUp() {
+        // Pool chico con el timeout mínimo de Hikari: sin la compuerta, una ráfaga lo agota
+        dataSource = new PoolConexionesBuilder().memory().tamanio(4, 4).timeoutConexion(250).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (emf != null) {
+            emf.close();
+        }
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("Miles de virtual threads esperan en la compuerta en lugar de agotar el pool")
+    void envolver_milesDeVirtualThreads_noAgotanElPool() throws InterruptedException {
+        // Setup: Preparar el escenario
+        var compuerta = new CompuertaJdbc(4, 30_000);
+        emf = emf(compuerta);
+        var fallidas = new AtomicInteger();
+
+        // Ejercitación: Ejecutar la acción a probar
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 2_000; i++) {
+                executor.submit(() -> {
+                    try (var em = emf.createEntityManager()) {
+                        em.getTransaction().begin();
+                        em.createQuery("SELECT COUNT(c) FROM Carrito c", Long.class).getSingleResult();
+                        Thread.sleep(1);
+                        em.getTransaction().commit();
+                    } catch (Exception e) {
+                        fallidas.incrementAndGet();
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "Todas las requests deben terminar");
+        }
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(0, fallidas.get(), "Ninguna request debe agotar el timeout del pool");
+        assertEquals(4, compuerta.permisosDisponibles(), "Cerrar la conexión debe devolver el permiso");
+    }
+
+    @Test
+    @DisplayName("Un EntityManager anidado no se bloquea mientras el externo no tiene conexión")
+    void createEntityManager_anidadoSinConexionExterna_noEsperaPermiso() {
+        // Setup: Preparar el escenario
+        var compuerta = new CompuertaJdbc(1, 50);
+        emf = emf(compuerta);
+
+        try (var externo = emf.createEntityManager()) {
+            // Ejercitación: Ejecutar la acción a probar
+            long carritos;
+            try (var anidado = emf.createEntityManager()) {
+                carritos = anidado.createQuery("SELECT COUNT(c) FROM Carrito c", Long.class).getSingleResult();
+            }
+            externo.getTransaction().begin();
+            externo.createQuery("SELECT COUNT(c) FROM Carrito c", Long.class).getSingleResult();
+            externo.getTransaction().commit();
+
+            // Verificación: Verificar el resultado esperado
+            assertEquals(0, carritos, "El EntityManager anidado debe poder consultar con un solo permiso");
+        }
+        assertEquals(1, compuerta.permisosDisponibles(), "El permiso debe liberarse al cerrar");
+    }
+
+    @Test
+    @DisplayName("Sin permisos disponibles la espera de una conexión termina en timeout")
+    void getConnection_sinPermisos_lanzaTimeout() {
+        // Setup: Preparar el escenario
+        var compuerta = new CompuertaJdbc(1, 50);
+        emf = emf(compuerta);
+
+        try (var ocupado = emf.createEntityManager(); var otro = emf.createEntityManager()) {
+            ocupado.getTransaction().begin();
+            ocupado.createQuery("SELECT COUNT(c) FROM Carrito c", Long.class).getSingleResult();
+
+            // Ejercitación: Ejecutar la acción a probar
+            var ex = assertThrows(RuntimeException.class,
+                    () -> otro.createQuery("SELECT COUNT(c) FROM Carrito c", Long.class).getSingleResult());
+
+            // Verificación: Verificar el resultado esperado
+            assertTrue(mensajes(ex).contains(CompuertaJdbc.ERROR_TIMEOUT), "Debe fallar por el timeout de la compuerta");
+            ocupado.getTransaction().rollback();
+        }
+        assertEquals(1, compuerta.permisosDisponibles(), "El permiso debe liberarse al cerrar");
+    }
+
+    @Test
+    @DisplayName("Constructor sin permisos lanza excepción")
+    void constructor_ceroPermisos_lanzaExcepcion() {
+        // Setup, Ejercitación y Verificación: Crear la compuerta sin permisos
+        var ex = assertThrows(RuntimeException.class, () -> new CompuertaJdbc(0, 1000));
+        assertEquals(CompuertaJdbc.ERROR_PERMISOS_INVALIDOS, ex.getMessage());
+    }
+
+    private EntityManagerFactory emf(CompuertaJdbc compuerta) {
+        return new EmfBuilder()
+                .memory()
+                .withDataSource(compuerta.envolver(dataSource))
+                .addClass(Carrito.class)
+                .addClass(ItemCarrito.class)
+                .addClass(Pelicula.class)
+                .build();
+    }
+
+    private static String mensajes(Throwable e) {
+        StringBuilder mensajes = new StringBuilder();
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            mensajes.append(causa.getMessage()).append('\n');
+        }
+        return mensajes.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package ar.edu.unrn.carrito.utils;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.EventoCarrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.MensajeSalida;
+import ar.edu.unrn.carrito.model.Pelicula;
+import ar.edu.unrn.carrito.model.SnapshotCarrito;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MigracionesIntegracionTest {
+
+    private HikariDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        // Base propia por test: la base en memoria compartida la crea Hibernate en los demás tests
+        String url = "jdbc:h2:mem:migraciones-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        dataSource = new PoolConexionesBuilder().memory().url(url).tamanio(1, 2).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("WithMigrations en una base vacía crea el esquema que valida Hibernate, también al reiniciar")
+    void withMigrations_baseVacia_creaEsquemaValido() {
+        // Setup: Preparar el escenario
+        construirEmf().close();
+
+        // Ejercitación: Ejecutar la acción a probar
+        try (var emf = construirEmf()) {
+
+            // Verificación: Verificar el resultado esperado
+            try (var em = emf.createEntityManager()) {
+                @SuppressWarnings("unchecked")
+                List<String> indices = em.createNativeQuery(
+                        "SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES").getResultList();
+                assertTrue(indices.contains("idx_items_carrito_carrito_pelicula"), "Debe existir el índice de items por carrito");
+                assertTrue(indices.contains("idx_carritos_fecha_modificacion"), "Debe existir el índice del barrido de abandonados");
+                assertTrue(indices.contains(Carrito.UK_USUARIO), "Debe existir el índice único de carrito por usuario");
+                assertTrue(indices.contains(EventoCarrito.UK_USUARIO_SECUENCIA), "Debe existir el índice único del log de eventos");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("WithMigrations sobre una base previa a las migraciones completa totales y archiva los carritos duplicados")
+    void withMigrations_basePrevia_completaTotalesYArchivaDuplicados() throws SQLException {
+        // Setup: Preparar el escenario
+        ejecutar(
+                "CREATE TABLE peliculas (id BIGINT NOT NULL, nombre VARCHAR(255) NOT NULL, precio DECIMAL(10,2) NOT NULL, PRIMARY KEY (id))",
+                "CREATE TABLE carritos (id BIGINT NOT NULL AUTO_INCREMENT, usuario_id VARCHAR(255) NOT NULL, " +
+                        "fecha_creacion DATETIME(6) NOT NULL, fecha_modificacion DATETIME(6), PRIMARY KEY (id))",
+                "CREATE TABLE items_carrito (id BIGINT NOT NULL AUTO_INCREMENT, carrito_id BIGINT, " +
+                        "pelicula_id BIGINT NOT NULL, cantidad INT NOT NULL, PRIMARY KEY (id))",
+                "INSERT INTO peliculas VALUES (1, 'Avatar', 15.99)",
+                "INSERT INTO carritos (id, usuario_id, fecha_creacion) VALUES (1, 'usuario123', '2024-01-01 10:00:00')",
+                "INSERT INTO carritos (id, usuario_id, fecha_creacion) VALUES (2, 'usuario123', '2024-02-01 10:00:00')",
+                "INSERT INTO items_carrito (carrito_id, pelicula_id, cantidad) VALUES (1, 1, 1)",
+                "INSERT INTO items_carrito (carrito_id, pelicula_id, cantidad) VALUES (2, 1, 2)"
+        );
+
+        // Ejercitación: Ejecutar la acción a probar
+        try (var emf = construirEmf(); var em = emf.createEntityManager()) {
+
+            // Verificación: Verificar el resultado esperado
+            Object[] actual = (Object[]) em.createNativeQuery(
+                    "SELECT total, cantidad_items FROM carritos WHERE id = 2").getSingleResult();
+            assertEquals(0, new BigDecimal("31.98").compareTo((BigDecimal) actual[0]), "El total debe recalcularse desde los items");
+            assertEquals(2, ((Number) actual[1]).intValue(), "La cantidad debe recalcularse desde los items");
+            assertEquals(List.of(2L), em.createNativeQuery("SELECT id FROM carritos WHERE usuario_id = 'usuario123'", Long.class)
+                    .getResultList(), "Solo debe quedar el carrito más reciente del usuario");
+            assertEquals(List.of(1L), em.createNativeQuery("SELECT id FROM carritos_duplicados", Long.class)
+                    .getResultList(), "El carrito anterior debe archivarse antes de borrarse");
+            assertEquals(1L, ((Number) em.createNativeQuery(
+                    "SELECT COUNT(*) FROM items_carrito_duplicados WHERE carrito_id = 1").getSingleResult()).longValue(),
+                    "Los items del carrito anterior deben archivarse con él");
+        }
+    }
+
+    @Test
+    @DisplayName("El índice único impide dos carritos del mismo usuario")
+    void persist_segundoCarritoDelUsuario_lanzaExcepcion() {
+        // Setup: Preparar el escenario
+        try (var emf = construirEmf()) {
+            persistir(emf, new Carrito("usuario123"));
+
+            // Ejercitación y Verificación: Persistir otro carrito del mismo usuario
+            assertThrows(RuntimeException.class, () -> persistir(emf, new Carrito("usuario123")),
+                    "No puede haber dos carritos para el mismo usuario");
+        }
+    }
+
+    private EntityManagerFactory construirEmf() {
+        return new EmfBuilder()
+                .memory()
+                .withDataSource(dataSource)
+                .withMigrations()
+                .addClass(Carrito.class)
+                .addClass(ItemCarrito.class)
+                .addClass(Pelicula.class)
+                .addClass(EventoCarrito.class)
+                .addClass(SnapshotCarrito.class)
+                .addClass(MensajeSalida.class)
+                .build();
+    }
+
+    private void persistir(EntityManagerFactory emf, Carrito carrito) {
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.persist(carrito);
+            em.getTransaction().commit();
+        }
+    }
+
+    private void ejecutar(String... sentencias) throws SQLException {
+        try (var conexion = dataSource.getConnection(); var statement = conexion.createStatement()) {
+            for (String sentencia : sentencias) {
+                statement.execute(sentencia);
+            }
+        }
+    }
+}
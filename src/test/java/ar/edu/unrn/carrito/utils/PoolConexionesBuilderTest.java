@@ -0,0 +1,47 @@
+package ar.edu.unrn.carrito.utils;
+
+import ar.edu.unrn.carrito.model.Carrito;
+import ar.edu.unrn.carrito.model.ItemCarrito;
+import ar.edu.unrn.carrito.model.Pelicula;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoolConexionesBuilderTest {
+
+    @Test
+    @DisplayName("EmfBuilder con pool obtiene las conexiones del pool y registra las esperas")
+    void withDataSource_poolEnMemoria_registraAdquisiciones() {
+        // Setup: Preparar el escenario
+        var metricas = new MetricasPool();
+        try (var dataSource = new PoolConexionesBuilder().memory().tamanio(1, 2).metricas(metricas).build();
+             var emf = new EmfBuilder()
+                     .memory()
+                     .withDataSource(dataSource)
+                     .addClass(Carrito.class)
+                     .addClass(ItemCarrito.class)
+                     .addClass(Pelicula.class)
+                     .build()) {
+
+            // Ejercitación: Ejecutar la acción a probar
+            try (var em = emf.createEntityManager()) {
+                em.createQuery("SELECT COUNT(c) FROM Carrito c", Long.class).getSingleResult();
+            }
+
+            // Verificación: Verificar el resultado esperado
+            var estadisticas = metricas.estadisticas();
+            assertTrue(estadisticas.adquisiciones() > 0, "Las conexiones deben obtenerse del pool");
+            assertEquals(0, estadisticas.activas(), "La conexión debe devolverse al pool al cerrar el EntityManager");
+            assertEquals(0, estadisticas.timeouts(), "No debe haber timeouts");
+        }
+    }
+
+    @Test
+    @DisplayName("Tamanio con mínimo mayor al máximo lanza excepción")
+    void tamanio_minimoMayorAlMaximo_lanzaExcepcion() {
+        // Setup, Ejercitación y Verificación: Configurar un tamaño inválido
+        var ex = assertThrows(RuntimeException.class, () -> new PoolConexionesBuilder().tamanio(10, 5));
+        assertEquals(PoolConexionesBuilder.ERROR_TAMANIO_INVALIDO, ex.getMessage());
+    }
+}
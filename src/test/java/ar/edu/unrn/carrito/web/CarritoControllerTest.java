@@ -0,0 +1,35 @@
+package ar.edu.unrn.carrito.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarritoControllerTest {
+
+    @Test
+    @DisplayName("El ETag de la representación CBOR lleva un sufijo propio")
+    void sufijoRepresentacion_acceptCbor_devuelveSufijoCbor() {
+        // Setup: Preparar el escenario
+        String accept = "application/cbor";
+
+        // Ejercitación: Ejecutar la acción a probar
+        String sufijo = CarritoController.sufijoRepresentacion(accept);
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(CarritoController.SUFIJO_ETAG_CBOR, sufijo, "CBOR no debe compartir ETag con JSON");
+    }
+
+    @Test
+    @DisplayName("JSON, */* o sin Accept usan el ETag sin sufijo")
+    void sufijoRepresentacion_acceptJsonOComodin_sinSufijo() {
+        // Ejercitación y Verificación: Ejecutar la acción y verificar el resultado esperado
+        assertEquals("", CarritoController.sufijoRepresentacion(null), "Sin Accept la respuesta es JSON");
+        assertEquals("", CarritoController.sufijoRepresentacion("*/*"), "Con */* gana JSON");
+        assertEquals("", CarritoController.sufijoRepresentacion("application/json, application/cbor"),
+                "Con igual calidad gana el orden de los convertidores");
+        assertEquals(CarritoController.SUFIJO_ETAG_CBOR,
+                CarritoController.sufijoRepresentacion("application/json;q=0.5, application/cbor"),
+                "Debe respetar la calidad del Accept");
+    }
+}
@@ -0,0 +1,106 @@
+package ar.edu.unrn.carrito.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerializadoresCarritoTest {
+
+    // Como el ObjectMapper de Spring Boot: fechas como texto ISO-8601
+    private static final JsonMapper REFLEXIVO = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private static final JsonMapper JSON = REFLEXIVO.rebuild().addModule(new SerializadoresCarrito()).build();
+    private static final CBORMapper CBOR = CBORMapper.builder()
+            .findAndAddModules()
+            .addModule(new SerializadoresCarrito())
+            .build();
+
+    @Test
+    @DisplayName("En JSON los serializadores escriben lo mismo que la serialización reflexiva")
+    void serializar_json_igualQueReflexivo() throws Exception {
+        // Setup: Preparar el escenario
+        CarritoDetalle carrito = carrito();
+
+        // Ejercitación: Ejecutar la acción a probar
+        String json = JSON.writeValueAsString(carrito);
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(REFLEXIVO.writeValueAsString(carrito), json,
+                "El JSON debe coincidir campo a campo, en el mismo orden y formato");
+    }
+
+    @Test
+    @DisplayName("En CBOR el carrito se lee con los mismos valores y ocupa menos que en JSON")
+    void serializar_cbor_mismosValoresYMasCompacto() throws Exception {
+        // Setup: Preparar el escenario
+        CarritoDetalle carrito = carrito();
+
+        // Ejercitación: Ejecutar la acción a probar
+        byte[] cbor = CBOR.writeValueAsBytes(carrito);
+
+        // Verificación: Verificar el resultado esperado
+        JsonNode leido = CBOR.readTree(cbor);
+        assertEquals("usuario123", leido.get("usuarioId").asText());
+        assertEquals(0, new BigDecimal("47.97").compareTo(leido.get("total").decimalValue()),
+                "El total debe conservarse exacto");
+        assertEquals("Avatar", leido.get("items").get(0).get("peliculaNombre").asText());
+        assertEquals("2024-05-01T10:00:00", leido.get("fechaCreacion").asText(), "Las fechas van en ISO-8601");
+        assertTrue(cbor.length < JSON.writeValueAsBytes(carrito).length, "CBOR debe ocupar menos que JSON");
+    }
+
+    @Test
+    @DisplayName("Los campos nulos se escriben como null explícito")
+    void serializar_camposNulos_escribeNull() throws Exception {
+        // Setup: Preparar el escenario
+        CarritoInfo resumen = new CarritoInfo(null, "usuario123", 0, BigDecimal.ZERO);
+
+        // Ejercitación: Ejecutar la acción a probar
+        String json = JSON.writeValueAsString(resumen);
+
+        // Verificación: Verificar el resultado esperado
+        assertEquals(REFLEXIVO.writeValueAsString(resumen), json);
+        assertTrue(JSON.readTree(json).get("id").isNull(), "Un carrito sin id debe tener \"id\": null");
+    }
+
+    @Test
+    @DisplayName("Los serializadores escriben todos los componentes de cada record, en su orden")
+    void serializar_cadaRecord_escribeTodosSusComponentes() throws Exception {
+        // Setup: Preparar el escenario
+        CarritoDetalle carrito = carrito();
+        List<Record> dtos = List.of(carrito, carrito.items().get(0),
+                new CarritoInfo(10L, "usuario123", 3, new BigDecimal("47.97")));
+
+        for (Record dto : dtos) {
+            // Ejercitación: Ejecutar la acción a probar
+            List<String> escritos = new ArrayList<>();
+            JSON.readTree(JSON.writeValueAsString(dto)).fieldNames().forEachRemaining(escritos::add);
+
+            // Verificación: Verificar el resultado esperado
+            List<String> componentes = Arrays.stream(dto.getClass().getRecordComponents())
+                    .map(RecordComponent::getName)
+                    .toList();
+            assertEquals(componentes, escritos, "Un componente nuevo de " + dto.getClass().getSimpleName() +
+                    " debe agregarse a su serializador en SerializadoresCarrito");
+        }
+    }
+
+    private static CarritoDetalle carrito() {
+        var item = new ItemCarritoInfo(1L, "Avatar", new BigDecimal("15.99"), 3, new BigDecimal("47.97"));
+        return new CarritoDetalle(10L, "usuario123", List.of(item), 3, new BigDecimal("47.97"),
+                LocalDateTime.of(2024, 5, 1, 10, 0), LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123_000_000));
+    }
+}